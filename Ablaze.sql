@@ -78,7 +78,12 @@ CREATE TABLE `article`  (
   `update_time` datetime NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '最终修改时间',
   `update_by` varchar(32) CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci NULL DEFAULT NULL COMMENT '最终修改人',
   `deleted` tinyint(1) NOT NULL DEFAULT 0 COMMENT '是否启用[0:未删除，1:已删除]',
-  PRIMARY KEY (`id`) USING BTREE
+  PRIMARY KEY (`id`) USING BTREE,
+  INDEX `idx_view_status_create_time`(`view_status` ASC, `create_time` ASC, `id` ASC) USING BTREE,
+  INDEX `idx_sort_create_time`(`sort_id` ASC, `create_time` ASC, `id` ASC) USING BTREE,
+  INDEX `idx_label_create_time`(`label_id` ASC, `create_time` ASC, `id` ASC) USING BTREE,
+  INDEX `idx_user_create_time`(`user_id` ASC, `create_time` ASC, `id` ASC) USING BTREE,
+  FULLTEXT INDEX `ft_article_search`(`article_title`, `keywords`, `article_content`) WITH PARSER `ngram`
 ) ENGINE = InnoDB AUTO_INCREMENT = 91 CHARACTER SET = utf8mb4 COLLATE = utf8mb4_0900_ai_ci COMMENT = '文章表' ROW_FORMAT = Dynamic;
 
 -- ----------------------------
@@ -145,6 +150,11 @@ INSERT INTO `article` VALUES (88, 1, 1, 16, 0001, 'https://www.dashtech.org/wp-c
 INSERT INTO `article` VALUES (89, 1, 1, 16, 0001, 'https://www.dashtech.org/wp-content/uploads/2020/06/coding-768x513.jpg', '头歌Python答案 函数', NULL, '## 前排直链：\n说明页面：[说明书](https://www.roginx.ink/article?id=71){target=\"_blank\"}\n油猴脚本：[Tampermonkey](https://microsoftedge.microsoft.com/addons/detail/tampermonkey/iikmkjmpaadaobahmlepeloendndfphd?hl=zh-CN){target=\"_blank\"} [直接下载](https://mybox-1257251314.cos.ap-chengdu.myqcloud.com/www/scripts/%E6%B2%B9%E7%8C%B4.crx){target=\"_blank\"}\n划词脚本：[魔改题海划词+ChatGPT](https://greasyfork.org/zh-CN/scripts/483764-%E9%A2%98%E6%B5%B7-x-%E5%88%92%E8%AF%8D%E6%90%9C%E9%A2%98){target=\"_blank\"} [直接下载](https://mybox-1257251314.cos.ap-chengdu.myqcloud.com/www/scripts/%E5%88%92%E8%AF%8D%E8%84%9A%E6%9C%AC.js){target=\"_blank\"}\n超兽武装：[天国](https://mybox-1257251314.cos.ap-chengdu.myqcloud.com/www/scripts/%E5%88%92%E8%AF%8D%E8%84%9A%E6%9C%AC.js){target=\"_blank\"\n自动答题：[直接下载]([https://mybox-1257251314.cos.ap-chengdu.myqcloud.com/www/scripts/%E8%87%AA%E5%8A%A8%E7%AD%94%E9%A2%98.js)\n\n\n# \n\n\n# 函数\n\n## **来自计算机的问候**\n\n### 第1关 无参无返回值函数\n\n```\ndef print_hi_human():  # 函数名用小写字母\n    print(\'人类，你好！\')\nif __name__ == \'__main__\':\n    print_hi_human()\n```\n\n### 第2关 无参有返回值函数\n\n```\ndef say_hi_human():  # 函数名用小写字母\n    return \'人类，你好！\'\nif __name__ == \'__main__\':\n    print(say_hi_human())\n```\n\n### 第3关 有参有返回值函数\n\n```\ndef say_hi_person(full_name):  # 函数名用小写字母，函数名填空\n    return f\'{full_name}，你好！\'\nif __name__ == \'__main__\':\n    person_name = input()\n    print(say_hi_person(person_name))\n```\n\n### 第4关 多参函数\n\n```\ndef say_hi_gender(full_name, gender):\n    if gender == \"男\":\n        return \"尊敬的{}先生，欢迎来到火星！\".format(full_name)\n    elif gender == \"女\":\n        return \"尊敬的{}女士，欢迎来到火星！\".format(full_name)\n    else:\n        return \"尊敬的{}先生/女士，欢迎来到火星！\".format(full_name)\n\nif __name__ == \'__main__\':\n    full_name = input()\n    gender = input()\n    print(say_hi_gender(full_name, gender))\n```\n\n### 第5关 任意数量参数\n\n```\nnames = input().split(\' \')\ndef say_hi_multi_parameter(names):\n    for name in names:\n        print(f\"{name}，你好！\")\nsay_hi_multi_parameter(names)\n```\n\n## 自除数 编写函数输出自除数\n\n```\ndef is_self_divisor(num):\n    n = num\n    while n > 0:\n        digit = n % 10\n        if digit == 0 or num % digit != 0:\n            return False\n        n //= 10\n    return True\n\nN = int(input())\n\nfor i in range(1, N+1):\n    if \'0\' not in str(i) and is_self_divisor(i):\n        print(i, end=\' \')\n```\n\n## 素数问题\n\n### 第1关 素数判定\n\n```\ndef is_prime(n): \n    if n<2:\n        return False\n    k = int(n ** 0.5)\n    for i in range(2,k+1):\n        if n % i == 0:\n            return False\n    else:\n        return True\n\n\npositive_int = int(input())      # 输入一个正整数\nif is_prime(positive_int):\n    print(f\'{positive_int}是素数\') \nelse:\n    print(f\'{positive_int}不是素数\')\n```\n\n### 第2关 输出N以内的所有素数\n\n```\ndef is_prime(n):\n    \"\"\"判断素数的函数,接收一个正整数为参数，参数是素数时返回True，否则返回False\n    减小判定区间，减少循环次数，提升效率\"\"\"\n    if n < 2:\n        return False      # 0、1、负数以及偶数都不是素数\n    for i in range(2, int(n ** 0.5) + 1):\n        if n % i == 0:    # 能被2到其n-1之间的数整除的数不是素数\n            return False\n    else:\n        return True       # for循环正常结束，未遇到return的数是素数\ndef output_prime(number):\n    \"\"\"接收一个正整数为参数，遍历从0到number之间的所有整数\n    在一行中输出不大于number的所有素数，函数无返回值\"\"\"\n    for i in range(number + 1):         # 遍历小于n的整数\n        if is_prime(i):   # i为素数时输出i\n            print(i, end=\' \')  # 输出后不换行，空格分隔输出\n \n \npositive_int = int(input())  # 输入一个正整数\noutput_prime(positive_int)      # 调用无返回值函数，不需要用print()\n```\n\n### 第3关 寻找回文素数\n\n```\ndef is_prime(n):\n    if n<2:\n        return False\n    for i in range(2,int(n**0.5)+1):\n        if n%i==0:\n            return False\n    else:\n        return True\ndef plalindrome_prime(number):\n    for i in range(number):\n        if str(i)==str(i)[::-1] and is_prime(i):\n            print(i,end=\' \')\npositive_int = int(input())\nplalindrome_prime(positive_int)\n```\n\n### 第4关 寻找反素数\n\n```\ndef is_prime(n):\n    if n<2:\n        return False\n    for i in range(2,int(n**0.5)+1):\n        if n%i==0:\n            return False\n    else:\n        return True\ndef reverse_prime(number):\n    for i in range(number):\n        if str(i)!=str(i)[::-1] and is_prime(i) and is_prime(int(str(i)[::-1])):\n            print(i,end=\' \')\n \npositive_int = int(input())         \nreverse_prime(positive_int)     \n```\n\n### 第5关 哥德巴赫猜想\n\n```\ndef is_prime(n):\n    if n < 2:\n        return False \n    for i in range(2,n):\n        if n % i == 0:\n            return False\n    else:\n        return True\n \n    \ndef goldbach_conjecture(num):\n    if num %2 ==0 and num >= 4:\n        for i in range(num // 2+1):\n            if is_prime(i) and is_prime(num - i):\n                print(f\"{num}={i}+{num-i}\")\n    else:\n        print(\'Data error!\')\nif __name__ == \'__main__\':\n    positive_even = int(input())\n    goldbach_conjecture(positive_even)\n```\n\n## 汽车迷\n\n```\ndef Car(year, model, brand=\"宝马\"):\n    return f\"这是一辆{year}年生产，型号是{model}的{brand}牌汽车。\"\n\nls = input().split()\nprint(Car(*ls))\n```\n\n## **自定义数学函数**\n\n```\n############## 第1关 ################\ndef pow(x, n):  # 幂运算函数\n    return x**n;\nif __name__ == \'__main__\':\n    x = float(input())\n    n = int(input())\n    return_data = pow(x,n)\n    print(return_data)\n############## 第2关 ################\ndef gcd(a,b):\n    if a % b == 0:\n        return b\n    return gcd(b,a % b)\nif __name__ == \'__main__\':\n    a = int(input())\n    b = int(input())\n    return_data = gcd(a,b)\n    print(return_data)\n############## 第3关 ################\ndef lcm(m, n):\n    x = m * n  # x用于存放m与n的乘积\n    r = m % n\n    while r != 0:   #不用比较大小，若m小于n，则会在第一遍循环交换位置\n        m = n\n        n = r\n        r = m % n\n    return int(x / n)\nif __name__ == \'__main__\':\n    a = int(input())\n    b = int(input())\n    return_data = lcm(a,b)\n    print(return_data)\n############## 第4关 ################\ndef fabs(x):\n    if(x<0): \n        x = -x\n    return x\n\nif __name__ == \'__main__\':\n    x = eval(input())\n    return_data = fabs(x)\n    print(return_data)\n############## 第5关 ################\nimport math\ndef ceil(x):\n    return math.ceil(x)\nif __name__ == \'__main__\':\n    x = eval(input())\n    return_data = ceil(x)\n    print(return_data)\n############## 第6关 ################\nimport math\ndef floor(x):\n    return math.floor(x)\nif __name__ == \'__main__\':\n    x = eval(input())\n    return_data = floor(x)\n    print(return_data)\n############## 第7关 ################\nimport math\ndef factorial(n):\n   return math.factorial(n)\nif __name__ == \'__main__\':\n    x = int(input())\n    return_data = factorial(x)\n    print(return_data)\n############## 第8关 ################\ndef fsum(iterable):\n    return sum(iterable)\nif __name__ == \'__main__\':\n    x = list(map(eval, input().split()))\n    return_data = fsum(x)\n    print(\"{:.1f}\".format(return_data))\n############## 第 关 ################\n```\n\n## 字母查找\n\n```\ndef f(m,n):\n    for i in m:\n        if i not in n:\n            return \'NOT FOUND\'\n    return \'FOUND\'\n\nm=input()\nif m.isalpha():\n    n=input()\n    print(f(m,n))\nelse:\n    print(\'ERROR\')\n```\n\n## 字母查找2.0\n\n```\ndef f(m,n):\n    for i in m:\n        if n.count(i)>0:\n            n=n.replace(i,\'\',1)\n        else:\n            return \'NOT FOUND\'\n    return \'FOUND\'\n \n \nm=input()\nif m.isalpha():\n    n=input()\n    print(f(m,n))\nelse:\n    print(\'ERROR\')\n```\n\n## 华氏度转摄氏度速查表\n\n```\ndef F2C(f):\n        c=5*(f-32)/9\n        return c\n \n \nleft,right=map(int,input().split(\',\'))\nif left>right:\n    print(\'error\')\nelse:\n    for f in range(left,right+1,2):\n        print(\"{} : {:.2f}\".format(f,F2C(f)))\n```\n\n## 回文素数\n\n```\ndef isprime(n):\n    if n<2:\n        return False\n    for i in range(2,int(n**0.5)+1):\n        if n%i == 0:\n            return False\n    else:\n        return True\n \ndef ispal(n):\n    if str(n) == str(n)[::-1]:\n        return True\n    else:\n        return False\n \nn = int(input())\nnum,a = 2,0\nwhile a<n:\n    if ispal(num) and isprime(num) :\n        print(num,end=\' \')\n        a += 1\n    num += 1\n```\n\n## 反素数\n\n```\ndef ispal(n):   # 判断是否回文数\n    if str(n) == str(n)[::-1]:\n        return True\n    else:\n        return False\ndef isprime(n): # 判断是否素数\n    if n<2:\n        return False\n    for i in range(2,int(n**0.5)+1):\n        if n%i == 0:\n            return False\n    else:\n        return True\nn = int(input())\na = 0\nnum = 10\nwhile a < n:\n    if ispal(num) == False:\n        if isprime(num) and isprime(int(str(num)[::-1])):\n            print(num,end=\' \')\n            a += 1\n    num += 1\n```\n\n## 哥德巴赫猜想\n\n```\ndef is_prime(n):\n    if n < 2:\n        return False\n    for i in range(2, int(n ** 0.5) + 1):\n        if n % i == 0:\n            return False\n    else:\n        return True\ndef goldbach_conjecture(num):\n    if num % 2 == 0 and num >= 4:\n        for i in range(num // 2+1): \n            if is_prime(i) and is_prime(num - i):\n                print(f\"{num}={i}+{num-i}\")\n    else:\n        print(\'Data error!\')\nif __name__ == \'__main__\':\n    positive_even = int(input())\n    goldbach_conjecture(positive_even)\n```\n\n## **二分法求平方根B**\n\n```\nimport math\ndef sqrt_binary(num, accuracy):\n    low, high = 0, num + 0.25 \n    while True:\n        x = (high + low) / 2\n        if abs(x * x - num) <= accuracy: \n            return x                 \n        elif x * x - num < 0:             \n            low = x                 \n        else:                             \n            high = x                 \nn, error = map(float, input().split(\',\'))\nprint(\'{:.8f}\'.format(sqrt_binary(n, error)))\nprint(\'{:.8f}\'.format(math.sqrt(n)))\n```\n\n## 本月天数\n\n```python\ndate = input()\nmonth = int(date[4:6])\nif month in [1, 3, 5, 7, 8, 10, 12]:\n    days = 31\nelif month in [4, 6, 9, 11]:\n    days = 30\nelse:\n    year = int(date[:4])  # 提取年份部分并转换为整数\n    if year % 400 == 0 or (year % 4 == 0 and year % 100 != 0):\n        days = 29  # 闰年2月有29天\n    else:\n        days = 28  # 平年2月有28天\nprint(days)\n```\n\n## 二分法求函数的零点\n\n```python\ndef fun(x):\n    return x**5-15*x**4+85*x**3-225*x**2+274*x-121\nn=int(input())\nif fun(1.5)<0:\n    a,b=1.5,2.4\nelse:\n    a,b=2.4,1.5\nwhile True:\n    mid=(a+b)/2\n    if abs(fun(mid))<10**(-n):\n        break\n    elif fun(mid)<0:\n        a=mid\n    else:\n        b=mid\nprint(\"{:.6f}\".format(mid))\n```\n\n', '暂封', 'Python,头歌,作业,答案,Python123', 0, 311, 0, 1, '888', 0, 1, '2023-12-25 19:05:26', '2024-01-19 19:12:21', 'janx', 0);
 INSERT INTO `article` VALUES (90, 1, 1, 16, 0001, 'https://www.dashtech.org/wp-content/uploads/2020/06/coding-768x513.jpg', '头歌Python答案  数值类型', NULL, '# 数值类型\n\n## A 数制转换（quiz-train-s）\n\n```\ndec = eval(input())\nprint(oct(dec))\nprint(hex(dec))\n```\n\n## A 计算几何形状的表面积与体积\n\n```\nimport math\ndef type_judge(geom_type):\n    if geom_type == \'长方形\':\n        length, width = map(float, input().split())\n        return square(length, width)\n    elif geom_type == \'长方体\':\n        length, width, height = map(float, input().split())\n        return cube(length, width, height)\n    elif geom_type == \'圆形\':\n        radius = float(input())\n        return circle(radius)\n    elif geom_type == \'球\':\n        radius = float(input())\n        return sphere(radius)\n    elif geom_type == \'圆柱体\':\n        radius, height = map(float, input().split())\n        return cylinder(radius, height)\n    elif geom_type == \'圆锥\':\n        radius, height = map(float, input().split())\n        return cone(radius, height)\n    elif geom_type == \'正三棱柱\':\n        side, height = map(float, input().split())\n        return tri_prism(side, height)\n    else:\n        return f\'未找到{geom_type}计算方法\'\n\ndef square(length, width):\n    area_of_square = length * width\n    return f\'长方形的面积为{area_of_square:.2f}\'\ndef cube(length, width, height):\n    area_of_cube = length * width * 2 + width * height * 2 + length * height * 2\n    volume_of_cube = length * width * height\n    return f\'长方体的表面积为{area_of_cube:.2f}, 体积为{volume_of_cube:.2f}\'\ndef circle(radius):\n    area_of_circle = math.pi * math.pow(radius, 2)\n    return f\'圆形的面积为{area_of_circle:.2f}\'\ndef sphere(radius):\n    area_of_sphere = 4*math.pi*math.pow(radius, 2)\n    volume_of_sphere = math.pi*math.pow(radius, 3)*4/3\n    return f\'球的表面积为{area_of_sphere:.2f}, 体积为{volume_of_sphere:.2f}\'\ndef cylinder(radius, height):\n    area_of_cylinder = 2*math.pi*radius*(radius+height)\n    volume_of_cylinder = math.pi*radius*radius*height\n    return f\'圆柱体的表面积为{area_of_cylinder:.2f}, 体积为{volume_of_cylinder:.2f}\'\ndef cone(radius, height):\n    area_of_cone = math.pi*radius * \\\n        (radius+math.sqrt(math.pow(radius, 2)+math.pow(height, 2)))\n    volume_of_cone = math.pi*math.pow(radius, 2)*height/3\n    return f\'圆锥的表面积为{area_of_cone:.2f}, 体积为{volume_of_cone:.2f}\'\ndef tri_prism(side, height):\n    area_of_tri_prism = math.sqrt(3)*math.pow(side, 2)/2+3*side*height\n    volume_of_tri_prism = math.sqrt(3)*math.pow(side, 2)*height/4\n    return f\'正三棱柱的表面积为{area_of_tri_prism:.2f}, 体积为{volume_of_tri_prism:.2f}\'\nif __name__ == \'__main__\':\n    type_of_geometry = input()\n    geometry = type_judge(type_of_geometry)\n    print(geometry)\n```\n\n## 计算几何形状的表面积与体积 （太多了，统一复制上题并改动）\n\n```\nif __name__ == \'__main__\':\n    type_of_geometry = input()\n    geometry = type_judge(\"长方形\") #根据题目改动 如：长方形、长方体、圆...\n    print(geometry)\n```\n\n## 学费计算\n\n### 第1关 学费计算\n\n```\npython = 3\nmath = 4\nenglish = 4\nphysical = 2\nmilitary_theory = 2\nphilosophy = 2\ncredits = (python + math + english + physical + military_theory + philosophy)\ntuition = eval(input())\nprint(f\'你本学期选修了{credits}个学分。\')\nprint(f\'你应缴纳的学费为{tuition*credits}元。\')\n```\n\n### 第2关 助学贷款\n\n```\npython = 3\nmath = 4\nenglish = 4\nphysical_education = 2\nmilitary_theory = 2\nphilosophy = 2\ntuition_per_credit = eval(input())\nliving_expenses = eval(input())\ntotal_credits = (python + math + english + physical_education +military_theory + philosophy)\ntotal_tuition = total_credits * tuition_per_credit\ntotal_cost = living_expenses*5 + total_tuition\nstudent_loan = total_cost * 0.6\nprint(f\'请输入每学分学费金额：请输入你每个月生活费：本学期你能够贷款{student_loan:.2f}元\')\n```\n\n## A 求绝对值（quiz-train-ss）\n\n```\nn = eval(input())\nprint(abs(n))\n```\n\n## A 整数四则运算（quiz-train-s）\n\n```\na = int(input())\nb = int(input())\nprint(f\'{a} + {b} = {a + b}\')\nprint(f\'{a} - {b} = {a - b}\')\nprint(f\'{a} * {b} = {a * b}\')\nprint(f\'{a} / {b} = {a / b}\')\n```\n\n## A 幂运算（quiz-train-s）\n\n```\na = int(input())\nb = int(input())\nm = int(input())\nprint(pow(a,b))\nprint(pow(a,b,m))\n```\n\n## A 计算多个垫片面积的和 （train-ss）\n\n```\npi = 3.14159;\na = int(input())\nb = int(input())\nc = int(input())\nprint(f\'{(a**2 - b**2)*pi*c:.2f}\')\n```\n\n## A 三角形周长与面积（quiz-train-s）\n\n```\nimport math\na = float(input())\nb = float(input())\nc = float(input())\ns = (a+b+c)/2\nprint(\"周长={:.2f}\".format(a+b+c))\nprint(\"面积={:.2f}\".format((s*(s-a)*(s-b)*(s-c))**0.5))\n```\n\n## A 表达式求值（quiz-train-s）\n\n```\na = float(input())\nb = float(input())\nc = float(input())\nprint(\'{:.2f}\'.format(((b**2-4*a*c)**0.5-b)/(2*a)))\n```\n\n## A 三角函数计算（train-ss）\n\n```\nimport math as m\na = eval(input())\nb = eval(input())\nprint(\'{:.2f}\'.format(((2*a*m.sin(m.pi/3)*m.cos(m.pi/3))**(1/2)-b)/(2*a)))\n```\n\n## A 助学贷款额度计算\n\n```\npython = 3\nmath = 4\nenglish = 4\nphysical = 2\nmilitary_theory = 2\nphilosophy = 2\ntuition_per_credit = eval(input())\nliving_expenses = eval(input())\ntotal_credits = (python + math + english + physical + military_theory + philosophy)\ntotal_tuition = total_credits * tuition_per_credit\ntotal_cost = living_expenses*5 + total_tuition\nstudent_loan = total_cost * 0.6\nprint(f\'本学期你能够贷款{student_loan:.2f}元\')\n```\n\n## A 计算存款利息（quiz-train-ss）\n\n```\nP =eval(input())\nN = eval(input())\ni = eval(input())\nF = (P*(i+1)**N)-P\nprint(\'存款={:.2f}\'.format(F))\n```\n\n## 计算弓形的面积\n\n### 第1关\n\n```第1关\nimport math\nAB = float(input())  # 弦长度\nCD = float(input())  # 弓高度\nAD = AB/2\nOA = (AD**2 + CD**2)/(2*CD)\nprint(\'{:.2f}\'.format(OA))\n```\n\n### 第2关\n\n```\nimport math\nAB = float(input())  # 弦长度\nCD = float(input())  # 弓高度\nAD = AB\nOA = (AD ** 2 + CD ** 2) / (2 * CD)\nAOB = 2 * math.asin(AD / OA)\nsector = AOB/(2*math.pi)*math.pi*(OA**2)\ntriangle = (1/2)*(OA**2)*math.sin(AOB)\narea_of_arch = sector - triangle\nprint(f\'{area_of_arch:.2f}\')\n```\n\n## A 除法运算（quiz-train-s）\n\n```\ndef division(m, n):\n    print(int(m/n))\n    print(m/n)\nif __name__ == \'__main__\':\n    a = int(input())\n    b = int(input())\n    division(a, b)  # 调用函数计算除法\n```\n\n## ', '可以白嫖，但不能当伸手党，密码是：站长的微信号', 'Python,头歌,作业,答案,Python123', 0, 467, 0, 1, 'janxland', 0, 1, '2023-12-25 20:58:32', '2024-01-19 19:25:00', 'janx', 0);
 
+-- ----------------------------
+-- Backfill article_preview (same rule as ArticleServiceImpl.buildArticlePreview)
+-- ----------------------------
+UPDATE `article` SET `article_preview` = CASE WHEN CHAR_LENGTH(`article_content`) > 80 THEN REPLACE(REPLACE(REPLACE(LEFT(`article_content`, 80), '`', ''), '#', ''), '>', '') ELSE `article_content` END WHERE `article_preview` IS NULL;
+
 -- ----------------------------
 -- Table structure for collection
 -- ----------------------------
@@ -183,7 +193,8 @@ CREATE TABLE `comment`  (
   `create_time` datetime NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
   `deleted` tinyint(1) NOT NULL DEFAULT 0 COMMENT '是否启用[0:未删除，1:已删除]',
   PRIMARY KEY (`id`) USING BTREE,
-  INDEX `source`(`source` ASC) USING BTREE
+  INDEX `idx_source_parent_create_time`(`source` ASC, `parent_comment_id` ASC, `create_time` ASC, `id` ASC) USING BTREE,
+  INDEX `idx_source_floor_create_time`(`source` ASC, `floor_comment_id` ASC, `create_time` ASC, `id` ASC) USING BTREE
 ) ENGINE = InnoDB AUTO_INCREMENT = 13 CHARACTER SET = utf8mb4 COLLATE = utf8mb4_0900_ai_ci COMMENT = '文章评论表' ROW_FORMAT = DYNAMIC;
 
 -- ----------------------------
@@ -231,7 +242,10 @@ CREATE TABLE `diary`  (
   `update_time` datetime NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '最终修改时间',
   `update_by` varchar(32) CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci NULL DEFAULT NULL COMMENT '最终修改人',
   `deleted` tinyint(1) NOT NULL DEFAULT 0 COMMENT '是否启用[0:未删除，1:已删除]',
-  PRIMARY KEY (`id`) USING BTREE
+  PRIMARY KEY (`id`) USING BTREE,
+  INDEX `idx_view_status_create_time`(`view_status` ASC, `create_time` ASC, `id` ASC) USING BTREE,
+  INDEX `idx_user_create_time`(`user_id` ASC, `create_time` ASC, `id` ASC) USING BTREE,
+  FULLTEXT INDEX `ft_diary_search`(`article_title`, `keywords`, `article_content`) WITH PARSER `ngram`
 ) ENGINE = InnoDB AUTO_INCREMENT = 21 CHARACTER SET = utf8mb4 COLLATE = utf8mb4_0900_ai_ci COMMENT = '文章表' ROW_FORMAT = Dynamic;
 
 -- ----------------------------
@@ -413,6 +427,29 @@ INSERT INTO `label` VALUES (14, 4, '2019', '2019年归档');
 INSERT INTO `label` VALUES (15, 1, '人工智能', 'AI时代，探索先行');
 INSERT INTO `label` VALUES (16, 1, 'Python', '来点简单的Python吧');
 
+-- ----------------------------
+-- Table structure for mail_outbox
+-- ----------------------------
+DROP TABLE IF EXISTS `mail_outbox`;
+CREATE TABLE `mail_outbox`  (
+  `id` bigint NOT NULL AUTO_INCREMENT COMMENT 'id',
+  `mail_type` tinyint NOT NULL COMMENT '通知类型[1:评论，2:IM]',
+  `to_user_id` int NULL DEFAULT NULL COMMENT '收件用户ID，为空时发给站长',
+  `to_comment_id` int NULL DEFAULT NULL COMMENT '被回复的评论ID',
+  `from_user_id` int NULL DEFAULT NULL COMMENT '发件用户ID',
+  `from_name` varchar(32) CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci NULL DEFAULT NULL COMMENT '发件用户名',
+  `source_title` varchar(256) CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci NULL DEFAULT NULL COMMENT '文章标题',
+  `content` text CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci NULL COMMENT '评论或消息内容',
+  `status` tinyint NOT NULL DEFAULT 0 COMMENT '状态[0:待发送，1:发送中，2:已发送，3:已跳过，4:失败]',
+  `retry_count` int NOT NULL DEFAULT 0 COMMENT '已重试次数',
+  `next_send_time` datetime NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '下次发送时间',
+  `last_error` varchar(512) CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci NULL DEFAULT NULL COMMENT '最近一次失败原因',
+  `create_time` datetime NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+  `update_time` datetime NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '最终修改时间',
+  PRIMARY KEY (`id`) USING BTREE,
+  INDEX `idx_status_next_send_time`(`status` ASC, `next_send_time` ASC) USING BTREE
+) ENGINE = InnoDB CHARACTER SET = utf8mb4 COLLATE = utf8mb4_0900_ai_ci COMMENT = '邮件发件箱' ROW_FORMAT = Dynamic;
+
 -- ----------------------------
 -- Table structure for orders
 -- ----------------------------
@@ -762,6 +799,21 @@ INSERT INTO `user` VALUES (12, 'zzyykk', 'b9bb0844a2672b0c82a87d241d34588b', NUL
 INSERT INTO `user` VALUES (13, 'zzyykl', 'b9bb0844a2672b0c82a87d241d34588b', NULL, NULL, 0, 00000000, 1, NULL, NULL, 'https://ui-avatars.com/api/?name=User', NULL, 2, '2024-01-06 14:02:15', '2024-01-06 14:02:15', NULL, 0);
 INSERT INTO `user` VALUES (14, 'ki', 'b30703e327574ee95d4f1de0c90258f8', NULL, NULL, 0, 00000000, 1, NULL, NULL, 'https://ui-avatars.com/api/?name=User', NULL, 2, '2024-01-08 14:43:23', '2024-01-08 14:43:23', NULL, 0);
 
+-- ----------------------------
+-- Table structure for user_article_auth
+-- ----------------------------
+DROP TABLE IF EXISTS `user_article_auth`;
+CREATE TABLE `user_article_auth`  (
+  `id` int NOT NULL AUTO_INCREMENT COMMENT 'id',
+  `user_id` int NOT NULL COMMENT '用户ID',
+  `article_id` int NOT NULL COMMENT '文章ID',
+  `vip1` tinyint NOT NULL DEFAULT 0 COMMENT '是否VIP[0:否，1:是]',
+  `pay` tinyint NOT NULL DEFAULT 0 COMMENT '是否已付费[0:否，1:是]',
+  `reply` tinyint NOT NULL DEFAULT 0 COMMENT '是否已评论[0:否，1:是]',
+  PRIMARY KEY (`id`) USING BTREE,
+  UNIQUE INDEX `uk_user_article`(`user_id` ASC, `article_id` ASC) USING BTREE
+) ENGINE = InnoDB CHARACTER SET = utf8mb4 COLLATE = utf8mb4_0900_ai_ci COMMENT = '用户文章权限表' ROW_FORMAT = Dynamic;
+
 -- ----------------------------
 -- Table structure for web_info
 -- ----------------------------
@@ -0,0 +1,32 @@
+/*
+ 已有数据库升级：user_article_auth 增加 (user_id, article_id) 唯一索引
+
+ 新库直接导入 Ablaze.sql 即可，不需要执行本脚本。
+ 加索引前先把同一用户、同一文章的重复记录合并到 id 最小的一行，权限取并集。
+*/
+
+SET NAMES utf8mb4;
+
+-- ----------------------------
+-- 1. Merge duplicate grants into the row with the smallest id
+-- ----------------------------
+UPDATE `user_article_auth` a
+JOIN (
+  SELECT `user_id`, `article_id`, MIN(`id`) AS `keep_id`,
+         MAX(IFNULL(`vip1`, 0)) AS `vip1`, MAX(IFNULL(`pay`, 0)) AS `pay`, MAX(IFNULL(`reply`, 0)) AS `reply`
+  FROM `user_article_auth`
+  GROUP BY `user_id`, `article_id`
+  HAVING COUNT(*) > 1
+) d ON a.`id` = d.`keep_id`
+SET a.`vip1` = d.`vip1`, a.`pay` = d.`pay`, a.`reply` = d.`reply`;
+
+-- ----------------------------
+-- 2. Delete the remaining duplicates
+-- ----------------------------
+DELETE a FROM `user_article_auth` a
+JOIN `user_article_auth` b ON a.`user_id` = b.`user_id` AND a.`article_id` = b.`article_id` AND a.`id` > b.`id`;
+
+-- ----------------------------
+-- 3. Add the unique index used by UserArticleAuthMapper.upsert
+-- ----------------------------
+ALTER TABLE `user_article_auth` ADD UNIQUE INDEX `uk_user_article`(`user_id` ASC, `article_id` ASC) USING BTREE;
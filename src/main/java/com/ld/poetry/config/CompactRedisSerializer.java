@@ -0,0 +1,117 @@
+package com.ld.poetry.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Redis value 序列化器
+ * <p>
+ * 写入格式由 poetry.redis.serializer 决定：
+ * json 与原来的 Jackson2JsonRedisSerializer 一致；
+ * smile 是 Jackson 的二进制格式，同一个值内重复出现的属性名和类名只写一次，解析也更快。
+ * <p>
+ * 序列化结果达到阈值时用 LZ4 压缩，压缩数据以 1 字节标记 + 4 字节原始长度开头。
+ * 读取时按数据头识别格式，切换配置前写入的旧数据仍然可以读取。
+ * 升级前的版本只能读取 JSON，所以滚动发布期间保持 json、不压缩，所有节点升级后再开启 smile 和压缩。
+ */
+public class CompactRedisSerializer implements RedisSerializer<Object> {
+
+    /**
+     * LZ4 压缩数据的标记，JSON 和 Smile 都不会以该字节开头
+     */
+    private static final byte LZ4_MARKER = 0x01;
+
+    private static final int LZ4_HEADER_LENGTH = 5;
+
+    /**
+     * Smile 数据头 ":)\n"
+     */
+    private static final byte[] SMILE_HEADER = {':', ')', '\n'};
+
+    private final ObjectMapper jsonMapper;
+
+    private final ObjectMapper smileMapper;
+
+    private final boolean writeSmile;
+
+    private final int compressThreshold;
+
+    private final LZ4Compressor compressor = LZ4Factory.fastestInstance().fastCompressor();
+
+    private final LZ4FastDecompressor decompressor = LZ4Factory.fastestInstance().fastDecompressor();
+
+    /**
+     * @param jsonMapper        JSON 格式的 ObjectMapper
+     * @param smileMapper       Smile 格式的 ObjectMapper
+     * @param writeSmile        写入时是否使用 Smile
+     * @param compressThreshold 压缩阈值（字节），0 表示不压缩
+     */
+    public CompactRedisSerializer(ObjectMapper jsonMapper, ObjectMapper smileMapper, boolean writeSmile, int compressThreshold) {
+        this.jsonMapper = jsonMapper;
+        this.smileMapper = smileMapper;
+        this.writeSmile = writeSmile;
+        this.compressThreshold = compressThreshold;
+    }
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        if (value == null) {
+            return new byte[0];
+        }
+        byte[] bytes;
+        try {
+            bytes = (writeSmile ? smileMapper : jsonMapper).writeValueAsBytes(value);
+        } catch (IOException e) {
+            throw new SerializationException("Could not write: " + e.getMessage(), e);
+        }
+        if (compressThreshold <= 0 || bytes.length < compressThreshold) {
+            return bytes;
+        }
+
+        int maxLength = compressor.maxCompressedLength(bytes.length);
+        byte[] compressed = new byte[LZ4_HEADER_LENGTH + maxLength];
+        compressed[0] = LZ4_MARKER;
+        compressed[1] = (byte) (bytes.length >>> 24);
+        compressed[2] = (byte) (bytes.length >>> 16);
+        compressed[3] = (byte) (bytes.length >>> 8);
+        compressed[4] = (byte) bytes.length;
+        int length = compressor.compress(bytes, 0, bytes.length, compressed, LZ4_HEADER_LENGTH, maxLength);
+        // 压缩效果不明显时保留原始数据，省去读取时的解压
+        if (LZ4_HEADER_LENGTH + length >= bytes.length) {
+            return bytes;
+        }
+        return Arrays.copyOf(compressed, LZ4_HEADER_LENGTH + length);
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        try {
+            if (bytes[0] == LZ4_MARKER) {
+                int length = ((bytes[1] & 0xFF) << 24) | ((bytes[2] & 0xFF) << 16)
+                        | ((bytes[3] & 0xFF) << 8) | (bytes[4] & 0xFF);
+                bytes = decompressor.decompress(bytes, LZ4_HEADER_LENGTH, length);
+            }
+            ObjectMapper mapper = isSmile(bytes) ? smileMapper : jsonMapper;
+            return mapper.readValue(bytes, Object.class);
+        } catch (Exception e) {
+            throw new SerializationException("Could not read: " + e.getMessage(), e);
+        }
+    }
+
+    private boolean isSmile(byte[] bytes) {
+        return bytes.length >= SMILE_HEADER.length
+                && bytes[0] == SMILE_HEADER[0]
+                && bytes[1] == SMILE_HEADER[1]
+                && bytes[2] == SMILE_HEADER[2];
+    }
+}
@@ -0,0 +1,65 @@
+package com.ld.poetry.config;
+
+import com.ld.poetry.utils.CountCacheUtil;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 写入后使总数缓存失效
+ * <p>
+ * INSERT / UPDATE / DELETE 影响到数据时，更新涉及的表在 {@link CountCacheUtil} 中的版本号。
+ * 在语句执行后而不是执行前更新，避免并发的查询把写入前的总数缓存到新版本号下；
+ * 处于事务中时提交后再更新一次，覆盖事务期间读到未提交前数据的查询。
+ */
+@Intercepts({@Signature(type = Executor.class, method = "update", args = {MappedStatement.class, Object.class})})
+public class CountCacheInvalidationInterceptor implements Interceptor {
+
+    /**
+     * 不影响任何总数的写入，如浏览量自增
+     */
+    private static final List<String> IGNORED_STATEMENTS = Arrays.asList("addViewCounts");
+
+    private final CountCacheUtil countCacheUtil;
+
+    public CountCacheInvalidationInterceptor(CountCacheUtil countCacheUtil) {
+        this.countCacheUtil = countCacheUtil;
+    }
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        Object result = invocation.proceed();
+        MappedStatement ms = (MappedStatement) invocation.getArgs()[0];
+        if (result instanceof Integer && (Integer) result == 0) {
+            return result;
+        }
+        String id = ms.getId();
+        if (IGNORED_STATEMENTS.contains(id.substring(id.lastIndexOf('.') + 1))) {
+            return result;
+        }
+
+        Set<String> tables = countCacheUtil.getTables(ms.getBoundSql(invocation.getArgs()[1]).getSql());
+        if (tables.isEmpty()) {
+            return result;
+        }
+        countCacheUtil.bump(tables);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    countCacheUtil.bump(tables);
+                }
+            });
+        }
+        return result;
+    }
+}
@@ -0,0 +1,78 @@
+package com.ld.poetry.config;
+
+import com.baomidou.mybatisplus.annotation.DbType;
+import com.baomidou.mybatisplus.core.metadata.IPage;
+import com.baomidou.mybatisplus.core.toolkit.ParameterUtils;
+import com.baomidou.mybatisplus.extension.plugins.inner.PaginationInnerInterceptor;
+import com.ld.poetry.utils.CountCacheUtil;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+
+import java.sql.SQLException;
+import java.util.Set;
+
+/**
+ * 带总数缓存的分页拦截器
+ * <p>
+ * 分页查询的 COUNT 按 (涉及的表及其版本号, SQL, 参数值) 缓存，同样条件的重复翻页不再扫描总数。
+ * 表被写入后由 {@link CountCacheInvalidationInterceptor} 更新版本号，缓存随之失效。
+ */
+public class CountCachePaginationInnerInterceptor extends PaginationInnerInterceptor {
+
+    private final CountCacheUtil countCacheUtil;
+
+    public CountCachePaginationInnerInterceptor(DbType dbType, CountCacheUtil countCacheUtil) {
+        super(dbType);
+        this.countCacheUtil = countCacheUtil;
+    }
+
+    @Override
+    public boolean willDoQuery(Executor executor, MappedStatement ms, Object parameter, RowBounds rowBounds,
+                               ResultHandler resultHandler, BoundSql boundSql) throws SQLException {
+        IPage<?> page = ParameterUtils.findPage(parameter).orElse(null);
+        if (page == null || page.getSize() < 0 || !page.isSearchCount()) {
+            return true;
+        }
+        Set<String> tables = countCacheUtil.getTables(boundSql.getSql());
+        String countKey = countCacheUtil.getCountKey(tables, getFingerprint(ms, parameter, boundSql));
+        if (countKey == null) {
+            return super.willDoQuery(executor, ms, parameter, rowBounds, resultHandler, boundSql);
+        }
+        Long total = countCacheUtil.get(countKey);
+        if (total != null) {
+            page.setTotal(total);
+            return continuePage(page);
+        }
+        boolean proceed = super.willDoQuery(executor, ms, parameter, rowBounds, resultHandler, boundSql);
+        countCacheUtil.put(countKey, page.getTotal());
+        return proceed;
+    }
+
+    /**
+     * 查询指纹：语句 ID、SQL 和按占位符顺序取出的参数值
+     */
+    private String getFingerprint(MappedStatement ms, Object parameter, BoundSql boundSql) {
+        StringBuilder fingerprint = new StringBuilder(ms.getId()).append('\n').append(boundSql.getSql());
+        MetaObject metaObject = parameter == null ? null : ms.getConfiguration().newMetaObject(parameter);
+        for (ParameterMapping mapping : boundSql.getParameterMappings()) {
+            String property = mapping.getProperty();
+            Object value;
+            if (boundSql.hasAdditionalParameter(property)) {
+                value = boundSql.getAdditionalParameter(property);
+            } else if (parameter == null) {
+                value = null;
+            } else if (ms.getConfiguration().getTypeHandlerRegistry().hasTypeHandler(parameter.getClass())) {
+                value = parameter;
+            } else {
+                value = metaObject.getValue(property);
+            }
+            fingerprint.append('\n').append(value);
+        }
+        return fingerprint.toString();
+    }
+}
@@ -2,7 +2,7 @@ package com.ld.poetry.config;
 
 import com.baomidou.mybatisplus.annotation.DbType;
 import com.baomidou.mybatisplus.extension.plugins.MybatisPlusInterceptor;
-import com.baomidou.mybatisplus.extension.plugins.inner.PaginationInnerInterceptor;
+import com.ld.poetry.utils.CountCacheUtil;
 import org.mybatis.spring.annotation.MapperScan;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -12,9 +12,14 @@ import org.springframework.context.annotation.Configuration;
 public class MybatisPlusConfig {
 
     @Bean
-    public MybatisPlusInterceptor mybatisPlusInterceptor() {
+    public MybatisPlusInterceptor mybatisPlusInterceptor(CountCacheUtil countCacheUtil) {
         MybatisPlusInterceptor interceptor = new MybatisPlusInterceptor();
-        interceptor.addInnerInterceptor(new PaginationInnerInterceptor(DbType.MYSQL));
+        interceptor.addInnerInterceptor(new CountCachePaginationInnerInterceptor(DbType.MYSQL, countCacheUtil));
         return interceptor;
     }
+
+    @Bean
+    public CountCacheInvalidationInterceptor countCacheInvalidationInterceptor(CountCacheUtil countCacheUtil) {
+        return new CountCacheInvalidationInterceptor(countCacheUtil);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,26 @@
+package com.ld.poetry.config;
+
+import com.ld.poetry.utils.PoetryCache;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+
+import javax.annotation.PostConstruct;
+
+/**
+ * 本地缓存配置
+ * 启动时按 poetry.cache.max-entries 设置 PoetryCache 的容量上限，0 表示不限制
+ */
+@Configuration
+@Slf4j
+public class PoetryCacheConfig {
+
+    @Value("${poetry.cache.max-entries:0}")
+    private long maxEntries;
+
+    @PostConstruct
+    public void init() {
+        PoetryCache.configure(maxEntries);
+        log.info("本地缓存初始化完成 - 最大键数量: {}", maxEntries > 0 ? maxEntries : "不限制");
+    }
+}
@@ -4,33 +4,53 @@ import com.fasterxml.jackson.annotation.JsonAutoDetect;
 import com.fasterxml.jackson.annotation.PropertyAccessor;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.jsontype.impl.LaissezFaireSubTypeValidator;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
-import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
 /**
  * Redis 配置类
- * 配置 Redis 序列化方式，使用 JSON 序列化提高可读性
+ * 配置 Redis 序列化方式，可选 JSON（可读性好）或 Smile 二进制格式，较大的值再用 LZ4 压缩
  */
 @Configuration
 @EnableCaching
+@Slf4j
 public class RedisConfig {
 
+    /**
+     * value 序列化格式：json | smile
+     */
+    @Value("${poetry.redis.serializer:json}")
+    private String serializer;
+
+    /**
+     * 序列化结果超过该字节数时使用 LZ4 压缩，0 表示不压缩
+     */
+    @Value("${poetry.redis.compress-threshold:0}")
+    private int compressThreshold;
+
     @Bean
     public RedisTemplate<String, Object> redisTemplate(RedisConnectionFactory connectionFactory) {
         RedisTemplate<String, Object> template = new RedisTemplate<>();
         template.setConnectionFactory(connectionFactory);
 
-        // 使用 Jackson2JsonRedisSerializer 来序列化和反序列化 redis 的 value 值
-        Jackson2JsonRedisSerializer<Object> jackson2JsonRedisSerializer = new Jackson2JsonRedisSerializer<>(Object.class);
-        ObjectMapper om = new ObjectMapper();
-        om.setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.ANY);
-        om.activateDefaultTyping(LaissezFaireSubTypeValidator.instance, ObjectMapper.DefaultTyping.NON_FINAL);
-        jackson2JsonRedisSerializer.setObjectMapper(om);
+        // 两种格式共用同样的 ObjectMapper 配置，读取时按数据头识别，切换格式不影响已有数据
+        SmileFactory smileFactory = new SmileFactory();
+        // 列表中每个元素都带类名，开启字符串值共享后只写一次
+        smileFactory.enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES);
+        boolean writeSmile = "smile".equalsIgnoreCase(serializer);
+        CompactRedisSerializer valueSerializer = new CompactRedisSerializer(
+                configure(new ObjectMapper()), configure(new ObjectMapper(smileFactory)), writeSmile, compressThreshold);
+        log.info("Redis 序列化方式: {}, 压缩阈值: {}", writeSmile ? "smile" : "json", compressThreshold);
 
         // 使用 StringRedisSerializer 来序列化和反序列化 redis 的 key 值
         StringRedisSerializer stringRedisSerializer = new StringRedisSerializer();
@@ -40,12 +60,30 @@ public class RedisConfig {
         // hash 的 key 也采用 String 的序列化方式
         template.setHashKeySerializer(stringRedisSerializer);
         // value 序列化方式采用 jackson
-        template.setValueSerializer(jackson2JsonRedisSerializer);
+        template.setValueSerializer(valueSerializer);
         // hash 的 value 序列化方式采用 jackson
-        template.setHashValueSerializer(jackson2JsonRedisSerializer);
+        template.setHashValueSerializer(valueSerializer);
         
         template.afterPropertiesSet();
         return template;
     }
-}
 
+    private ObjectMapper configure(ObjectMapper om) {
+        om.setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.ANY);
+        om.activateDefaultTyping(LaissezFaireSubTypeValidator.instance, ObjectMapper.DefaultTyping.NON_FINAL);
+        // 实体中的 LocalDateTime 需要 JSR-310 模块才能正确序列化和反序列化
+        om.registerModule(new JavaTimeModule());
+        return om;
+    }
+
+    /**
+     * Redis 消息监听容器
+     * 用于接收多节点之间的本地缓存失效通知
+     */
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory connectionFactory) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        return container;
+    }
+}
@@ -11,6 +11,7 @@ import com.ld.poetry.dao.WebInfoMapper;
 import com.ld.poetry.entity.*;
 import com.ld.poetry.im.websocket.TioWebsocketStarter;
 import com.ld.poetry.service.ArticleService;
+import com.ld.poetry.service.CacheService;
 import com.ld.poetry.service.CommentService;
 import com.ld.poetry.service.DiaryService;
 import com.ld.poetry.service.UserService;
@@ -23,7 +24,9 @@ import org.springframework.util.CollectionUtils;
 import org.springframework.web.bind.annotation.*;
 import org.tio.core.Tio;
 
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/admin")
@@ -42,6 +45,21 @@ public class AdminController {
     @Autowired
     private CommentService commentService;
 
+    @Autowired
+    private CacheService cacheService;
+
+    @Autowired
+    private BloomFilterUtil bloomFilterUtil;
+
+    @Autowired
+    private MailUtil mailUtil;
+
+    @Autowired
+    private MailOutboxDispatcher mailOutboxDispatcher;
+
+    @Autowired
+    private CommonQuery commonQuery;
+
     @Autowired
     private TreeHoleMapper treeHoleMapper;
 
@@ -106,6 +124,36 @@ public class AdminController {
         Tio.removeUser(tioWebsocketStarter.getServerTioConfig(), String.valueOf(userId), "remove user");
     }
 
+    /**
+     * 本地缓存统计（按键前缀）
+     */
+    @GetMapping("/cache/stats")
+    @RequirePermission(PermissionCode.SUPER_ADMIN)
+    public PoetryResult<Map<String, Map<String, Object>>> getCacheStats() {
+        return PoetryResult.success(PoetryCache.stats());
+    }
+
+    /**
+     * 布隆过滤器统计（按业务模块）
+     */
+    @GetMapping("/cache/bloom")
+    @RequirePermission(PermissionCode.SUPER_ADMIN)
+    public PoetryResult<Map<String, Map<String, Object>>> getBloomFilterStats() {
+        return PoetryResult.success(bloomFilterUtil.stats());
+    }
+
+    /**
+     * 邮件发送统计（SMTP 连接池和发件箱）
+     */
+    @GetMapping("/mail/stats")
+    @RequirePermission(PermissionCode.SUPER_ADMIN)
+    public PoetryResult<Map<String, Map<String, Object>>> getMailStats() {
+        Map<String, Map<String, Object>> stats = new LinkedHashMap<>();
+        stats.put("transport", mailUtil.stats());
+        stats.put("outbox", mailOutboxDispatcher.stats());
+        return PoetryResult.success(stats);
+    }
+
     /**
      * 获取网站信息
      */
@@ -153,8 +201,14 @@ public class AdminController {
         LambdaUpdateChainWrapper<Article> updateChainWrapper = articleService.lambdaUpdate()
                 .eq(Article::getId, articleId)
                 .eq(Article::getUserId, PoetryUtil.getUserId());
+        Article old = null;
         if (viewStatus != null) {
             updateChainWrapper.set(Article::getViewStatus, viewStatus);
+            old = articleService.lambdaQuery()
+                    .select(Article::getId, Article::getSortId, Article::getLabelId, Article::getViewStatus)
+                    .eq(Article::getId, articleId)
+                    .eq(Article::getUserId, PoetryUtil.getUserId())
+                    .one();
         }
         if (commentStatus != null) {
             updateChainWrapper.set(Article::getCommentStatus, commentStatus);
@@ -162,7 +216,15 @@ public class AdminController {
         if (recommendStatus != null) {
             updateChainWrapper.set(Article::getRecommendStatus, recommendStatus);
         }
-        updateChainWrapper.update();
+        boolean updated = updateChainWrapper.update();
+        cacheService.delete(CommonConst.ARTICLE_CACHE + articleId);
+        if (updated && old != null) {
+            Article current = new Article();
+            current.setSortId(old.getSortId());
+            current.setLabelId(old.getLabelId());
+            current.setViewStatus(viewStatus);
+            commonQuery.applySortInfoChange(old, current);
+        }
         return PoetryResult.success();
     }
 
@@ -188,7 +250,9 @@ public class AdminController {
     @GetMapping("/comment/user/deleteComment")
     @RequirePermission(PermissionCode.USER_ADMIN)
     public PoetryResult userDeleteComment(@RequestParam("id") Integer id) {
-        Comment comment = commentService.lambdaQuery().select(Comment::getSource).eq(Comment::getId, id).one();
+        Comment comment = commentService.lambdaQuery()
+                .select(Comment::getSource, Comment::getParentCommentId, Comment::getFloorCommentId)
+                .eq(Comment::getId, id).one();
         if (comment == null) {
             return PoetryResult.success();
         }
@@ -199,7 +263,10 @@ public class AdminController {
         if (one == null || (PoetryUtil.getUserId().intValue() != one.getUserId().intValue())) {
             return PoetryResult.fail("权限不足！");
         }
-        commentService.removeById(id);
+        if (commentService.removeById(id)) {
+            commonQuery.incrementCommentCount(comment.getSource(), -1);
+            commentService.evictCommentPages(comment);
+        }
         return PoetryResult.success();
     }
 
@@ -209,7 +276,13 @@ public class AdminController {
     @GetMapping("/comment/boss/deleteComment")
     @RequirePermission(PermissionCode.SUPER_ADMIN)
     public PoetryResult bossDeleteComment(@RequestParam("id") Integer id) {
-        commentService.removeById(id);
+        Comment comment = commentService.lambdaQuery()
+                .select(Comment::getSource, Comment::getParentCommentId, Comment::getFloorCommentId)
+                .eq(Comment::getId, id).one();
+        if (comment != null && commentService.removeById(id)) {
+            commonQuery.incrementCommentCount(comment.getSource(), -1);
+            commentService.evictCommentPages(comment);
+        }
         return PoetryResult.success();
     }
 
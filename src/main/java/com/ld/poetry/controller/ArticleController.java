@@ -74,6 +74,15 @@ public class ArticleController {
         return articleService.listArticle(baseRequestVO);
     }
 
+    /**
+     * 搜索文章（标题、关键词、正文），按相关度排序
+     */
+    @PostMapping("/searchArticle")
+    @RequirePermission(PermissionCode.PUBLIC)
+    public PoetryResult<Page> searchArticle(@RequestBody BaseRequestVO baseRequestVO) {
+        return articleService.searchArticle(baseRequestVO);
+    }
+
     /**
      * 查询文章
      * <p>
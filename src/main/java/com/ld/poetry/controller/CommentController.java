@@ -9,9 +9,7 @@ import com.ld.poetry.annotation.RequirePermission;
 import com.ld.poetry.enums.PermissionCode;
 import com.ld.poetry.config.PoetryResult;
 import com.ld.poetry.service.CommentService;
-import com.ld.poetry.utils.CommonConst;
 import com.ld.poetry.utils.CommonQuery;
-import com.ld.poetry.utils.PoetryCache;
 import com.ld.poetry.utils.PoetryUtil;
 import com.ld.poetry.vo.BaseRequestVO;
 import com.ld.poetry.vo.CommentVO;
@@ -43,7 +41,6 @@ public class CommentController {
     @PostMapping("/saveComment")
     @RequirePermission(PermissionCode.FILE_UPLOAD_TOKEN)
     public PoetryResult saveComment(@Validated @RequestBody CommentVO commentVO) {
-        PoetryCache.remove(CommonConst.COMMENT_COUNT_CACHE + commentVO.getSource().toString());
         return commentService.saveComment(commentVO);
     }
 
@@ -4,12 +4,16 @@ import com.ld.poetry.config.PoetryResult;
 import com.ld.poetry.dao.TreeHoleMapper;import com.ld.poetry.dao.WebInfoMapper;
 import com.ld.poetry.im.websocket.TioWebsocketStarter;
 import com.ld.poetry.service.ArticleService;
+import com.ld.poetry.service.CacheService;
 import com.ld.poetry.service.CommentService;
 import com.ld.poetry.service.UserService;
 import org.jsoup.Jsoup;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletResponse;
+import java.util.Map;
+
 @RestController
 @RequestMapping("/common")
 public class CommonController {
@@ -32,6 +36,21 @@ public class CommonController {
     @Autowired
     private TioWebsocketStarter tioWebsocketStarter;
 
+    @Autowired
+    private CacheService cacheService;
+
+    /**
+     * 缓存预热状态，预热未结束时返回 503，可作为负载均衡的就绪探针
+     */
+    @GetMapping("/cacheStatus")
+    public PoetryResult<Map<String, Object>> cacheStatus(HttpServletResponse response) {
+        Map<String, Object> status = cacheService.getWarmUpStatus();
+        if (!Boolean.TRUE.equals(status.get("ready"))) {
+            response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        }
+        return PoetryResult.success(status);
+    }
+
     @GetMapping("/gethtml")
     public Object listBossTreeHole(@RequestParam("url") String url) {
         try {
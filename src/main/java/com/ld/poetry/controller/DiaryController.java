@@ -74,6 +74,14 @@ public class DiaryController {
         return diaryService.listArticle(baseRequestVO);
     }
 
+    /**
+     * 搜索日记（标题、关键词、正文），按相关度排序
+     */
+    @PostMapping("/searchArticle")
+    public PoetryResult<Page> searchArticle(@RequestBody BaseRequestVO baseRequestVO) {
+        return diaryService.searchArticle(baseRequestVO);
+    }
+
     /**
      * 查询文章
      * <p>
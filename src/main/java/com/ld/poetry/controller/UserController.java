@@ -11,9 +11,9 @@ import com.ld.poetry.auth.SimpleAuthHelper;
 import com.ld.poetry.entity.User;
 import com.ld.poetry.enums.PermissionCode;
 import com.ld.poetry.config.PoetryResult;
+import com.ld.poetry.service.CacheService;
 import com.ld.poetry.service.UserService;
 import com.ld.poetry.utils.CommonConst;
-import com.ld.poetry.utils.PoetryCache;
 import com.ld.poetry.utils.PoetryUtil;
 import com.ld.poetry.vo.UserVO;
 
@@ -37,6 +37,9 @@ public class UserController {
     @Autowired
     private SimpleAuthHelper simpleAuthHelper;
 
+    @Autowired
+    private CacheService cacheService;
+
 
     /**
      * 用户名/密码注册
@@ -129,7 +132,7 @@ public class UserController {
     @PostMapping("/updateUserInfo")
     @RequirePermission(PermissionCode.LOGIN_REQUIRED)
     public PoetryResult<UserVO> updateUserInfo(@RequestBody UserVO user) {
-        PoetryCache.remove(CommonConst.USER_CACHE + PoetryUtil.getUserId().toString());
+        cacheService.delete(CommonConst.USER_CACHE + PoetryUtil.getUserId().toString());
         return userService.updateUserInfo(user);
     }
 
@@ -167,7 +170,7 @@ public class UserController {
     @PostMapping("/updateSecretInfo")
     @RequirePermission(PermissionCode.LOGIN_REQUIRED)
     public PoetryResult<UserVO> updateSecretInfo(@RequestParam("place") String place, @RequestParam("flag") Integer flag, @RequestParam(value = "code", required = false) String code, @RequestParam("password") String password) {
-        PoetryCache.remove(CommonConst.USER_CACHE + PoetryUtil.getUserId().toString());
+        cacheService.delete(CommonConst.USER_CACHE + PoetryUtil.getUserId().toString());
         return userService.updateSecretInfo(place, flag, code, password);
     }
 
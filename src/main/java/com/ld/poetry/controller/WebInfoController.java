@@ -62,6 +62,9 @@ public class WebInfoController {
     @Autowired
     private CommonQuery commonQuery;
 
+    @Autowired
+    private CountCacheUtil countCacheUtil;
+
 
     /**
      * 更新网站信息
@@ -105,7 +108,7 @@ public class WebInfoController {
     @GetMapping("/getSortInfo")
     @RequirePermission(PermissionCode.PUBLIC)
     public PoetryResult<List<Sort>> getSortInfo() {
-        List<Sort> sortInfo = (List<Sort>) PoetryCache.get(CommonConst.SORT_INFO);
+        List<Sort> sortInfo = commonQuery.getCachedSortInfo();
         if (sortInfo != null) {
             return PoetryResult.success(sortInfo);
         }
@@ -245,7 +248,7 @@ public class WebInfoController {
     @RequirePermission(PermissionCode.PUBLIC)
     public PoetryResult<List<TreeHole>> listTreeHole() {
         List<TreeHole> treeHoles;
-        Integer count = new LambdaQueryChainWrapper<>(treeHoleMapper).count();
+        int count = (int) countCacheUtil.count("tree_hole", "listTreeHole", () -> new LambdaQueryChainWrapper<>(treeHoleMapper).count());
         if (count > CommonConst.TREE_HOLE_COUNT) {
             int i = new Random().nextInt(count + 1 - CommonConst.TREE_HOLE_COUNT);
             treeHoles = treeHoleMapper.queryAllByLimit(i, CommonConst.TREE_HOLE_COUNT);
@@ -278,10 +281,7 @@ public class WebInfoController {
         }
 
         sortMapper.insert(sort);
-        List<Sort> sortInfo = commonQuery.getSortInfo();
-        if (!CollectionUtils.isEmpty(sortInfo)) {
-            PoetryCache.put(CommonConst.SORT_INFO, sortInfo);
-        }
+        commonQuery.refreshSortInfo();
         return PoetryResult.success();
     }
 
@@ -293,10 +293,7 @@ public class WebInfoController {
     @RequirePermission(PermissionCode.SUPER_ADMIN)
     public PoetryResult deleteSort(@RequestParam("id") Integer id) {
         sortMapper.deleteById(id);
-        List<Sort> sortInfo = commonQuery.getSortInfo();
-        if (!CollectionUtils.isEmpty(sortInfo)) {
-            PoetryCache.put(CommonConst.SORT_INFO, sortInfo);
-        }
+        commonQuery.refreshSortInfo();
         return PoetryResult.success();
     }
 
@@ -308,10 +305,7 @@ public class WebInfoController {
     @RequirePermission(PermissionCode.SUPER_ADMIN)
     public PoetryResult updateSort(@RequestBody Sort sort) {
         sortMapper.updateById(sort);
-        List<Sort> sortInfo = commonQuery.getSortInfo();
-        if (!CollectionUtils.isEmpty(sortInfo)) {
-            PoetryCache.put(CommonConst.SORT_INFO, sortInfo);
-        }
+        commonQuery.refreshSortInfo();
         return PoetryResult.success();
     }
 
@@ -336,10 +330,7 @@ public class WebInfoController {
             return PoetryResult.fail("标签名称和标签描述和分类Id不能为空！");
         }
         labelMapper.insert(label);
-        List<Sort> sortInfo = commonQuery.getSortInfo();
-        if (!CollectionUtils.isEmpty(sortInfo)) {
-            PoetryCache.put(CommonConst.SORT_INFO, sortInfo);
-        }
+        commonQuery.refreshSortInfo();
         return PoetryResult.success();
     }
 
@@ -351,10 +342,7 @@ public class WebInfoController {
     @RequirePermission(PermissionCode.SUPER_ADMIN)
     public PoetryResult deleteLabel(@RequestParam("id") Integer id) {
         labelMapper.deleteById(id);
-        List<Sort> sortInfo = commonQuery.getSortInfo();
-        if (!CollectionUtils.isEmpty(sortInfo)) {
-            PoetryCache.put(CommonConst.SORT_INFO, sortInfo);
-        }
+        commonQuery.refreshSortInfo();
         return PoetryResult.success();
     }
 
@@ -366,10 +354,7 @@ public class WebInfoController {
     @RequirePermission(PermissionCode.SUPER_ADMIN)
     public PoetryResult updateLabel(@RequestBody Label label) {
         labelMapper.updateById(label);
-        List<Sort> sortInfo = commonQuery.getSortInfo();
-        if (!CollectionUtils.isEmpty(sortInfo)) {
-            PoetryCache.put(CommonConst.SORT_INFO, sortInfo);
-        }
+        commonQuery.refreshSortInfo();
         return PoetryResult.success();
     }
 
@@ -1,11 +1,16 @@
 package com.ld.poetry.dao;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.baomidou.mybatisplus.core.metadata.IPage;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.ld.poetry.entity.Article;
 
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
 import org.apache.ibatis.annotations.Update;
 
+import java.util.Map;
+
 /**
  * <p>
  * 文章表 Mapper 接口
@@ -16,6 +21,34 @@ import org.apache.ibatis.annotations.Update;
  */
 public interface ArticleMapper extends BaseMapper<Article> {
 
-    @Update("update article set view_count=view_count+1 where id=#{id}")
-    int updateViewCount(@Param("id") Integer id);
+    /**
+     * 批量累加浏览量，由 ViewCountBuffer 定时写回
+     *
+     * @param deltas ID -> 增量
+     */
+    @Update("<script>update article set view_count = view_count + case id " +
+            "<foreach collection='deltas' index='id' item='delta'>when #{id} then #{delta} </foreach>" +
+            "end where id in <foreach collection='deltas' index='id' open='(' separator=',' close=')'>#{id}</foreach></script>")
+    int addViewCounts(@Param("deltas") Map<Integer, Long> deltas);
+
+    /**
+     * 全文检索公开且没有密码的文章，按相关度排序；摘要由调用方去掉隐藏内容后截取
+     */
+    @Select("select id, user_id, sort_id, label_id, article_cover, article_title, keywords, view_count, like_count, comment_status, create_time, " +
+            "article_preview, article_content " +
+            "from article where deleted = 0 and view_status = 1 and (password is null or password = '') " +
+            "and match(article_title, keywords, article_content) against(#{keywords} in natural language mode) " +
+            "order by match(article_title, keywords, article_content) against(#{keywords} in natural language mode) desc, id desc")
+    IPage<Article> searchArticle(Page<Article> page, @Param("keywords") String keywords);
+
+    /**
+     * 没有全文索引或关键词短于分词长度时使用，按创建时间倒序；过滤条件同上
+     */
+    @Select("select id, user_id, sort_id, label_id, article_cover, article_title, keywords, view_count, like_count, comment_status, create_time, " +
+            "article_preview, article_content " +
+            "from article where deleted = 0 and view_status = 1 and (password is null or password = '') " +
+            "and (article_title like concat('%', #{keywords}, '%') or keywords like concat('%', #{keywords}, '%') " +
+            "or article_content like concat('%', #{keywords}, '%')) " +
+            "order by create_time desc, id desc")
+    IPage<Article> searchArticleByLike(Page<Article> page, @Param("keywords") String keywords);
 }
@@ -2,6 +2,10 @@ package com.ld.poetry.dao;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.ld.poetry.entity.Comment;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.Collection;
+import java.util.List;
 
 /**
  * <p>
@@ -13,4 +17,10 @@ import com.ld.poetry.entity.Comment;
  */
 public interface CommentMapper extends BaseMapper<Comment> {
 
+    /**
+     * 一次查询各楼层按时间正序的前 limit 条楼中楼
+     */
+    List<Comment> listFloorChildren(@Param("source") Integer source,
+                                    @Param("floorCommentIds") Collection<Integer> floorCommentIds,
+                                    @Param("limit") int limit);
 }
@@ -0,0 +1,13 @@
+package com.ld.poetry.dao;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.ld.poetry.entity.MailOutbox;
+
+/**
+ * <p>
+ * 邮件发件箱 Mapper 接口
+ * </p>
+ */
+public interface MailOutboxMapper extends BaseMapper<MailOutbox> {
+
+}
@@ -2,6 +2,8 @@ package com.ld.poetry.dao;
 
 import com.ld.poetry.entity.UserArticleAuth;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Options;
 
 /**
  * <p>
@@ -13,4 +15,18 @@ import com.baomidou.mybatisplus.core.mapper.BaseMapper;
  */
 public interface UserArticleAuthMapper extends BaseMapper<UserArticleAuth> {
 
+    /**
+     * 按 (user_id, article_id) 插入或更新，为 null 的权限字段不修改
+     * <p>
+     * 依赖 (user_id, article_id) 唯一索引，并发授权不会产生重复记录；
+     * 更新已有记录时通过 last_insert_id(id) 同样把记录ID回填到参数的 id 上
+     */
+    @Options(useGeneratedKeys = true, keyProperty = "id", keyColumn = "id")
+    @Insert("insert into user_article_auth (user_id, article_id, vip1, pay, reply) " +
+            "values (#{userId}, #{articleId}, ifnull(#{vip1,jdbcType=INTEGER}, 0), " +
+            "ifnull(#{pay,jdbcType=INTEGER}, 0), ifnull(#{reply,jdbcType=INTEGER}, 0)) " +
+            "on duplicate key update vip1 = ifnull(#{vip1,jdbcType=INTEGER}, vip1), " +
+            "pay = ifnull(#{pay,jdbcType=INTEGER}, pay), reply = ifnull(#{reply,jdbcType=INTEGER}, reply), " +
+            "id = last_insert_id(id)")
+    int upsert(UserArticleAuth userArticleAuth);
 }
@@ -0,0 +1,120 @@
+package com.ld.poetry.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableField;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * <p>
+ * 邮件发件箱：评论、IM 通知先落库，由 MailOutboxDispatcher 异步渲染发送
+ * </p>
+ */
+@Data
+@EqualsAndHashCode(callSuper = false)
+@TableName("mail_outbox")
+public class MailOutbox implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 通知类型
+     */
+    public static final int TYPE_COMMENT = 1;
+    public static final int TYPE_IM = 2;
+
+    /**
+     * 状态
+     */
+    public static final int STATUS_PENDING = 0;
+    public static final int STATUS_SENDING = 1;
+    public static final int STATUS_SENT = 2;
+    public static final int STATUS_SKIPPED = 3;
+    public static final int STATUS_FAILED = 4;
+
+    @TableId(value = "id", type = IdType.AUTO)
+    private Long id;
+
+    /**
+     * 通知类型[1:评论，2:IM]
+     */
+    @TableField("mail_type")
+    private Integer mailType;
+
+    /**
+     * 收件用户ID，为空时发给站长
+     */
+    @TableField("to_user_id")
+    private Integer toUserId;
+
+    /**
+     * 被回复的评论ID，不是回复时为空
+     */
+    @TableField("to_comment_id")
+    private Integer toCommentId;
+
+    /**
+     * 发件用户ID，收件人是自己时不发送
+     */
+    @TableField("from_user_id")
+    private Integer fromUserId;
+
+    /**
+     * 发件用户名
+     */
+    @TableField("from_name")
+    private String fromName;
+
+    /**
+     * 文章标题，留言和 IM 为空
+     */
+    @TableField("source_title")
+    private String sourceTitle;
+
+    /**
+     * 评论或消息内容
+     */
+    @TableField("content")
+    private String content;
+
+    /**
+     * 状态[0:待发送，1:发送中，2:已发送，3:已跳过，4:失败]
+     */
+    @TableField("status")
+    private Integer status;
+
+    /**
+     * 已重试次数
+     */
+    @TableField("retry_count")
+    private Integer retryCount;
+
+    /**
+     * 下次发送时间
+     */
+    @TableField("next_send_time")
+    private LocalDateTime nextSendTime;
+
+    /**
+     * 最近一次失败原因
+     */
+    @TableField("last_error")
+    private String lastError;
+
+    /**
+     * 创建时间
+     */
+    @TableField("create_time")
+    private LocalDateTime createTime;
+
+    /**
+     * 最终修改时间
+     */
+    @TableField("update_time")
+    private LocalDateTime updateTime;
+}
@@ -22,6 +22,8 @@ import org.springframework.web.bind.annotation.RestController;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 /**
  * <p>
@@ -85,8 +87,9 @@ public class ImChatUserFriendController {
 
         List<ImChatUserFriend> userFriends = wrapper.orderByDesc(ImChatUserFriend::getCreateTime).list();
         List<UserFriendVO> userFriendVOS = new ArrayList<>(userFriends.size());
+        Map<Integer, User> friends = commonQuery.getUsers(userFriends.stream().map(ImChatUserFriend::getFriendId).collect(Collectors.toSet()));
         userFriends.forEach(userFriend -> {
-            User friend = commonQuery.getUser(userFriend.getFriendId());
+            User friend = friends.get(userFriend.getFriendId());
             if (friend != null) {
                 UserFriendVO userFriendVO = new UserFriendVO();
                 userFriendVO.setId(userFriend.getId());
@@ -27,6 +27,7 @@ import org.springframework.web.bind.annotation.RestController;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 /**
@@ -92,6 +93,7 @@ public class ImChatUserGroupMessageController {
         if (CollectionUtils.isEmpty(records)) {
             return PoetryResult.success(result);
         } else {
+            Map<Integer, User> users = commonQuery.getUsers(records.stream().map(ImChatUserGroupMessage::getFromId).collect(Collectors.toSet()));
             List<GroupMessageVO> collect = records.stream().map(message -> {
                 GroupMessageVO groupMessageVO = new GroupMessageVO();
                 groupMessageVO.setContent(message.getContent());
@@ -101,7 +103,7 @@ public class ImChatUserGroupMessageController {
                 groupMessageVO.setGroupId(message.getGroupId());
                 groupMessageVO.setCreateTime(message.getCreateTime());
                 Integer messageUserId = message.getFromId();
-                User user = commonQuery.getUser(messageUserId);
+                User user = users.get(messageUserId);
                 if (user != null) {
                     groupMessageVO.setUsername(user.getUsername());
                     groupMessageVO.setAvatar(user.getAvatar());
@@ -48,7 +48,7 @@ public class MessageCache {
         try {
             mailSendUtil.sendImMail(message);
         } catch (Exception e) {
-            log.error("发送IM邮件失败：", e);
+            log.error("写入IM邮件发件箱失败：", e);
         }
     }
 
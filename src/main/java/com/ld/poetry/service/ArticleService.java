@@ -25,6 +25,8 @@ public interface ArticleService extends IService<Article> {
 
     PoetryResult<Page> listArticle(BaseRequestVO baseRequestVO);
 
+    PoetryResult<Page> searchArticle(BaseRequestVO baseRequestVO);
+
     PoetryResult<ArticleVO> getArticleById(Integer id, Boolean flag, String password);
 
     PoetryResult<Page> listAdminArticle(BaseRequestVO baseRequestVO, Boolean isBoss);
@@ -2,6 +2,10 @@ package com.ld.poetry.service;
 
 import com.ld.poetry.utils.RedisCacheUtil;
 
+import java.util.Collection;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
 /**
  * 分布式缓存服务接口
  * 
@@ -35,21 +39,71 @@ public interface CacheService {
      */
     <T> T get(String key, Class<T> clazz);
 
+    /**
+     * 获取缓存数据，未命中时回源；热点数据在过期前异步刷新，读取方不等待回源
+     */
+    <T> T getOrLoad(String key, RedisCacheUtil.DataLoader<T> loader, long expireSeconds);
+
+    /**
+     * 同上，回源前先用布隆过滤器判断数据是否存在，用于按ID查询文章、用户等
+     *
+     * @param moduleName 业务模块名称，见 {@link com.ld.poetry.utils.BloomFilterUtil}
+     */
+    <T> T getOrLoad(String key, String moduleName, Integer id, RedisCacheUtil.DataLoader<T> loader, long expireSeconds);
+
+    /**
+     * 批量获取缓存数据，未命中的 key 交给 loader 一次性回源
+     *
+     * @return key -> 数据，不存在的数据不在结果中
+     */
+    <T> Map<String, T> getAll(Collection<String> keys, RedisCacheUtil.BulkLoader<T> loader, long expireSeconds);
+
+    /**
+     * 立即回源并写入缓存，写入格式与 getOrLoad 相同，之后仍可提前刷新
+     *
+     * @return 回源结果，数据不存在时删除缓存并返回 null
+     */
+    <T> T reload(String key, RedisCacheUtil.DataLoader<T> loader, long expireSeconds);
+
     /**
      * 设置缓存数据
      */
     void set(String key, Object value, long expireSeconds);
 
+    /**
+     * 基于 Redis 中的当前值原子地修改缓存，不延长过期时间，缓存不存在时不写入
+     * <p>
+     * 发生并发冲突时 updater 会被重新调用，见 {@link RedisCacheUtil#update}
+     *
+     * @return 写入的新值，未写入时返回 null
+     */
+    <T> T update(String key, UnaryOperator<T> updater);
+
+    /**
+     * 设置缓存数据并打上标签（如 article:1、user:1）
+     */
+    void setWithTags(String key, Object value, long expireSeconds, String... tags);
+
     /**
      * 删除缓存
      */
     void delete(String key);
 
     /**
-     * 缓存预热（加载热点数据）
+     * 删除打了该标签的所有缓存
+     */
+    void invalidateTag(String tag);
+
+    /**
+     * 缓存预热（加载热点数据），异步执行，不阻塞调用方
      */
     void warmUp();
 
+    /**
+     * 缓存预热进度，ready 为 true 表示预热已结束
+     */
+    Map<String, Object> getWarmUpStatus();
+
     /**
      * 刷新缓存
      */
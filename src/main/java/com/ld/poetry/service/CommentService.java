@@ -25,4 +25,11 @@ public interface CommentService extends IService<Comment> {
     PoetryResult<BaseRequestVO> listComment(BaseRequestVO baseRequestVO);
 
     PoetryResult<Page> listAdminComment(BaseRequestVO baseRequestVO, Boolean isBoss);
+
+    /**
+     * 删除评论后失效所在列表的评论页缓存
+     *
+     * @param comment 至少包含 source、parentCommentId、floorCommentId
+     */
+    void evictCommentPages(Comment comment);
 }
@@ -24,6 +24,8 @@ public interface DiaryService extends IService<Diary> {
 
     PoetryResult<Page> listArticle(BaseRequestVO baseRequestVO);
 
+    PoetryResult<Page> searchArticle(BaseRequestVO baseRequestVO);
+
     PoetryResult<ArticleVO> getArticleById(Integer id, Boolean flag, String password);
 
     PoetryResult<Page> listAdminArticle(BaseRequestVO baseRequestVO, Boolean isBoss);
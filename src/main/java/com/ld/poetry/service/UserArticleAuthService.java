@@ -13,7 +13,12 @@ public interface UserArticleAuthService extends IService<UserArticleAuth> {
     UserArticleAuth findByUserAndArticle(Integer userId, Integer articleId);
 
     /**
-     * 创建或更新
+     * 用户对文章的权限位（见 {@link com.ld.poetry.utils.ArticlePermissionIndex}），走缓存
+     */
+    int getPermissionMask(Integer userId, Integer articleId);
+
+    /**
+     * 创建或更新，为 null 的权限字段保持原值
      * @param userArticleAuth 传入包含 userId, articleId, vip1, pay, reply 等信息
      * @return 创建/更新后的实体
      */
@@ -11,22 +11,27 @@ import com.ld.poetry.entity.Article;
 import com.ld.poetry.entity.Label;
 import com.ld.poetry.entity.Sort;
 import com.ld.poetry.entity.User;
-import com.ld.poetry.entity.UserArticleAuth;
 import com.ld.poetry.service.ArticleService;
+import com.ld.poetry.service.CacheService;
 import com.ld.poetry.service.UserArticleAuthService;
 import com.ld.poetry.utils.*;
 import com.ld.poetry.vo.ArticleVO;
 import com.ld.poetry.vo.BaseRequestVO;
+import lombok.extern.slf4j.Slf4j;
 
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.BadSqlGrammarException;
 import org.springframework.stereotype.Service;
 import org.springframework.util.CollectionUtils;
 import org.springframework.util.StringUtils;
 
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 
@@ -38,6 +43,7 @@ import java.util.stream.Collectors;
  * @author sara
  * @since 2021-08-13
  */
+@Slf4j
 @Service
 public class ArticleServiceImpl extends ServiceImpl<ArticleMapper, Article> implements ArticleService {
     @Autowired
@@ -52,6 +58,12 @@ public class ArticleServiceImpl extends ServiceImpl<ArticleMapper, Article> impl
     @Autowired
     private CommonQuery commonQuery;
 
+    @Autowired
+    private CacheService cacheService;
+
+    @Autowired
+    private ViewCountBuffer viewCountBuffer;
+
     @Override
     public PoetryResult saveArticle(ArticleVO articleVO) {
         if (articleVO.getViewStatus() != null && !articleVO.getViewStatus() && !StringUtils.hasText(articleVO.getPassword())) {
@@ -69,27 +81,27 @@ public class ArticleServiceImpl extends ServiceImpl<ArticleMapper, Article> impl
         article.setRecommendStatus(articleVO.getRecommendStatus());
         article.setArticleTitle(articleVO.getArticleTitle());
         article.setArticleContent(articleVO.getArticleContent());
+        article.setArticlePreview(buildArticlePreview(articleVO.getArticleContent()));
         article.setSortId(articleVO.getSortId());
         article.setLabelId(articleVO.getLabelId());
         article.setUserId(PoetryUtil.getUserId());
         save(article);
 
-        List<Sort> sortInfo = commonQuery.getSortInfo();
-        if (!CollectionUtils.isEmpty(sortInfo)) {
-            PoetryCache.put(CommonConst.SORT_INFO, sortInfo);
-        }
+        commonQuery.applySortInfoChange(null, article);
         return PoetryResult.success();
     }
 
     @Override
     public PoetryResult deleteArticle(Integer id) {
         Integer userId = PoetryUtil.getUserId();
-        lambdaUpdate().eq(Article::getId, id)
+        Article old = getSortInfoState(id, userId);
+        boolean removed = lambdaUpdate().eq(Article::getId, id)
                 .eq(Article::getUserId, userId)
                 .remove();
-        List<Sort> sortInfo = commonQuery.getSortInfo();
-        if (!CollectionUtils.isEmpty(sortInfo)) {
-            PoetryCache.put(CommonConst.SORT_INFO, sortInfo);
+        cacheService.delete(CommonConst.ARTICLE_CACHE + id);
+        cacheService.invalidateTag(CommonConst.ARTICLE_TAG + id);
+        if (removed) {
+            commonQuery.applySortInfoChange(old, null);
         }
         return PoetryResult.success();
     }
@@ -101,6 +113,7 @@ public class ArticleServiceImpl extends ServiceImpl<ArticleMapper, Article> impl
         }
 
         Integer userId = PoetryUtil.getUserId();
+        Article old = getSortInfoState(articleVO.getId(), userId);
         LambdaUpdateChainWrapper<Article> updateChainWrapper = lambdaUpdate()
                 .eq(Article::getId, articleVO.getId())
                 .eq(Article::getUserId, userId)
@@ -110,6 +123,7 @@ public class ArticleServiceImpl extends ServiceImpl<ArticleMapper, Article> impl
                 .set(Article::getArticleTitle, articleVO.getArticleTitle())
                 .set(Article::getUpdateBy, PoetryUtil.getUsername())
                 .set(Article::getArticleContent, articleVO.getArticleContent())
+                .set(Article::getArticlePreview, buildArticlePreview(articleVO.getArticleContent()))
                 .set(Article::getKeywords, articleVO.getKeywords());
 
         if (StringUtils.hasText(articleVO.getArticleCover())) {
@@ -129,23 +143,38 @@ public class ArticleServiceImpl extends ServiceImpl<ArticleMapper, Article> impl
         if (articleVO.getViewStatus() != null) {
             updateChainWrapper.set(Article::getViewStatus, articleVO.getViewStatus());
         }
-        updateChainWrapper.update();
-        List<Sort> sortInfo = commonQuery.getSortInfo();
-        if (!CollectionUtils.isEmpty(sortInfo)) {
-            PoetryCache.put(CommonConst.SORT_INFO, sortInfo);
+        boolean updated = updateChainWrapper.update();
+        cacheService.delete(CommonConst.ARTICLE_CACHE + articleVO.getId());
+        cacheService.invalidateTag(CommonConst.ARTICLE_TAG + articleVO.getId());
+        if (updated && old != null) {
+            Article current = new Article();
+            current.setSortId(articleVO.getSortId());
+            current.setLabelId(articleVO.getLabelId());
+            current.setViewStatus(articleVO.getViewStatus() != null ? articleVO.getViewStatus() : old.getViewStatus());
+            commonQuery.applySortInfoChange(old, current);
         }
         return PoetryResult.success();
     }
 
+    /**
+     * 查询文章当前的分类、标签和可见状态，用于增量维护分类标签数量
+     */
+    private Article getSortInfoState(Integer id, Integer userId) {
+        return lambdaQuery().select(Article::getId, Article::getSortId, Article::getLabelId, Article::getViewStatus)
+                .eq(Article::getId, id)
+                .eq(Article::getUserId, userId)
+                .one();
+    }
+
     @Override
     public PoetryResult<Page> listArticle(BaseRequestVO baseRequestVO) {
         LambdaQueryChainWrapper<Article> lambdaQuery = lambdaQuery();
         lambdaQuery.eq(Article::getViewStatus, PoetryEnum.STATUS_ENABLE.getCode());
-        // .select(Article.class, a -> ((!a.getColumn().equals("article_content"))));
+        // 列表只展示摘要，不读取正文
+        lambdaQuery.select(Article.class, a -> !a.getColumn().equals("article_content"));
         if (StringUtils.hasText(baseRequestVO.getKeywords())) {
-            lambdaQuery
-            .like(Article::getArticleTitle, baseRequestVO.getKeywords())
-            .or().like(Article::getKeywords, baseRequestVO.getKeywords());
+            lambdaQuery.and(w -> w.like(Article::getArticleTitle, baseRequestVO.getKeywords())
+                    .or().like(Article::getKeywords, baseRequestVO.getKeywords()));
         }
         if (baseRequestVO.getRecommendStatus() != null && baseRequestVO.getRecommendStatus()) {
             lambdaQuery.eq(Article::getRecommendStatus, PoetryEnum.STATUS_ENABLE.getCode());
@@ -157,140 +186,146 @@ public class ArticleServiceImpl extends ServiceImpl<ArticleMapper, Article> impl
             lambdaQuery.eq(Article::getSortId, baseRequestVO.getSortId());
         }
 
-        lambdaQuery.orderByDesc(Article::getCreateTime).page((Page)baseRequestVO);
+        if (CursorPageUtil.isCursorMode(baseRequestVO)) {
+            CursorPageUtil.page(lambdaQuery, baseRequestVO, Article::getCreateTime, Article::getId, false);
+        } else {
+            lambdaQuery.orderByDesc(Article::getCreateTime).page((Page)baseRequestVO);
+        }
 
         List<Article> records = baseRequestVO.getRecords();
         if (!CollectionUtils.isEmpty(records)) {
+            Map<Integer, User> users = commonQuery.getUsers(records.stream().map(Article::getUserId).collect(Collectors.toSet()));
+            Map<Integer, Integer> commentCounts = commonQuery.getCommentCounts(getCommentEnabledIds(records));
+            Map<Integer, String> previews = getArticlePreviews(records);
             List<ArticleVO> collect = records.stream().map(article -> {
                 article.setPassword(null);
-                if (article.getArticleContent().length() > CommonConst.SUMMARY) {
-                    article.setArticleContent(article.getArticleContent().substring(0, CommonConst.SUMMARY).replace("`", "").replace("#", "").replace(">", ""));
-                }
-                ArticleVO articleVO = buildArticleVO(article, false);
+                // 前端从 articleContent 读取列表摘要
+                article.setArticleContent(previews.get(article.getId()));
+                ArticleVO articleVO = buildArticleVO(article, false, users.get(article.getUserId()), commentCounts.get(article.getId()));
                 return articleVO;
             }).collect(Collectors.toList());
             baseRequestVO.setRecords(collect);
         }
         return PoetryResult.success(baseRequestVO);
     }
-    private static final Pattern HIDE_CONTENT_PATTERN = Pattern.compile(
-        "(\\[hidecontent\\s+type=[\"']?(\\w+)[\"']?[^\\]]*\\])(.*?)(\\[/hidecontent\\])",
-        Pattern.DOTALL
-    );
+
     /**
-     * 如果未登录或文章ID为空时，统一将所有 [hidecontent type="xxx"]...[/hidecontent]
-     * 的内容清空，但保留开、闭标签。
-     * 可选：给标签加 isshow="false" 标记
+     * 全文索引是否可用，缺少索引时第一次查询失败后改用 LIKE 查询
      */
-    private String removeAllHiddenContent(String content) {
-        Matcher matcher = HIDE_CONTENT_PATTERN.matcher(content);
-        StringBuffer result = new StringBuffer();
-
-        while (matcher.find()) {
-            // group(1) = 原始开标签
-            // group(2) = 标签中的 type 值 (可以不用)
-            // group(3) = 中间内容
-            // group(4) = 闭标签
-
-            String openTag       = matcher.group(1); // [hidecontent type="xxx" ...]
-            String typeValue     = matcher.group(2); // 比如 "vip1"
-            String hiddenContent = matcher.group(3); // 中间要清空的部分
-            String closeTag      = matcher.group(4); // [/hidecontent]
-
-            // 这里要把中间内容移除，所以 finalContent = ""
-            String finalContent  = "";
-            String openTagWithAttr;
-            if (openTag.endsWith("]")) {
-                openTagWithAttr = openTag.substring(0, openTag.length() - 1)
-                        + " isshow=\"false\"]";
-            } else {
-                openTagWithAttr = openTag + " isshow=\"false\"]";
+    private volatile boolean fullTextSearch = true;
+
+    @Override
+    public PoetryResult<Page> searchArticle(BaseRequestVO baseRequestVO) {
+        if (!StringUtils.hasText(baseRequestVO.getKeywords())) {
+            return PoetryResult.fail("请输入搜索关键词！");
+        }
+        String keywords = baseRequestVO.getKeywords().trim();
+        if (keywords.length() > CommonConst.SEARCH_KEYWORDS_MAX_LENGTH) {
+            keywords = keywords.substring(0, CommonConst.SEARCH_KEYWORDS_MAX_LENGTH);
+        }
+
+        Page<Article> page = new Page<>(baseRequestVO.getCurrent(), baseRequestVO.getSize());
+        if (fullTextSearch && keywords.length() >= CommonConst.NGRAM_TOKEN_SIZE) {
+            try {
+                articleMapper.searchArticle(page, keywords);
+            } catch (BadSqlGrammarException e) {
+                fullTextSearch = false;
+                log.warn("文章全文索引不可用，改用 LIKE 查询", e);
+                articleMapper.searchArticleByLike(page, keywords);
             }
-            String replacement = openTagWithAttr + finalContent + closeTag;
-            matcher.appendReplacement(result, Matcher.quoteReplacement(replacement));
-        }
+        } else {
+            articleMapper.searchArticleByLike(page, keywords);
+        }
+
+        List<Article> records = page.getRecords();
+        baseRequestVO.setTotal(page.getTotal());
+        if (CollectionUtils.isEmpty(records)) {
+            baseRequestVO.setRecords(new ArrayList<>());
+            return PoetryResult.success(baseRequestVO);
+        }
+        Map<Integer, User> users = commonQuery.getUsers(records.stream().map(Article::getUserId).collect(Collectors.toSet()));
+        Map<Integer, Integer> commentCounts = commonQuery.getCommentCounts(getCommentEnabledIds(records));
+        Map<Integer, String> previews = getArticlePreviews(records);
+        String highlightKeywords = keywords;
+        List<ArticleVO> collect = records.stream().map(article -> {
+            String snippet = PoetryUtil.searchSnippet(article.getArticleContent(), highlightKeywords);
+            // 与文章列表一致，articleContent 只返回摘要
+            article.setArticleContent(previews.get(article.getId()));
+            ArticleVO articleVO = buildArticleVO(article, false, users.get(article.getUserId()), commentCounts.get(article.getId()));
+            articleVO.setHighlight(PoetryUtil.highlight(snippet, highlightKeywords));
+            return articleVO;
+        }).collect(Collectors.toList());
+        baseRequestVO.setRecords(collect);
+        return PoetryResult.success(baseRequestVO);
+    }
 
-        // 将剩余未匹配的部分拼接上
-        matcher.appendTail(result);
+    /**
+     * 隐藏内容的开标签
+     */
+    private static final String HIDE_CONTENT_TAG = "[hidecontent";
 
-        return result.toString();
-    }
-    private String processHiddenContent(String content, Integer userId, Integer articleId) {
-        // 如果用户/文章信息为空，则直接清理所有隐藏内容（但保留标签）
-        if (userId == null || articleId == null) {
-            return removeAllHiddenContent(content);
+    /**
+     * 阅读权限位：已登录、已评论、VIP、已付费
+     */
+    private static final int PERMISSION_LOGGED = 1;
+    private static final int PERMISSION_REPLY = ArticlePermissionIndex.REPLY;
+    private static final int PERMISSION_VIP1 = ArticlePermissionIndex.VIP1;
+    private static final int PERMISSION_PAY = ArticlePermissionIndex.PAY;
+
+    /**
+     * 当前用户对文章的阅读权限位，未登录为 0
+     */
+    private int getPermissionMask(Integer userId, Integer articleId) {
+        if (userId == null) {
+            return 0;
         }
-    
-        // 示例：查询当前用户是否拥有各项权限
-        UserArticleAuth auth = userArticleAuthService.findByUserAndArticle(userId, articleId);
-        int vip1  = (auth != null && auth.getVip1()  != null) ? auth.getVip1()  : 0;
-        int pay   = (auth != null && auth.getPay()   != null) ? auth.getPay()   : 0;
-        int reply = (auth != null && auth.getReply() != null) ? auth.getReply() : 0;
-    
-        Matcher matcher = HIDE_CONTENT_PATTERN.matcher(content);
-        StringBuffer result = new StringBuffer();
-    
-        while (matcher.find()) {
-            // group(1) = 原始开标签, 例如 [hidecontent type="vip1" xxx...]
-            // group(2) = 具体的 type 值 (因为上面的正则里捕获了 (\\w+) )
-            // group(3) = 中间隐藏内容
-            // group(4) = 闭标签 [/hidecontent]
-            String openTag = matcher.group(1);
-            String type    = matcher.group(2).toLowerCase();
-            String hiddenContent = matcher.group(3);
-            String closeTag = matcher.group(4);
-    
-            // 判断权限
-            boolean hasPermission;
+        return PERMISSION_LOGGED | userArticleAuthService.getPermissionMask(userId, articleId);
+    }
+
+    /**
+     * 处理 [hidecontent type="xxx"]...[/hidecontent]：有权限的保留内容，没有权限的清空内容，
+     * 开标签上追加 isshow="true|false" 供前端展示
+     *
+     * @param mask 阅读权限位，见 {@link #getPermissionMask(Integer, Integer)}
+     */
+    private String renderHiddenContent(String content, int mask) {
+        return HiddenContentRenderer.render(content, type -> {
             switch (type) {
                 case "logged":
-                    hasPermission = (userId != null);
-                    break;
+                    return (mask & PERMISSION_LOGGED) != 0;
                 case "reply":
-                    hasPermission = (reply == 1);
-                    break;
+                    return (mask & PERMISSION_REPLY) != 0;
                 case "vip1":
-                    hasPermission = (vip1 == 1);
-                    break;
+                    return (mask & PERMISSION_VIP1) != 0;
                 case "pay":
-                    hasPermission = (pay == 1);
-                    break;
+                    return (mask & PERMISSION_PAY) != 0;
                 default:
                     // 对于未知类型，直接当没权限处理
-                    hasPermission = false;
+                    return false;
             }
-    
-            // 根据权限决定 isshow 的值，以及是否保留隐藏内容
-            String isShowValue = hasPermission ? "true" : "false";
-            String finalContent = hasPermission ? hiddenContent : "";
-    
-            // 在开标签里额外加一个属性 isshow="true|false"
-            // 这里演示简单追加（如果项目中已有别的属性需要更精细处理）
-            // 以免出现形如 `[hidecontent type="vip1" issome="1"isshow="true"]` 的情况
-            // 可以在插入前先判断 openTag 是否带空格，必要时再加一个空格
-            // 下面是一个简易写法：
-            String openTagWithAttr;
-            if (openTag.endsWith("]")) {
-                // 去掉最后一个 `]`
-                openTagWithAttr = openTag.substring(0, openTag.length() - 1)
-                        + " isshow=\"" + isShowValue + "\"]";
-            } else {
-                // 理论上不会出现这种情况，除非开标签不规范
-                openTagWithAttr = openTag + " isshow=\"" + isShowValue + "\"]";
-            }
-    
-            // 重新组装：开标签(加了 isshow) + (保留或去掉内容) + 闭标签
-            String replacement = openTagWithAttr + finalContent + closeTag;
-    
-            // 把 replacement 填入结果中
-            matcher.appendReplacement(result, Matcher.quoteReplacement(replacement));
-        }
-        // 处理剩余没有匹配到的字符串
-        matcher.appendTail(result);
-    
-        return result.toString();
+        });
+    }
+
+    /**
+     * 按 (文章, 版本, 权限位) 缓存处理后的正文，同一篇文章同样权限的读者共用一份结果
+     * <p>
+     * 没有隐藏内容的文章所有人看到的都一样，不查询权限也不缓存。
+     */
+    private String getRenderedContent(Article article, Integer userId) {
+        String content = article.getArticleContent();
+        if (content == null || !content.contains(HIDE_CONTENT_TAG)) {
+            return content;
+        }
+        int mask = getPermissionMask(userId, article.getId());
+        long version = article.getUpdateTime() == null ? 0 : article.getUpdateTime().toEpochSecond(ZoneOffset.UTC);
+        String key = CommonConst.ARTICLE_RENDER_CACHE + article.getId() + "_" + version + "_" + mask;
+        String rendered = cacheService.get(key, String.class);
+        if (rendered == null) {
+            rendered = renderHiddenContent(content, mask);
+            cacheService.setWithTags(key, rendered, CommonConst.ARTICLE_EXPIRE, CommonConst.ARTICLE_TAG + article.getId());
+        }
+        return rendered;
     }
-    
 
     /**
      * 获取文章详情
@@ -299,14 +334,15 @@ public class ArticleServiceImpl extends ServiceImpl<ArticleMapper, Article> impl
      * @param password 用户输入的密码(如果文章加密)
      */
     public PoetryResult<ArticleVO> getArticleById(Integer id, Boolean flag, String password) {
-        // 1) 查找数据库中的 Article
-        LambdaQueryChainWrapper<Article> lambdaQuery = lambdaQuery();
-        lambdaQuery.eq(Article::getId, id);
-
-        Article article = lambdaQuery.one();
-        if (article == null) {
+        // 1) 查找 Article，热点文章临近过期时异步刷新缓存
+        Article cached = cacheService.getOrLoad(CommonConst.ARTICLE_CACHE + id, BloomFilterUtil.MODULE_ARTICLE, id,
+                () -> lambdaQuery().eq(Article::getId, id).one(), CommonConst.ARTICLE_EXPIRE);
+        if (cached == null) {
             return PoetryResult.fail("文章不存在");
         }
+        // 缓存中的对象会被多个请求共享，下面要改写密码和正文，先复制一份
+        Article article = new Article();
+        BeanUtils.copyProperties(cached, article);
         if (!article.getViewStatus()) {
             return PoetryResult.fail("该文章已关闭");
         }
@@ -330,24 +366,11 @@ public class ArticleServiceImpl extends ServiceImpl<ArticleMapper, Article> impl
             }
         }
 
-        // 4) 处理隐藏内容
-        String processedContent;
-        if (isAdmin) {
-            // 管理员：直接查看全部内容，无需隐藏
-            processedContent = article.getArticleContent();
-        } else {
-            // 非管理员
-            if (currentUserId == null) {
-                // 未登录时，移除所有隐藏内容，也可改为统一提示
-                processedContent = removeAllHiddenContent(article.getArticleContent());
-            } else {
-                // 已登录时，根据 user_article_auth 表判断权限
-                processedContent = processHiddenContent(article.getArticleContent(), currentUserId, article.getId());
-            }
-        }
+        // 4) 处理隐藏内容：管理员直接查看全部内容，其他人按 user_article_auth 表的权限处理
+        String processedContent = isAdmin ? article.getArticleContent() : getRenderedContent(article, currentUserId);
 
-        // 5) 更新浏览次数(若访问者不是作者本人)
-        articleMapper.updateViewCount(id);
+        // 5) 更新浏览次数，先累加在内存中，定时批量写回
+        viewCountBuffer.incrementArticle(id);
 
         // 6) 管理员不需要隐藏密码，普通用户将密码清空
         if (!isAdmin) {
@@ -357,7 +380,8 @@ public class ArticleServiceImpl extends ServiceImpl<ArticleMapper, Article> impl
         article.setArticleContent(processedContent);
 
         // 7) 构建 VO 返回
-        ArticleVO articleVO = buildArticleVO(article, false);
+        ArticleVO articleVO = buildArticleVO(article, false, commonQuery.getUser(article.getUserId()),
+                Boolean.TRUE.equals(article.getCommentStatus()) ? commonQuery.getCommentCount(article.getId()) : null);
         return PoetryResult.success(articleVO);
     }
 
@@ -389,13 +413,19 @@ public class ArticleServiceImpl extends ServiceImpl<ArticleMapper, Article> impl
             lambdaQuery.eq(Article::getSortId, baseRequestVO.getSortId());
         }
 
-        lambdaQuery.orderByDesc(Article::getCreateTime).page((Page)baseRequestVO);
+        if (CursorPageUtil.isCursorMode(baseRequestVO)) {
+            CursorPageUtil.page(lambdaQuery, baseRequestVO, Article::getCreateTime, Article::getId, false);
+        } else {
+            lambdaQuery.orderByDesc(Article::getCreateTime).page((Page)baseRequestVO);
+        }
 
         List<Article> records = baseRequestVO.getRecords();
         if (!CollectionUtils.isEmpty(records)) {
+            Map<Integer, User> users = commonQuery.getUsers(records.stream().map(Article::getUserId).collect(Collectors.toSet()));
+            Map<Integer, Integer> commentCounts = commonQuery.getCommentCounts(getCommentEnabledIds(records));
             List<ArticleVO> collect = records.stream().map(article -> {
                 article.setPassword(null);
-                ArticleVO articleVO = buildArticleVO(article, true);
+                ArticleVO articleVO = buildArticleVO(article, true, users.get(article.getUserId()), commentCounts.get(article.getId()));
                 return articleVO;
             }).collect(Collectors.toList());
             baseRequestVO.setRecords(collect);
@@ -416,28 +446,70 @@ public class ArticleServiceImpl extends ServiceImpl<ArticleMapper, Article> impl
         return PoetryResult.success(articleVO);
     }
 
-    private ArticleVO buildArticleVO(Article article, Boolean isAdmin) {
+    /**
+     * 列表摘要：正文前 SUMMARY 个字符，去掉 Markdown 的代码、标题和引用符号
+     */
+    private String buildArticlePreview(String content) {
+        if (content == null || content.length() <= CommonConst.SUMMARY) {
+            return content;
+        }
+        return content.substring(0, CommonConst.SUMMARY).replace("`", "").replace("#", "").replace(">", "");
+    }
+
+    /**
+     * 文章ID到摘要的映射；没有摘要的旧数据一次性补查正文生成
+     */
+    private Map<Integer, String> getArticlePreviews(List<Article> articles) {
+        Map<Integer, String> previews = new HashMap<>();
+        List<Integer> missing = new ArrayList<>();
+        articles.forEach(article -> {
+            if (article.getArticlePreview() != null) {
+                previews.put(article.getId(), article.getArticlePreview());
+            } else {
+                missing.add(article.getId());
+            }
+        });
+        if (!missing.isEmpty()) {
+            lambdaQuery().select(Article::getId, Article::getArticleContent).in(Article::getId, missing).list()
+                    .forEach(article -> previews.put(article.getId(), buildArticlePreview(article.getArticleContent())));
+        }
+        return previews;
+    }
+
+    /**
+     * 开启了评论的文章ID，用于批量查询评论数量
+     */
+    private Set<Integer> getCommentEnabledIds(List<Article> articles) {
+        return articles.stream().filter(article -> Boolean.TRUE.equals(article.getCommentStatus()))
+                .map(Article::getId).collect(Collectors.toSet());
+    }
+
+    /**
+     * @param user         文章作者，列表查询时由调用方批量获取后传入
+     * @param commentCount 评论数量，同上
+     */
+    private ArticleVO buildArticleVO(Article article, Boolean isAdmin, User user, Integer commentCount) {
         ArticleVO articleVO = new ArticleVO();
         BeanUtils.copyProperties(article, articleVO);
+        articleVO.setViewCount(viewCountBuffer.getArticleViewCount(articleVO.getId(), articleVO.getViewCount()));
         if (!isAdmin) {
             if (!StringUtils.hasText(articleVO.getArticleCover())) {
                 articleVO.setArticleCover(PoetryUtil.getRandomCover(articleVO.getId().toString()));
             }
         }
 
-        User user = commonQuery.getUser(articleVO.getUserId());
         if (user != null && StringUtils.hasText(user.getUsername())) {
             articleVO.setUsername(user.getUsername());
         } else if (!isAdmin) {
             articleVO.setUsername(PoetryUtil.getRandomName(articleVO.getUserId().toString()));
         }
         if (articleVO.getCommentStatus()) {
-            articleVO.setCommentCount(commonQuery.getCommentCount(articleVO.getId()));
+            articleVO.setCommentCount(commentCount != null ? commentCount : 0);
         } else {
             articleVO.setCommentCount(0);
         }
 
-        List<Sort> sortInfo = (List<Sort>) PoetryCache.get(CommonConst.SORT_INFO);
+        List<Sort> sortInfo = commonQuery.getCachedSortInfo();
         if (sortInfo != null) {
             for (Sort s : sortInfo) {
                 if (s.getId().intValue() == articleVO.getSortId().intValue()) {
@@ -1,26 +1,160 @@
 package com.ld.poetry.service.impl;
 
+import com.baomidou.mybatisplus.extension.conditions.query.LambdaQueryChainWrapper;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.ld.poetry.dao.ArticleMapper;
+import com.ld.poetry.dao.WebInfoMapper;
+import com.ld.poetry.entity.Article;
+import com.ld.poetry.entity.User;
+import com.ld.poetry.entity.WebInfo;
 import com.ld.poetry.service.CacheService;
+import com.ld.poetry.service.UserService;
+import com.ld.poetry.utils.CommonConst;
+import com.ld.poetry.utils.CommonQuery;
+import com.ld.poetry.utils.PoetryCache;
+import com.ld.poetry.utils.PoetryEnum;
 import com.ld.poetry.utils.RedisCacheUtil;
+import com.ld.poetry.utils.TimingWheelCache;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.stereotype.Service;
+import org.springframework.util.CollectionUtils;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
 
 /**
  * 分布式缓存服务实现类
+ * <p>
+ * L1：本地有界缓存（TimingWheelCache），命中时不走网络
+ * L2：Redis
+ * <p>
+ * 写入和删除先落 Redis，再通过 Redis 发布订阅通知其他节点清除各自的 L1。
+ * L1 的过期时间不超过 near-ttl，即使丢失一条失效通知，不一致窗口也是有限的。
+ * <p>
+ * 启动预热在 cacheRefreshExecutor 上并行执行，优先加载浏览量最高的文章及其作者、评论数。
  */
 @Service
 @Slf4j
-public class CacheServiceImpl implements CacheService {
+public class CacheServiceImpl implements CacheService, MessageListener {
+
+    /**
+     * 本地缓存失效通知频道
+     */
+    private static final String INVALIDATE_CHANNEL = "poetry:cache:invalidate";
+
+    /**
+     * 通知消息中节点ID与键的分隔符
+     */
+    private static final String SEPARATOR = "|";
 
     @Autowired
     private RedisCacheUtil redisCacheUtil;
 
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    @Value("${poetry.cache.near.max-entries:10000}")
+    private long nearMaxEntries;
+
+    @Value("${poetry.cache.near.ttl:60}")
+    private long nearTtl;
+
+    @Autowired
+    @Qualifier("cacheRefreshExecutor")
+    private Executor cacheRefreshExecutor;
+
+    @Autowired
+    private ArticleMapper articleMapper;
+
+    @Autowired
+    private WebInfoMapper webInfoMapper;
+
+    // CommonQuery 和 UserServiceImpl 都依赖本类，延迟注入避免循环依赖
+    @Lazy
+    @Autowired
+    private CommonQuery commonQuery;
+
+    @Lazy
+    @Autowired
+    private UserService userService;
+
+    @Value("${poetry.cache.warm-up.top-articles:50}")
+    private int warmUpTopArticles;
+
+    private final AtomicBoolean warmUpStarted = new AtomicBoolean(false);
+
+    private volatile boolean warmUpReady = false;
+
+    private volatile long warmUpStartTime;
+
+    private volatile long warmUpCost;
+
+    private final AtomicInteger warmUpLoaded = new AtomicInteger();
+
+    private final AtomicInteger warmUpFailed = new AtomicInteger();
+
+    /**
+     * 当前节点ID，用于忽略自己发出的失效通知
+     */
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private TimingWheelCache nearCache;
+
+    @PostConstruct
+    public void init() {
+        nearCache = new TimingWheelCache("near-cache", nearMaxEntries,
+                Arrays.asList(CommonConst.USER_CACHE, CommonConst.SORT_INFO));
+        redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(INVALIDATE_CHANNEL));
+        log.info("二级缓存初始化完成 - 节点: {}, L1 最大键数量: {}, L1 过期时间: {}s", nodeId, nearMaxEntries, nearTtl);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        nearCache.shutdown();
+    }
+
     @Override
     public <T> T get(String key, Class<T> clazz) {
-        Object value = redisCacheUtil.get(key);
+        Object value = nearCache.get(key);
         if (value == null) {
-            return null;
+            try {
+                value = redisCacheUtil.get(key);
+            } catch (Exception e) {
+                // Redis 不可用时降级为只用本地缓存，由调用方回源数据库
+                log.warn("读取 Redis 缓存失败，降级处理: key={}", key, e);
+                return null;
+            }
+            if (value == null) {
+                return null;
+            }
+            nearCache.put(key, value, nearTtl);
         }
         try {
             return clazz.cast(value);
@@ -30,30 +164,277 @@ public class CacheServiceImpl implements CacheService {
         }
     }
 
+    @Override
+    public <T> T getOrLoad(String key, RedisCacheUtil.DataLoader<T> loader, long expireSeconds) {
+        return getOrLoad(key, null, null, loader, expireSeconds);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T getOrLoad(String key, String moduleName, Integer id, RedisCacheUtil.DataLoader<T> loader, long expireSeconds) {
+        Object value = nearCache.get(key);
+        if (value != null) {
+            return (T) value;
+        }
+        T loaded;
+        try {
+            loaded = redisCacheUtil.getWithEarlyRefresh(key, moduleName, id == null ? null : id.toString(), loader, expireSeconds);
+        } catch (Exception e) {
+            // Redis 不可用时直接回源
+            log.warn("读取 Redis 缓存失败，降级处理: key={}", key, e);
+            return loader.load();
+        }
+        if (loaded != null) {
+            nearCache.put(key, loaded, Math.min(expireSeconds, nearTtl));
+        }
+        return loaded;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> Map<String, T> getAll(Collection<String> keys, RedisCacheUtil.BulkLoader<T> loader, long expireSeconds) {
+        Map<String, T> result = new HashMap<>();
+        List<String> nearMisses = new ArrayList<>();
+        for (String key : keys) {
+            Object value = nearCache.get(key);
+            if (value != null) {
+                result.put(key, (T) value);
+            } else {
+                nearMisses.add(key);
+            }
+        }
+        if (nearMisses.isEmpty()) {
+            return result;
+        }
+
+        Map<String, T> loaded;
+        try {
+            loaded = redisCacheUtil.getAll(nearMisses, loader, expireSeconds);
+        } catch (Exception e) {
+            // Redis 不可用时直接回源
+            log.warn("批量读取 Redis 缓存失败，降级处理: keys={}", nearMisses.size(), e);
+            loaded = loader.load(nearMisses);
+            if (loaded == null) {
+                return result;
+            }
+        }
+        long ttl = Math.min(expireSeconds, nearTtl);
+        loaded.forEach((key, value) -> {
+            if (value != null) {
+                nearCache.put(key, value, ttl);
+                result.put(key, value);
+            }
+        });
+        return result;
+    }
+
+    @Override
+    public <T> T reload(String key, RedisCacheUtil.DataLoader<T> loader, long expireSeconds) {
+        T loaded;
+        try {
+            loaded = redisCacheUtil.reload(key, loader, expireSeconds);
+        } catch (Exception e) {
+            // Redis 不可用时只更新本地缓存
+            log.warn("重建 Redis 缓存失败: key={}", key, e);
+            loaded = loader.load();
+        }
+        if (loaded == null) {
+            nearCache.remove(key);
+        } else {
+            nearCache.put(key, loaded, Math.min(expireSeconds, nearTtl));
+        }
+        publishInvalidate(key);
+        return loaded;
+    }
+
     @Override
     public void set(String key, Object value, long expireSeconds) {
-        redisCacheUtil.set(key, value, expireSeconds);
+        try {
+            redisCacheUtil.set(key, value, expireSeconds);
+        } catch (Exception e) {
+            log.warn("写入 Redis 缓存失败: key={}", key, e);
+        }
+        if (value == null) {
+            nearCache.remove(key);
+        } else {
+            nearCache.put(key, value, expireSeconds > 0 ? Math.min(expireSeconds, nearTtl) : nearTtl);
+        }
+        publishInvalidate(key);
+    }
+
+    @Override
+    public <T> T update(String key, UnaryOperator<T> updater) {
+        T value = null;
+        try {
+            value = redisCacheUtil.update(key, updater);
+        } catch (Exception e) {
+            log.warn("修改 Redis 缓存失败: key={}", key, e);
+        }
+        if (value != null) {
+            nearCache.put(key, value, nearTtl);
+        } else {
+            nearCache.remove(key);
+        }
+        publishInvalidate(key);
+        return value;
+    }
+
+    @Override
+    public void setWithTags(String key, Object value, long expireSeconds, String... tags) {
+        try {
+            redisCacheUtil.setWithTags(key, value, expireSeconds, tags);
+        } catch (Exception e) {
+            log.warn("写入 Redis 缓存失败: key={}", key, e);
+        }
+        if (value == null) {
+            nearCache.remove(key);
+        } else {
+            nearCache.put(key, value, expireSeconds > 0 ? Math.min(expireSeconds, nearTtl) : nearTtl);
+        }
+        publishInvalidate(key);
+    }
+
+    @Override
+    public void invalidateTag(String tag) {
+        List<String> keys;
+        try {
+            keys = redisCacheUtil.invalidateTag(tag);
+        } catch (Exception e) {
+            // 拿不到标签下的 key，本地缓存只能等 near-ttl 过期
+            log.warn("按标签删除 Redis 缓存失败: tag={}", tag, e);
+            return;
+        }
+        for (String key : keys) {
+            nearCache.remove(key);
+            publishInvalidate(key);
+        }
     }
 
     @Override
     public void delete(String key) {
-        redisCacheUtil.delete(key);
+        try {
+            redisCacheUtil.delete(key);
+        } catch (Exception e) {
+            log.warn("删除 Redis 缓存失败: key={}", key, e);
+        }
+        nearCache.remove(key);
+        publishInvalidate(key);
     }
 
     @Override
     public void warmUp() {
-        log.info("开始缓存预热...");
-        // TODO: 实现缓存预热逻辑
-        // 1. 加载热点文章
-        // 2. 加载热门用户
-        // 3. 加载系统配置
-        log.info("缓存预热完成");
+        if (!warmUpStarted.compareAndSet(false, true)) {
+            return;
+        }
+        warmUpStartTime = System.currentTimeMillis();
+        log.info("开始缓存预热 - 热点文章数量: {}", warmUpTopArticles);
+
+        // 热点文章先提交，占住线程池的第一个线程
+        CompletableFuture<Void> hotArticles = CompletableFuture
+                .supplyAsync(this::loadHotArticles, cacheRefreshExecutor)
+                .thenCompose(articles -> {
+                    List<CompletableFuture<Void>> tasks = new ArrayList<>();
+                    // 与 getArticleById 读同一个键、同一种封装，预热的文章行可以直接命中
+                    tasks.add(warmUpTask(CommonConst.ARTICLE_CACHE, () -> articles.forEach(article ->
+                            getOrLoad(CommonConst.ARTICLE_CACHE + article.getId(), () -> article, CommonConst.ARTICLE_EXPIRE))));
+                    articles.stream().map(Article::getUserId).distinct()
+                            .forEach(userId -> tasks.add(warmUpTask("user-" + userId, () -> commonQuery.getUser(userId))));
+                    tasks.add(warmUpTask("commentCount", () -> commonQuery.getCommentCounts(
+                            articles.stream().map(Article::getId).collect(Collectors.toList()))));
+                    return CompletableFuture.allOf(tasks.toArray(new CompletableFuture[0]));
+                });
+
+        CompletableFuture<Void> webInfo = warmUpTask(CommonConst.WEB_INFO, () -> {
+            List<WebInfo> list = new LambdaQueryChainWrapper<>(webInfoMapper).list();
+            if (!CollectionUtils.isEmpty(list)) {
+                PoetryCache.put(CommonConst.WEB_INFO, list.get(0));
+            }
+        });
+        CompletableFuture<Void> sortInfo = warmUpTask(CommonConst.SORT_INFO, () -> commonQuery.refreshSortInfo());
+        CompletableFuture<Void> admin = warmUpTask(CommonConst.ADMIN, () -> {
+            User user = userService.lambdaQuery().eq(User::getUserType, PoetryEnum.USER_TYPE_ADMIN.getCode()).one();
+            PoetryCache.put(CommonConst.ADMIN, user);
+        });
+
+        // 单项失败不影响整体，预热结束即视为就绪，缺失的数据由正常读路径回源
+        CompletableFuture.allOf(hotArticles, webInfo, sortInfo, admin).whenComplete((v, e) -> {
+            warmUpCost = System.currentTimeMillis() - warmUpStartTime;
+            warmUpReady = true;
+            log.info("缓存预热完成 - 成功: {}, 失败: {}, 耗时: {}ms", warmUpLoaded.get(), warmUpFailed.get(), warmUpCost);
+        });
+    }
+
+    @Override
+    public Map<String, Object> getWarmUpStatus() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("ready", warmUpReady);
+        status.put("started", warmUpStarted.get());
+        status.put("loaded", warmUpLoaded.get());
+        status.put("failed", warmUpFailed.get());
+        if (warmUpStarted.get()) {
+            status.put("costMillis", warmUpReady ? warmUpCost : System.currentTimeMillis() - warmUpStartTime);
+        }
+        return status;
+    }
+
+    /**
+     * 按浏览量倒序查询热点文章整行，一次查询后写入文章缓存
+     */
+    private List<Article> loadHotArticles() {
+        try {
+            List<Article> articles = new LambdaQueryChainWrapper<>(articleMapper)
+                    .eq(Article::getViewStatus, PoetryEnum.STATUS_ENABLE.getCode())
+                    .orderByDesc(Article::getViewCount)
+                    .page(new Page<>(1, warmUpTopArticles, false))
+                    .getRecords();
+            warmUpLoaded.incrementAndGet();
+            return articles;
+        } catch (Exception e) {
+            warmUpFailed.incrementAndGet();
+            log.warn("缓存预热查询热点文章失败", e);
+            return Collections.emptyList();
+        }
+    }
+
+    private CompletableFuture<Void> warmUpTask(String name, Runnable loader) {
+        return CompletableFuture.runAsync(() -> {
+            try {
+                loader.run();
+                warmUpLoaded.incrementAndGet();
+            } catch (Exception e) {
+                warmUpFailed.incrementAndGet();
+                log.warn("缓存预热失败: {}", name, e);
+            }
+        }, cacheRefreshExecutor);
     }
 
     @Override
     public void refresh(String key) {
-        redisCacheUtil.delete(key);
+        delete(key);
         log.info("刷新缓存: key={}", key);
     }
-}
 
+    /**
+     * 接收其他节点的失效通知，清除本地缓存
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        int index = body.indexOf(SEPARATOR);
+        if (index < 0) {
+            return;
+        }
+        if (nodeId.equals(body.substring(0, index))) {
+            return;
+        }
+        nearCache.remove(body.substring(index + 1));
+    }
+
+    private void publishInvalidate(String key) {
+        try {
+            stringRedisTemplate.convertAndSend(INVALIDATE_CHANNEL, nodeId + SEPARATOR + key);
+        } catch (Exception e) {
+            log.warn("发布缓存失效通知失败: key={}", key, e);
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.ld.poetry.service.impl;
 
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.conditions.query.LambdaQueryChainWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
@@ -11,20 +12,29 @@ import com.ld.poetry.entity.Article;
 import com.ld.poetry.entity.Comment;
 import com.ld.poetry.entity.User;
 import com.ld.poetry.entity.UserArticleAuth;
+import com.ld.poetry.service.CacheService;
 import com.ld.poetry.service.CommentService;
 import com.ld.poetry.service.UserArticleAuthService;
 import com.ld.poetry.utils.*;
 import com.ld.poetry.vo.BaseRequestVO;
+import com.ld.poetry.vo.CommentPageVO;
 import com.ld.poetry.vo.CommentVO;
 
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.util.CollectionUtils;
 import org.springframework.util.StringUtils;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
@@ -38,6 +48,16 @@ import java.util.stream.Collectors;
 @Service
 public class CommentServiceImpl extends ServiceImpl<CommentMapper, Comment> implements CommentService {
 
+    /**
+     * 楼层列表中每层附带的楼中楼条数
+     */
+    private static final int CHILD_COMMENT_SIZE = 5;
+
+    /**
+     * 缓存评论页的最大条数
+     */
+    private static final int COMMENT_PAGE_MAX_SIZE = 100;
+
     @Autowired
     private UserArticleAuthService userArticleAuthService;
 
@@ -50,7 +70,14 @@ public class CommentServiceImpl extends ServiceImpl<CommentMapper, Comment> impl
     @Autowired
     private MailSendUtil mailSendUtil;
 
+    @Autowired
+    private CacheService cacheService;
+
+    /**
+     * 评论和通知邮件在同一事务中写入，邮件由发件箱异步发送
+     */
     @Override
+    @Transactional(rollbackFor = Exception.class)
     public PoetryResult saveComment(CommentVO commentVO) {
         LambdaQueryChainWrapper<Article> articleWrapper = new LambdaQueryChainWrapper<>(articleMapper);
         Article one = articleWrapper.eq(Article::getId, commentVO.getSource()).select(Article::getUserId, Article::getArticleTitle, Article::getCommentStatus).one();
@@ -74,12 +101,9 @@ public class CommentServiceImpl extends ServiceImpl<CommentMapper, Comment> impl
             comment.setCommentInfo(commentVO.getCommentInfo());
         }
         save(comment);
-
-        try {
-            mailSendUtil.sendCommentMail(commentVO, one, this);
-        } catch (Exception e) {
-            log.error("发送评论邮件失败：", e);
-        }
+        mailSendUtil.sendCommentMail(commentVO, one);
+        commonQuery.incrementCommentCount(comment.getSource(), 1);
+        evictCommentPagesOnAppend(comment);
 
         try {
             UserArticleAuth auth = new UserArticleAuth();
@@ -97,9 +121,18 @@ public class CommentServiceImpl extends ServiceImpl<CommentMapper, Comment> impl
     @Override
     public PoetryResult deleteComment(Integer id) {
         Integer userId = PoetryUtil.getUserId();
-        lambdaUpdate().eq(Comment::getId, id)
+        Comment comment = lambdaQuery().select(Comment::getSource, Comment::getParentCommentId, Comment::getFloorCommentId)
+                .eq(Comment::getId, id).eq(Comment::getUserId, userId).one();
+        if (comment == null) {
+            return PoetryResult.success();
+        }
+        boolean removed = lambdaUpdate().eq(Comment::getId, id)
                 .eq(Comment::getUserId, userId)
                 .remove();
+        if (removed) {
+            commonQuery.incrementCommentCount(comment.getSource(), -1);
+            evictCommentPages(comment);
+        }
         return PoetryResult.success();
     }
 
@@ -108,43 +141,259 @@ public class CommentServiceImpl extends ServiceImpl<CommentMapper, Comment> impl
         if (baseRequestVO.getSource() == null) {
             return PoetryResult.fail(CodeMsg.PARAMETER_ERROR);
         }
-        LambdaQueryChainWrapper<Article> articleWrapper = new LambdaQueryChainWrapper<>(articleMapper);
-        Article one = articleWrapper.eq(Article::getId, baseRequestVO.getSource()).select(Article::getCommentStatus).one();
+        // 不存在的文章、楼层不缓存评论页，避免按任意 source、floorCommentId 写入缓存
+        boolean cacheable = true;
+        if (baseRequestVO.getSource() != CommonConst.TREE_HOLE_COMMENT_SOURCE) {
+            Article one = cacheService.getOrLoad(CommonConst.ARTICLE_CACHE + baseRequestVO.getSource(),
+                    BloomFilterUtil.MODULE_ARTICLE, baseRequestVO.getSource(), () -> new LambdaQueryChainWrapper<>(articleMapper).eq(Article::getId, baseRequestVO.getSource()).one(),
+                    CommonConst.ARTICLE_EXPIRE);
+            if (one != null && !one.getCommentStatus()) {
+                return PoetryResult.fail("评论功能已关闭！");
+            }
+            cacheable = one != null;
+        }
 
-        if (one != null && !one.getCommentStatus()) {
-            return PoetryResult.fail("评论功能已关闭！");
+        int floorId = baseRequestVO.getFloorCommentId() == null ? CommonConst.FIRST_COMMENT : baseRequestVO.getFloorCommentId();
+        boolean cursorMode = CursorPageUtil.isCursorMode(baseRequestVO);
+        if (floorId != CommonConst.FIRST_COMMENT) {
+            cacheable = cacheable && lambdaQuery().eq(Comment::getId, floorId).eq(Comment::getSource, baseRequestVO.getSource())
+                    .eq(Comment::getParentCommentId, CommonConst.FIRST_COMMENT).count() > 0;
+        }
+        String key = cacheable ? getCommentPageKey(baseRequestVO, floorId, cursorMode) : null;
+        CommentPageVO commentPage = key == null ? null : cacheService.get(key, CommentPageVO.class);
+        if (commentPage == null) {
+            commentPage = loadCommentPage(baseRequestVO, floorId, cursorMode, cacheable);
+            if (key != null) {
+                cacheService.setWithTags(key, commentPage, CommonConst.COMMENT_PAGE_EXPIRE,
+                        getCommentPageTags(baseRequestVO.getSource(), floorId, baseRequestVO.getSize(), commentPage));
+            }
+        } else if (cursorMode) {
+            baseRequestVO.setSearchCount(false);
+        } else {
+            baseRequestVO.setTotal(getCommentTotal(baseRequestVO.getSource(), floorId));
         }
 
-        if (baseRequestVO.getFloorCommentId() == null) {
-            lambdaQuery().eq(Comment::getSource, baseRequestVO.getSource()).eq(Comment::getParentCommentId, CommonConst.FIRST_COMMENT).orderByAsc(Comment::getCreateTime).page((Page)baseRequestVO);
-            List<Comment> comments = baseRequestVO.getRecords();
-            if (CollectionUtils.isEmpty(comments)) {
-                return PoetryResult.success(baseRequestVO);
+        baseRequestVO.setHasMore(commentPage.getHasMore());
+        baseRequestVO.setNextCursor(commentPage.getNextCursor());
+        baseRequestVO.setRecords(toCommentVOs(commentPage));
+        return PoetryResult.success(baseRequestVO);
+    }
+
+    /**
+     * 从数据库加载一页评论，按页码分页时顺便缓存总数
+     *
+     * @param floorId   楼层ID，查询楼层列表时为 {@link CommonConst#FIRST_COMMENT}
+     * @param cacheable 文章、楼层是否存在，不存在时不缓存总数
+     */
+    private CommentPageVO loadCommentPage(BaseRequestVO baseRequestVO, int floorId, boolean cursorMode, boolean cacheable) {
+        Integer source = baseRequestVO.getSource();
+        LambdaQueryChainWrapper<Comment> query = lambdaQuery().eq(Comment::getSource, source);
+        if (floorId == CommonConst.FIRST_COMMENT) {
+            query.eq(Comment::getParentCommentId, CommonConst.FIRST_COMMENT);
+        } else {
+            query.eq(Comment::getFloorCommentId, floorId);
+        }
+        if (cursorMode) {
+            CursorPageUtil.page(query, baseRequestVO, Comment::getCreateTime, Comment::getId, true);
+        } else {
+            query.orderByAsc(Comment::getCreateTime).orderByAsc(Comment::getId).page((Page)baseRequestVO);
+            if (cacheable) {
+                cacheService.set(getCommentTotalKey(source, floorId), baseRequestVO.getTotal(), CommonConst.COMMENT_PAGE_EXPIRE);
             }
-            List<CommentVO> commentVOs = comments.stream().map(c -> {
-                CommentVO commentVO = buildCommentVO(c);
-                Page page = new Page(1, 5);
-                lambdaQuery().eq(Comment::getSource, baseRequestVO.getSource()).eq(Comment::getFloorCommentId, c.getId()).orderByAsc(Comment::getCreateTime).page(page);
-                List<Comment> childComments = page.getRecords();
-                if (childComments != null) {
-                    List<CommentVO> ccVO = childComments.stream().map(cc -> buildCommentVO(cc)).collect(Collectors.toList());
-                    page.setRecords(ccVO);
-                }
-                commentVO.setChildComments(page);
-                return commentVO;
-            }).collect(Collectors.toList());
-            baseRequestVO.setRecords(commentVOs);
+        }
+
+        CommentPageVO commentPage = new CommentPageVO();
+        if (cursorMode) {
+            commentPage.setHasMore(baseRequestVO.getHasMore());
+            commentPage.setNextCursor(baseRequestVO.getNextCursor());
+        }
+        List<Comment> comments = baseRequestVO.getRecords();
+        if (CollectionUtils.isEmpty(comments)) {
+            commentPage.setRecords(new ArrayList<>());
+            return commentPage;
+        }
+        if (floorId != CommonConst.FIRST_COMMENT) {
+            Map<Integer, User> users = commonQuery.getUsers(getUserIds(comments));
+            commentPage.setRecords(comments.stream().map(cc -> buildCommentVO(cc, users)).collect(Collectors.toList()));
+            return commentPage;
+        }
+
+        // 整页楼层的楼中楼和楼中楼总数各一次查询，不再每层单独分页
+        List<Integer> floorIds = comments.stream().map(Comment::getId).collect(Collectors.toList());
+        Map<Integer, List<Comment>> childComments = baseMapper.listFloorChildren(source, floorIds, CHILD_COMMENT_SIZE)
+                .stream().collect(Collectors.groupingBy(Comment::getFloorCommentId));
+        List<Comment> allComments = new ArrayList<>(comments);
+        childComments.values().forEach(allComments::addAll);
+        // 整页评论（含楼中楼）涉及的用户一次性获取
+        Map<Integer, User> users = commonQuery.getUsers(getUserIds(allComments));
+        commentPage.setRecords(comments.stream().map(c -> buildCommentVO(c, users)).collect(Collectors.toList()));
+        Map<Integer, List<CommentVO>> childRecords = new HashMap<>();
+        childComments.forEach((id, children) ->
+                childRecords.put(id, children.stream().map(cc -> buildCommentVO(cc, users)).collect(Collectors.toList())));
+        commentPage.setChildRecords(childRecords);
+        commentPage.setChildTotals(countFloorChildren(source, floorIds));
+        return commentPage;
+    }
+
+    /**
+     * 组装返回给前端的评论，楼层附带前几条楼中楼
+     */
+    private List<CommentVO> toCommentVOs(CommentPageVO commentPage) {
+        if (commentPage.getChildTotals() == null) {
+            return commentPage.getRecords();
+        }
+        return commentPage.getRecords().stream().map(c -> {
+            // 缓存中的对象可能被多个请求共享，复制后再填充楼中楼
+            CommentVO commentVO = new CommentVO();
+            BeanUtils.copyProperties(c, commentVO);
+            Page page = new Page(1, CHILD_COMMENT_SIZE, commentPage.getChildTotals().getOrDefault(c.getId(), 0));
+            page.setRecords(commentPage.getChildRecords().getOrDefault(c.getId(), new ArrayList<>()));
+            commentVO.setChildComments(page);
+            return commentVO;
+        }).collect(Collectors.toList());
+    }
+
+    /**
+     * 评论页缓存的键，不缓存时返回 null
+     * <p>
+     * 键里只放服务端能确认的值，客户端随意构造的参数不会让键无限增长：
+     * <ul>
+     *     <li>单页过大时不缓存</li>
+     *     <li>按页码分页时只缓存总页数以内的页</li>
+     *     <li>游标分页时只缓存首页和本服务签发的游标（游标指向的评论属于该列表且游标与之完全一致），键里用评论ID代替原始游标</li>
+     * </ul>
+     */
+    private String getCommentPageKey(BaseRequestVO baseRequestVO, int floorId, boolean cursorMode) {
+        long size = baseRequestVO.getSize();
+        if (size < 1 || size > COMMENT_PAGE_MAX_SIZE) {
+            return null;
+        }
+        Integer source = baseRequestVO.getSource();
+        String page;
+        if (!cursorMode) {
+            long current = baseRequestVO.getCurrent();
+            long total = getCommentTotal(source, floorId);
+            if (current < 1 || (current - 1) * size >= Math.max(total, 1)) {
+                return null;
+            }
+            page = "p" + current;
+        } else if (baseRequestVO.getCursor().isEmpty()) {
+            page = "c";
         } else {
-                IPage result = page(new Page<>(baseRequestVO.getCurrent(),baseRequestVO.getSize()),lambdaQuery().getWrapper());
-            lambdaQuery().eq(Comment::getSource, baseRequestVO.getSource()).eq(Comment::getFloorCommentId, baseRequestVO.getFloorCommentId()).orderByAsc(Comment::getCreateTime).page(result);
-            List<Comment> childComments = baseRequestVO.getRecords();
-            if (CollectionUtils.isEmpty(childComments)) {
-                return PoetryResult.success(baseRequestVO);
+            Comment last = getCursorComment(source, floorId, baseRequestVO.getCursor());
+            if (last == null) {
+                return null;
             }
-            List<CommentVO> ccVO = childComments.stream().map(cc -> buildCommentVO(cc)).collect(Collectors.toList());
-            baseRequestVO.setRecords(ccVO);
+            page = "c" + last.getId();
+        }
+        return CommonConst.COMMENT_PAGE_CACHE + source + "_" + floorId + "_" + size + "_" + page;
+    }
+
+    /**
+     * 游标指向的评论，评论不属于该列表或游标不是由这条评论生成时返回 null
+     */
+    private Comment getCursorComment(Integer source, int floorId, String cursor) {
+        Integer id = CursorPageUtil.getId(cursor);
+        if (id == null) {
+            return null;
+        }
+        Comment comment = lambdaQuery().select(Comment::getId, Comment::getSource, Comment::getParentCommentId,
+                Comment::getFloorCommentId, Comment::getCreateTime).eq(Comment::getId, id).one();
+        if (comment == null || !source.equals(comment.getSource()) || getFloorId(comment) != floorId
+                || !cursor.equals(CursorPageUtil.encode(comment.getCreateTime(), comment.getId()))) {
+            return null;
+        }
+        return comment;
+    }
+
+    private String getCommentTotalKey(Integer source, int floorId) {
+        return CommonConst.COMMENT_PAGE_CACHE + source + "_" + floorId + "_total";
+    }
+
+    private long getCommentTotal(Integer source, int floorId) {
+        Number total = cacheService.getOrLoad(getCommentTotalKey(source, floorId), () -> {
+            LambdaQueryChainWrapper<Comment> query = lambdaQuery().eq(Comment::getSource, source);
+            if (floorId == CommonConst.FIRST_COMMENT) {
+                query.eq(Comment::getParentCommentId, CommonConst.FIRST_COMMENT);
+            } else {
+                query.eq(Comment::getFloorCommentId, floorId);
+            }
+            return query.count();
+        }, CommonConst.COMMENT_PAGE_EXPIRE);
+        return total == null ? 0 : total.longValue();
+    }
+
+    /**
+     * 评论页缓存的标签
+     * <ul>
+     *     <li>comment:{source}_{floorId}：整个列表，删除评论时失效</li>
+     *     <li>comment:{source}_{floorId}_tail：列表的最后一页（未满或没有下一页），追加评论时只有它会变</li>
+     *     <li>comment:{source}_{楼层ID}_head：楼层列表中包含该楼层的页，该楼层的楼中楼变化时失效</li>
+     * </ul>
+     */
+    private String[] getCommentPageTags(Integer source, int floorId, long size, CommentPageVO commentPage) {
+        String listTag = getCommentListTag(source, floorId);
+        List<String> tags = new ArrayList<>();
+        tags.add(listTag);
+        boolean tail = commentPage.getHasMore() == null ? commentPage.getRecords().size() < size : !commentPage.getHasMore();
+        if (tail) {
+            tags.add(listTag + "_tail");
+        }
+        if (floorId == CommonConst.FIRST_COMMENT) {
+            commentPage.getRecords().forEach(c -> tags.add(getCommentListTag(source, c.getId()) + "_head"));
+        }
+        return tags.toArray(new String[0]);
+    }
+
+    private String getCommentListTag(Integer source, int floorId) {
+        return CommonConst.COMMENT_TAG + source + "_" + floorId;
+    }
+
+    /**
+     * 新增评论后只失效受影响的页：所在列表的最后一页和总数；楼中楼还要失效楼层列表中该楼层所在的页
+     */
+    private void evictCommentPagesOnAppend(Comment comment) {
+        int floorId = getFloorId(comment);
+        String listTag = getCommentListTag(comment.getSource(), floorId);
+        Runnable evict = () -> {
+            cacheService.invalidateTag(listTag + "_tail");
+            cacheService.delete(getCommentTotalKey(comment.getSource(), floorId));
+            if (floorId != CommonConst.FIRST_COMMENT) {
+                cacheService.invalidateTag(listTag + "_head");
+            }
+        };
+        evict.run();
+        // 处于事务中时提交后再失效一次，覆盖提交前读到旧数据并写回缓存的查询
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    evict.run();
+                }
+            });
+        }
+    }
+
+    @Override
+    public void evictCommentPages(Comment comment) {
+        int floorId = getFloorId(comment);
+        String listTag = getCommentListTag(comment.getSource(), floorId);
+        cacheService.invalidateTag(listTag);
+        cacheService.delete(getCommentTotalKey(comment.getSource(), floorId));
+        if (floorId != CommonConst.FIRST_COMMENT) {
+            cacheService.invalidateTag(listTag + "_head");
         }
-        return PoetryResult.success(baseRequestVO);
+    }
+
+    /**
+     * 评论所在列表：楼层为 {@link CommonConst#FIRST_COMMENT}，楼中楼为所在楼层ID
+     */
+    private int getFloorId(Comment comment) {
+        if (comment.getParentCommentId() == null || comment.getParentCommentId() == CommonConst.FIRST_COMMENT
+                || comment.getFloorCommentId() == null) {
+            return CommonConst.FIRST_COMMENT;
+        }
+        return comment.getFloorCommentId();
     }
 
     @Override
@@ -177,11 +426,43 @@ public class CommentServiceImpl extends ServiceImpl<CommentMapper, Comment> impl
         return PoetryResult.success(baseRequestVO);
     }
 
-    private CommentVO buildCommentVO(Comment c) {
+    /**
+     * 各楼层的楼中楼总数，没有楼中楼的楼层不在结果中
+     */
+    private Map<Integer, Integer> countFloorChildren(Integer source, List<Integer> floorIds) {
+        QueryWrapper<Comment> wrapper = new QueryWrapper<>();
+        wrapper.select("floor_comment_id", "count(*) as count")
+                .eq("source", source)
+                .in("floor_comment_id", floorIds)
+                .groupBy("floor_comment_id");
+        Map<Integer, Integer> counts = new HashMap<>();
+        baseMapper.selectMaps(wrapper).forEach(row ->
+                counts.put(((Number) row.get("floor_comment_id")).intValue(), ((Number) row.get("count")).intValue()));
+        return counts;
+    }
+
+    /**
+     * 评论人和被回复人的ID
+     */
+    private Set<Integer> getUserIds(List<Comment> comments) {
+        Set<Integer> userIds = new HashSet<>();
+        comments.forEach(c -> {
+            userIds.add(c.getUserId());
+            if (c.getParentUserId() != null) {
+                userIds.add(c.getParentUserId());
+            }
+        });
+        return userIds;
+    }
+
+    /**
+     * @param users 由调用方批量获取的评论人和被回复人
+     */
+    private CommentVO buildCommentVO(Comment c, Map<Integer, User> users) {
         CommentVO commentVO = new CommentVO();
         BeanUtils.copyProperties(c, commentVO);
 
-        User user = commonQuery.getUser(commentVO.getUserId());
+        User user = users.get(commentVO.getUserId());
         if (user != null) {
             commentVO.setAvatar(user.getAvatar());
             commentVO.setUsername(user.getUsername());
@@ -192,7 +473,7 @@ public class CommentServiceImpl extends ServiceImpl<CommentMapper, Comment> impl
         }
 
         if (commentVO.getParentUserId() != null) {
-            User u = commonQuery.getUser(commentVO.getParentUserId());
+            User u = users.get(commentVO.getParentUserId());
             if (u != null) {
                 commentVO.setParentUsername(u.getUsername());
             }
@@ -15,13 +15,18 @@ import com.ld.poetry.entity.User;
 import com.ld.poetry.utils.*;
 import com.ld.poetry.vo.ArticleVO;
 import com.ld.poetry.vo.BaseRequestVO;
+import lombok.extern.slf4j.Slf4j;
 
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.BadSqlGrammarException;
 import org.springframework.util.CollectionUtils;
 import org.springframework.util.StringUtils;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 /**
  * <p>
  * 文章表 服务实现类
@@ -30,6 +35,7 @@ import java.util.List;
  * @author sara
  * @since 2023-01-01
  */
+@Slf4j
 @Service
 public class DiaryServiceImpl extends ServiceImpl<DiaryMapper, Diary> implements DiaryService {
     @Autowired
@@ -38,6 +44,9 @@ public class DiaryServiceImpl extends ServiceImpl<DiaryMapper, Diary> implements
     @Autowired
     private CommonQuery commonQuery;
 
+    @Autowired
+    private ViewCountBuffer viewCountBuffer;
+
     @Override
     public PoetryResult saveArticle(ArticleVO articleVO) {
         if (articleVO.getViewStatus() != null && !articleVO.getViewStatus() && !StringUtils.hasText(articleVO.getPassword())) {
@@ -69,11 +78,6 @@ public class DiaryServiceImpl extends ServiceImpl<DiaryMapper, Diary> implements
         article.setLabelId(articleVO.getLabelId());
         article.setUserId(PoetryUtil.getUserId());
         save(article);
-
-        List<Sort> sortInfo = commonQuery.getSortInfo();
-        if (!CollectionUtils.isEmpty(sortInfo)) {
-            PoetryCache.put(CommonConst.SORT_INFO, sortInfo);
-        }
         return PoetryResult.success();
     }
 
@@ -83,10 +87,6 @@ public class DiaryServiceImpl extends ServiceImpl<DiaryMapper, Diary> implements
         lambdaUpdate().eq(Diary::getId, id)
                 .eq(Diary::getUserId, userId)
                 .remove();
-        List<Sort> sortInfo = commonQuery.getSortInfo();
-        if (!CollectionUtils.isEmpty(sortInfo)) {
-            PoetryCache.put(CommonConst.SORT_INFO, sortInfo);
-        }
         return PoetryResult.success();
     }
 
@@ -124,10 +124,6 @@ public class DiaryServiceImpl extends ServiceImpl<DiaryMapper, Diary> implements
             updateChainWrapper.set(Diary::getViewStatus, articleVO.getViewStatus());
         }
         updateChainWrapper.update();
-        List<Sort> sortInfo = commonQuery.getSortInfo();
-        if (!CollectionUtils.isEmpty(sortInfo)) {
-            PoetryCache.put(CommonConst.SORT_INFO, sortInfo);
-        }
         return PoetryResult.success();
     }
 
@@ -149,11 +145,64 @@ public class DiaryServiceImpl extends ServiceImpl<DiaryMapper, Diary> implements
             lambdaQuery.eq(Diary::getSortId, baseRequestVO.getSortId());
         }
 
-        lambdaQuery.orderByDesc(Diary::getCreateTime).page((Page)baseRequestVO);
+        if (CursorPageUtil.isCursorMode(baseRequestVO)) {
+            CursorPageUtil.page(lambdaQuery, baseRequestVO, Diary::getCreateTime, Diary::getId, false);
+        } else {
+            lambdaQuery.orderByDesc(Diary::getCreateTime).page((Page)baseRequestVO);
+        }
 
         return PoetryResult.success(baseRequestVO);
     }
 
+    /**
+     * 全文索引是否可用，缺少索引时第一次查询失败后改用 LIKE 查询
+     */
+    private volatile boolean fullTextSearch = true;
+
+    @Override
+    public PoetryResult<Page> searchArticle(BaseRequestVO baseRequestVO) {
+        if (!StringUtils.hasText(baseRequestVO.getKeywords())) {
+            return PoetryResult.fail("请输入搜索关键词！");
+        }
+        String keywords = baseRequestVO.getKeywords().trim();
+        if (keywords.length() > CommonConst.SEARCH_KEYWORDS_MAX_LENGTH) {
+            keywords = keywords.substring(0, CommonConst.SEARCH_KEYWORDS_MAX_LENGTH);
+        }
+
+        Page<Diary> page = new Page<>(baseRequestVO.getCurrent(), baseRequestVO.getSize());
+        if (fullTextSearch && keywords.length() >= CommonConst.NGRAM_TOKEN_SIZE) {
+            try {
+                diaryMapper.searchArticle(page, keywords);
+            } catch (BadSqlGrammarException e) {
+                fullTextSearch = false;
+                log.warn("日记全文索引不可用，改用 LIKE 查询", e);
+                diaryMapper.searchArticleByLike(page, keywords);
+            }
+        } else {
+            diaryMapper.searchArticleByLike(page, keywords);
+        }
+
+        List<Diary> records = page.getRecords();
+        baseRequestVO.setTotal(page.getTotal());
+        if (CollectionUtils.isEmpty(records)) {
+            baseRequestVO.setRecords(new ArrayList<>());
+            return PoetryResult.success(baseRequestVO);
+        }
+        Map<Integer, User> users = commonQuery.getUsers(records.stream().map(Diary::getUserId).collect(Collectors.toSet()));
+        Map<Integer, Integer> commentCounts = commonQuery.getCommentCounts(records.stream()
+                .filter(diary -> Boolean.TRUE.equals(diary.getCommentStatus())).map(Diary::getId).collect(Collectors.toSet()));
+        String highlightKeywords = keywords;
+        List<ArticleVO> collect = records.stream().map(article -> {
+            String snippet = PoetryUtil.searchSnippet(article.getArticleContent(), highlightKeywords);
+            article.setArticleContent(null);
+            ArticleVO articleVO = buildArticleVO(article, false, users.get(article.getUserId()), commentCounts.get(article.getId()));
+            articleVO.setHighlight(PoetryUtil.highlight(snippet, highlightKeywords));
+            return articleVO;
+        }).collect(Collectors.toList());
+        baseRequestVO.setRecords(collect);
+        return PoetryResult.success(baseRequestVO);
+    }
+
     @Override
     public PoetryResult<ArticleVO> getArticleById(Integer id, Boolean flag, String password) {
         LambdaQueryChainWrapper<Diary> lambdaQuery = lambdaQuery();
@@ -171,8 +220,9 @@ public class DiaryServiceImpl extends ServiceImpl<DiaryMapper, Diary> implements
             return PoetryResult.success();
         }
         article.setPassword(null);
-        diaryMapper.updateViewCount(id);
-        ArticleVO articleVO = buildArticleVO(article, false);
+        viewCountBuffer.incrementDiary(id);
+        ArticleVO articleVO = buildArticleVO(article, false, commonQuery.getUser(article.getUserId()),
+                Boolean.TRUE.equals(article.getCommentStatus()) ? commonQuery.getCommentCount(article.getId()) : null);
         return PoetryResult.success(articleVO);
     }
 
@@ -202,7 +252,11 @@ public class DiaryServiceImpl extends ServiceImpl<DiaryMapper, Diary> implements
             lambdaQuery.eq(Diary::getSortId, baseRequestVO.getSortId());
         }
 
-        lambdaQuery.orderByDesc(Diary::getCreateTime).page((Page)baseRequestVO);
+        if (CursorPageUtil.isCursorMode(baseRequestVO)) {
+            CursorPageUtil.page(lambdaQuery, baseRequestVO, Diary::getCreateTime, Diary::getId, false);
+        } else {
+            lambdaQuery.orderByDesc(Diary::getCreateTime).page((Page)baseRequestVO);
+        }
 
         return PoetryResult.success(baseRequestVO);
     }
@@ -220,28 +274,32 @@ public class DiaryServiceImpl extends ServiceImpl<DiaryMapper, Diary> implements
         return PoetryResult.success(articleVO);
     }
 
-    private ArticleVO buildArticleVO(Diary article, Boolean isAdmin) {
+    /**
+     * @param user         日记作者，列表查询时由调用方批量获取后传入
+     * @param commentCount 评论数量，同上
+     */
+    private ArticleVO buildArticleVO(Diary article, Boolean isAdmin, User user, Integer commentCount) {
         ArticleVO articleVO = new ArticleVO();
         BeanUtils.copyProperties(article, articleVO);
+        articleVO.setViewCount(viewCountBuffer.getDiaryViewCount(articleVO.getId(), articleVO.getViewCount()));
         if (!isAdmin) {
             if (!StringUtils.hasText(articleVO.getArticleCover())) {
                 articleVO.setArticleCover(PoetryUtil.getRandomCover(articleVO.getId().toString()));
             }
         }
 
-        User user = commonQuery.getUser(articleVO.getUserId());
         if (user != null && StringUtils.hasText(user.getUsername())) {
             articleVO.setUsername(user.getUsername());
         } else if (!isAdmin) {
             articleVO.setUsername(PoetryUtil.getRandomName(articleVO.getUserId().toString()));
         }
         if (articleVO.getCommentStatus()) {
-            articleVO.setCommentCount(commonQuery.getCommentCount(articleVO.getId()));
+            articleVO.setCommentCount(commentCount != null ? commentCount : 0);
         } else {
             articleVO.setCommentCount(0);
         }
 
-        List<Sort> sortInfo = (List<Sort>) PoetryCache.get(CommonConst.SORT_INFO);
+        List<Sort> sortInfo = commonQuery.getCachedSortInfo();
         if (sortInfo != null) {
             for (Sort s : sortInfo) {
                 if (s.getId().intValue() == articleVO.getSortId().intValue()) {
@@ -6,7 +6,10 @@ import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.ld.poetry.dao.UserArticleAuthMapper;
 import com.ld.poetry.entity.UserArticleAuth;
+import com.ld.poetry.service.CacheService;
 import com.ld.poetry.service.UserArticleAuthService;
+import com.ld.poetry.utils.ArticlePermissionIndex;
+import com.ld.poetry.utils.CommonConst;
 import com.ld.poetry.utils.PaymentNotifyDTO;
 import com.ld.poetry.utils.PoetryUtil;
 
@@ -22,8 +25,11 @@ import java.nio.charset.StandardCharsets;
 import java.util.StringJoiner;
 import java.util.stream.Collectors;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 @Service
 public class UserArticleAuthServiceImpl
@@ -35,6 +41,10 @@ public class UserArticleAuthServiceImpl
 
     @Value("${PAY_STATUS_API_URL}")
     private String PAY_STATUS_API_URL;
+
+    @Autowired
+    private CacheService cacheService;
+
     @Override
     public String createOrder(PaymentNotifyDTO paymentNotifyDTO) {
         String url = PAY_API_URL;
@@ -128,35 +138,54 @@ public class UserArticleAuthServiceImpl
         return this.getOne(queryWrapper);
     }
 
+    /**
+     * 用户的全部权限记录压缩成一个索引缓存，详情页按文章ID二分查找，不再逐篇查询
+     */
+    @Override
+    public int getPermissionMask(Integer userId, Integer articleId) {
+        if (userId == null || articleId == null) {
+            return 0;
+        }
+        ArticlePermissionIndex index = cacheService.getOrLoad(CommonConst.USER_ARTICLE_AUTH_CACHE + userId,
+                () -> ArticlePermissionIndex.of(lambdaQuery().eq(UserArticleAuth::getUserId, userId).list()),
+                CommonConst.EXPIRE);
+        return index == null ? 0 : index.getMask(articleId);
+    }
+
     /**
      * 创建或更新
-     *  - 根据 userId, articleId 判断是否已存在
-     *  - 如果存在则更新字段
-     *  - 如果不存在则插入新纪录
+     *  - 按 (user_id, article_id) 唯一索引原子地插入或更新，并发授权不会产生重复记录
+     *  - 为 null 的权限字段保持原值
+     *  - 写入后立即重建该用户的权限索引缓存，返回值按索引中的权限位组装，不再单独查询这一行
+     *  - 处于事务中时，事务结束（提交或回滚）后删除缓存，其他节点不会留下未提交的权限
      */
     @Override
     public UserArticleAuth createOrUpdate(UserArticleAuth userArticleAuth) {
+        baseMapper.upsert(userArticleAuth);
 
-        // 1. 先查是否已有记录
-        UserArticleAuth exist = findByUserAndArticle(
-                userArticleAuth.getUserId(),
-                userArticleAuth.getArticleId()
-        );
-
-        // 2. 如果已存在 -> 更新
-        if (exist != null) {
-            exist.setVip1(userArticleAuth.getVip1());
-            exist.setPay(userArticleAuth.getPay());
-            exist.setReply(userArticleAuth.getReply());
-
-            // 调用 mybatis-plus 的 updateById
-            this.updateById(exist);
-            return exist;
+        Integer userId = userArticleAuth.getUserId();
+        String key = CommonConst.USER_ARTICLE_AUTH_CACHE + userId;
+        ArticlePermissionIndex index = cacheService.reload(key,
+                () -> ArticlePermissionIndex.of(lambdaQuery().eq(UserArticleAuth::getUserId, userId).list()),
+                CommonConst.EXPIRE);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    cacheService.delete(key);
+                }
+            });
         }
 
-        // 3. 如果不存在 -> 插入
-        this.save(userArticleAuth);
-        return userArticleAuth;
+        int mask = index == null ? 0 : index.getMask(userArticleAuth.getArticleId());
+        UserArticleAuth result = new UserArticleAuth();
+        result.setId(userArticleAuth.getId());
+        result.setUserId(userId);
+        result.setArticleId(userArticleAuth.getArticleId());
+        result.setVip1((mask & ArticlePermissionIndex.VIP1) != 0 ? 1 : 0);
+        result.setPay((mask & ArticlePermissionIndex.PAY) != 0 ? 1 : 0);
+        result.setReply((mask & ArticlePermissionIndex.REPLY) != 0 ? 1 : 0);
+        return result;
     }
 
 }
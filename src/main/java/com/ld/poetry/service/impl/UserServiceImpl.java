@@ -18,6 +18,7 @@ import com.ld.poetry.im.http.entity.ImChatGroupUser;
 import com.ld.poetry.im.http.entity.ImChatUserFriend;
 import com.ld.poetry.im.websocket.ImConfigConst;
 import com.ld.poetry.im.websocket.TioWebsocketStarter;
+import com.ld.poetry.service.CacheService;
 import com.ld.poetry.service.UserService;
 import com.ld.poetry.service.WeiYanService;
 import com.ld.poetry.utils.*;
@@ -68,6 +69,9 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements Us
     @Autowired
     private MailUtil mailUtil;
 
+    @Autowired
+    private CacheService cacheService;
+
     @Value("${user.code.format}")
     private String codeFormat;
 
@@ -385,7 +389,7 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements Us
             }
 
             lambdaUpdate().eq(User::getPhoneNumber, place).set(User::getPassword, DigestUtils.md5DigestAsHex(password.getBytes())).update();
-            PoetryCache.remove(CommonConst.USER_CACHE + user.getId().toString());
+            cacheService.delete(CommonConst.USER_CACHE + user.getId().toString());
         } else if (flag == 2) {
             User user = lambdaQuery().eq(User::getEmail, place).one();
             if (user == null) {
@@ -397,7 +401,7 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements Us
             }
 
             lambdaUpdate().eq(User::getEmail, place).set(User::getPassword, DigestUtils.md5DigestAsHex(password.getBytes())).update();
-            PoetryCache.remove(CommonConst.USER_CACHE + user.getId().toString());
+            cacheService.delete(CommonConst.USER_CACHE + user.getId().toString());
         }
 
         return PoetryResult.success();
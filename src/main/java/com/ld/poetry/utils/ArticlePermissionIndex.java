@@ -0,0 +1,71 @@
+package com.ld.poetry.utils;
+
+import com.ld.poetry.entity.UserArticleAuth;
+import lombok.Data;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 用户的文章权限索引
+ * <p>
+ * 一个用户的全部 user_article_auth 记录压缩成两个按文章ID排序的 int 数组，
+ * 整体缓存，查询时二分查找，详情页不再逐篇查询数据库。
+ */
+@Data
+public class ArticlePermissionIndex {
+
+    /**
+     * 权限位：已评论、VIP、已付费
+     */
+    public static final int REPLY = 1 << 1;
+    public static final int VIP1 = 1 << 2;
+    public static final int PAY = 1 << 3;
+
+    private int[] articleIds = new int[0];
+
+    private int[] masks = new int[0];
+
+    public static ArticlePermissionIndex of(List<UserArticleAuth> auths) {
+        List<UserArticleAuth> sorted = auths.stream()
+                .filter(auth -> auth.getArticleId() != null)
+                .sorted(Comparator.comparing(UserArticleAuth::getArticleId))
+                .collect(Collectors.toList());
+        int[] articleIds = new int[sorted.size()];
+        int[] masks = new int[sorted.size()];
+        int size = 0;
+        for (UserArticleAuth auth : sorted) {
+            int mask = 0;
+            if (Integer.valueOf(1).equals(auth.getReply())) {
+                mask |= REPLY;
+            }
+            if (Integer.valueOf(1).equals(auth.getVip1())) {
+                mask |= VIP1;
+            }
+            if (Integer.valueOf(1).equals(auth.getPay())) {
+                mask |= PAY;
+            }
+            // 加唯一索引之前可能已有重复记录，合并它们的权限
+            if (size > 0 && articleIds[size - 1] == auth.getArticleId()) {
+                masks[size - 1] |= mask;
+            } else {
+                articleIds[size] = auth.getArticleId();
+                masks[size++] = mask;
+            }
+        }
+        ArticlePermissionIndex index = new ArticlePermissionIndex();
+        index.articleIds = Arrays.copyOf(articleIds, size);
+        index.masks = Arrays.copyOf(masks, size);
+        return index;
+    }
+
+    /**
+     * 对该文章的权限位，没有记录时为 0
+     */
+    public int getMask(int articleId) {
+        int i = Arrays.binarySearch(articleIds, articleId);
+        return i >= 0 ? masks[i] : 0;
+    }
+}
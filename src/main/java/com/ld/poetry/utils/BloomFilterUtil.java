@@ -1,13 +1,34 @@
 package com.ld.poetry.utils;
 
-import com.google.common.hash.BloomFilter;
-import com.google.common.hash.Funnels;
+import com.baomidou.mybatisplus.extension.conditions.query.LambdaQueryChainWrapper;
+import com.ld.poetry.dao.ArticleMapper;
+import com.ld.poetry.dao.CommentMapper;
+import com.ld.poetry.dao.UserMapper;
+import com.ld.poetry.entity.Article;
+import com.ld.poetry.entity.Comment;
+import com.ld.poetry.entity.User;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.PostConstruct;
-import java.nio.charset.Charset;
+import javax.annotation.PreDestroy;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.stream.Collectors;
 
 /**
  * 布隆过滤器工具类
@@ -32,15 +53,27 @@ import java.util.concurrent.ConcurrentHashMap;
  * - 布隆过滤器：第一层防护，快速过滤不存在的请求
  * - 缓存空对象：第二层防护，减少数据库查询
  * - 互斥锁：第三层防护，防止缓存击穿
+ *
+ * 持久化与扩容：
+ * - 启动时先从 Redis 快照恢复，再按主键分批补齐快照之后新增的数据，全量加载同样分批进行
+ * - 每分钟增量补齐一次新数据，有变化时写回快照，其他节点新增的数据也能被识别
+ * - 底层为 {@link ScalableBloomFilter}，插入量超过容量后自动追加新层，误判率不会失控
+ * - 加载完成前以及没有数据源的模块一律放行（返回可能存在），宁可多查一次数据库也不误拦
  */
 @Component
 @Slf4j
 public class BloomFilterUtil {
 
+    public static final String MODULE_ARTICLE = "article";
+
+    public static final String MODULE_USER = "user";
+
+    public static final String MODULE_COMMENT = "comment";
+
     /**
-     * 预期插入的数据量
+     * 第一层的预期插入量，写满后自动扩容
      */
-    private static final long EXPECTED_INSERTIONS = 1000000L;
+    private static final long INITIAL_CAPACITY = 100000L;
 
     /**
      * 误判率（0.01 表示 1%）
@@ -48,123 +81,321 @@ public class BloomFilterUtil {
     private static final double FALSE_POSITIVE_PROBABILITY = 0.01;
 
     /**
-     * 文章ID布隆过滤器
+     * 从数据库加载ID时每批的数量
      */
-    private BloomFilter<String> articleBloomFilter;
+    private static final int LOAD_BATCH_SIZE = 5000;
 
     /**
-     * 用户ID布隆过滤器
+     * 增量补齐时向前回看的ID数量，覆盖提交顺序和自增顺序不一致的事务
      */
-    private BloomFilter<String> userBloomFilter;
+    private static final int TOP_UP_LOOKBACK = 1000;
 
     /**
-     * 评论ID布隆过滤器
+     * 快照在 Redis 中的 key 前缀
      */
-    private BloomFilter<String> commentBloomFilter;
+    private static final String SNAPSHOT_KEY_PREFIX = "bloom:snapshot:";
+
+    private static final int SNAPSHOT_VERSION = 1;
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Autowired
+    private ArticleMapper articleMapper;
+
+    @Autowired
+    private UserMapper userMapper;
+
+    @Autowired
+    private CommentMapper commentMapper;
+
+    @Autowired
+    @Qualifier("cacheRefreshExecutor")
+    private Executor cacheRefreshExecutor;
 
     /**
      * 存储各个业务模块的布隆过滤器
      */
-    private final ConcurrentHashMap<String, BloomFilter<String>> bloomFilterMap = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, ModuleFilter> bloomFilterMap = new ConcurrentHashMap<>();
+
+    /**
+     * 各业务模块的数据源，按主键分批读取ID
+     */
+    private final Map<String, IdLoader> idLoaders = new LinkedHashMap<>();
 
     @PostConstruct
     public void init() {
-        // 初始化各个业务模块的布隆过滤器
-        articleBloomFilter = BloomFilter.create(
-                Funnels.stringFunnel(Charset.defaultCharset()),
-                EXPECTED_INSERTIONS,
-                FALSE_POSITIVE_PROBABILITY
-        );
-        
-        userBloomFilter = BloomFilter.create(
-                Funnels.stringFunnel(Charset.defaultCharset()),
-                EXPECTED_INSERTIONS,
-                FALSE_POSITIVE_PROBABILITY
-        );
-        
-        commentBloomFilter = BloomFilter.create(
-                Funnels.stringFunnel(Charset.defaultCharset()),
-                EXPECTED_INSERTIONS,
-                FALSE_POSITIVE_PROBABILITY
-        );
-
-        log.info("布隆过滤器初始化完成 - 预期插入量: {}, 误判率: {}", EXPECTED_INSERTIONS, FALSE_POSITIVE_PROBABILITY);
+        idLoaders.put(MODULE_ARTICLE, (afterId, limit) -> new LambdaQueryChainWrapper<>(articleMapper)
+                .select(Article::getId).gt(Article::getId, afterId).orderByAsc(Article::getId)
+                .last("limit " + limit).list().stream().map(Article::getId).collect(Collectors.toList()));
+        idLoaders.put(MODULE_USER, (afterId, limit) -> new LambdaQueryChainWrapper<>(userMapper)
+                .select(User::getId).gt(User::getId, afterId).orderByAsc(User::getId)
+                .last("limit " + limit).list().stream().map(User::getId).collect(Collectors.toList()));
+        idLoaders.put(MODULE_COMMENT, (afterId, limit) -> new LambdaQueryChainWrapper<>(commentMapper)
+                .select(Comment::getId).gt(Comment::getId, afterId).orderByAsc(Comment::getId)
+                .last("limit " + limit).list().stream().map(Comment::getId).collect(Collectors.toList()));
+
+        idLoaders.keySet().forEach(moduleName -> {
+            getOrCreateBloomFilter(moduleName);
+            cacheRefreshExecutor.execute(() -> load(moduleName));
+        });
+        log.info("布隆过滤器初始化完成 - 初始容量: {}, 误判率: {}, 模块: {}",
+                INITIAL_CAPACITY, FALSE_POSITIVE_PROBABILITY, idLoaders.keySet());
+    }
+
+    @PreDestroy
+    public void destroy() {
+        bloomFilterMap.forEach((moduleName, moduleFilter) -> {
+            if (moduleFilter.ready && moduleFilter.dirty) {
+                saveSnapshot(moduleName, moduleFilter);
+            }
+        });
     }
 
     /**
      * 添加文章ID到布隆过滤器
      */
     public void addArticleId(String articleId) {
-        articleBloomFilter.put("article:" + articleId);
+        add(MODULE_ARTICLE, articleId);
     }
 
     /**
      * 判断文章ID是否存在
      */
     public boolean mightContainArticleId(String articleId) {
-        return articleBloomFilter.mightContain("article:" + articleId);
+        return mightContain(MODULE_ARTICLE, articleId);
     }
 
     /**
      * 添加用户ID到布隆过滤器
      */
     public void addUserId(String userId) {
-        userBloomFilter.put("user:" + userId);
+        add(MODULE_USER, userId);
     }
 
     /**
      * 判断用户ID是否存在
      */
     public boolean mightContainUserId(String userId) {
-        return userBloomFilter.mightContain("user:" + userId);
+        return mightContain(MODULE_USER, userId);
     }
 
     /**
      * 添加评论ID到布隆过滤器
      */
     public void addCommentId(String commentId) {
-        commentBloomFilter.put("comment:" + commentId);
+        add(MODULE_COMMENT, commentId);
     }
 
     /**
      * 判断评论ID是否存在
      */
     public boolean mightContainCommentId(String commentId) {
-        return commentBloomFilter.mightContain("comment:" + commentId);
+        return mightContain(MODULE_COMMENT, commentId);
     }
 
     /**
      * 获取或创建指定业务模块的布隆过滤器
      */
-    public BloomFilter<String> getOrCreateBloomFilter(String moduleName) {
+    public ScalableBloomFilter getOrCreateBloomFilter(String moduleName) {
         return bloomFilterMap.computeIfAbsent(moduleName, k -> {
-            BloomFilter<String> filter = BloomFilter.create(
-                    Funnels.stringFunnel(Charset.defaultCharset()),
-                    EXPECTED_INSERTIONS,
-                    FALSE_POSITIVE_PROBABILITY
-            );
             log.info("创建布隆过滤器: {}", moduleName);
-            return filter;
-        });
+            return new ModuleFilter(new ScalableBloomFilter(INITIAL_CAPACITY, FALSE_POSITIVE_PROBABILITY));
+        }).filter;
     }
 
     /**
      * 添加数据到指定业务模块的布隆过滤器
      */
     public void add(String moduleName, String key) {
-        BloomFilter<String> filter = getOrCreateBloomFilter(moduleName);
-        filter.put(moduleName + ":" + key);
+        getOrCreateBloomFilter(moduleName).put(moduleName + ":" + key);
+        ModuleFilter moduleFilter = bloomFilterMap.get(moduleName);
+        if (moduleFilter != null) {
+            moduleFilter.dirty = true;
+        }
     }
 
     /**
      * 判断指定业务模块的数据是否存在
+     * <p>
+     * 模块没有数据源或尚未加载完成时无法判断，返回 true；
+     * 大于已加载最大ID的数据可能是其他节点刚写入、尚未增量补齐的，同样返回 true
      */
     public boolean mightContain(String moduleName, String key) {
-        BloomFilter<String> filter = bloomFilterMap.get(moduleName);
-        if (filter == null) {
+        ModuleFilter moduleFilter = bloomFilterMap.get(moduleName);
+        if (moduleFilter == null || !moduleFilter.ready) {
+            return true;
+        }
+        if (idLoaders.containsKey(moduleName)) {
+            try {
+                if (Integer.parseInt(key) > moduleFilter.maxId) {
+                    return true;
+                }
+            } catch (NumberFormatException e) {
+                return false;
+            }
+        }
+        return moduleFilter.filter.mightContain(moduleName + ":" + key);
+    }
+
+    /**
+     * 各业务模块的布隆过滤器状态：层数、容量、估算插入量、内存占用和估算误判率
+     */
+    public Map<String, Map<String, Object>> stats() {
+        Map<String, Map<String, Object>> stats = new LinkedHashMap<>();
+        bloomFilterMap.forEach((moduleName, moduleFilter) -> {
+            ScalableBloomFilter filter = moduleFilter.filter;
+            Map<String, Object> stat = new LinkedHashMap<>();
+            stat.put("ready", moduleFilter.ready);
+            stat.put("maxId", moduleFilter.maxId);
+            stat.put("stages", filter.getStageCount());
+            stat.put("capacity", filter.getCapacity());
+            stat.put("approximateElements", filter.getApproximateElementCount());
+            stat.put("memoryBytes", filter.getMemoryBytes());
+            stat.put("expectedFpp", filter.getExpectedFpp());
+            stats.put(moduleName, stat);
+        });
+        return stats;
+    }
+
+    /**
+     * 增量补齐各模块新增的数据，有变化时写回快照
+     */
+    @Scheduled(fixedDelay = 60000, initialDelay = 60000)
+    public void refresh() {
+        idLoaders.keySet().forEach(moduleName -> {
+            ModuleFilter moduleFilter = bloomFilterMap.get(moduleName);
+            if (moduleFilter == null || !moduleFilter.ready) {
+                return;
+            }
+            try {
+                topUp(moduleName, moduleFilter);
+                if (moduleFilter.dirty) {
+                    saveSnapshot(moduleName, moduleFilter);
+                }
+            } catch (Exception e) {
+                log.warn("布隆过滤器增量加载失败: {}", moduleName, e);
+            }
+        });
+    }
+
+    /**
+     * 恢复快照并补齐快照之后的数据，没有快照时从头分批加载
+     */
+    private void load(String moduleName) {
+        ModuleFilter moduleFilter = bloomFilterMap.get(moduleName);
+        long start = System.currentTimeMillis();
+        try {
+            boolean restored = restoreSnapshot(moduleName, moduleFilter);
+            topUp(moduleName, moduleFilter);
+            moduleFilter.ready = true;
+            if (!restored) {
+                saveSnapshot(moduleName, moduleFilter);
+            }
+            log.info("布隆过滤器加载完成 - 模块: {}, 快照恢复: {}, 最大ID: {}, 估算数量: {}, 耗时: {}ms",
+                    moduleName, restored, moduleFilter.maxId,
+                    moduleFilter.filter.getApproximateElementCount(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.error("布隆过滤器加载失败，该模块将放行所有请求: {}", moduleName, e);
+        }
+    }
+
+    /**
+     * 从 maxId 之前一段开始按主键分批读取ID，每批一次查询，不会一次性把整张表读进内存
+     */
+    private void topUp(String moduleName, ModuleFilter moduleFilter) {
+        IdLoader idLoader = idLoaders.get(moduleName);
+        int previousMaxId = moduleFilter.maxId;
+        int afterId = Math.max(0, previousMaxId - TOP_UP_LOOKBACK);
+        while (true) {
+            List<Integer> ids = idLoader.load(afterId, LOAD_BATCH_SIZE);
+            for (Integer id : ids) {
+                moduleFilter.filter.put(moduleName + ":" + id);
+            }
+            if (!ids.isEmpty()) {
+                afterId = ids.get(ids.size() - 1);
+            }
+            if (ids.size() < LOAD_BATCH_SIZE) {
+                break;
+            }
+        }
+        if (afterId > previousMaxId) {
+            moduleFilter.maxId = afterId;
+            moduleFilter.dirty = true;
+        }
+    }
+
+    private boolean restoreSnapshot(String moduleName, ModuleFilter moduleFilter) {
+        byte[] key = (SNAPSHOT_KEY_PREFIX + moduleName).getBytes(StandardCharsets.UTF_8);
+        byte[] bytes = redisTemplate.execute((RedisCallback<byte[]>) connection -> connection.get(key));
+        if (bytes == null) {
+            return false;
+        }
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            if (in.readInt() != SNAPSHOT_VERSION) {
+                return false;
+            }
+            int maxId = in.readInt();
+            moduleFilter.filter = ScalableBloomFilter.readFrom(in);
+            moduleFilter.maxId = maxId;
+            return true;
+        } catch (IOException e) {
+            log.warn("布隆过滤器快照损坏，重新加载: {}", moduleName, e);
             return false;
         }
-        return filter.mightContain(moduleName + ":" + key);
     }
-}
 
+    private void saveSnapshot(String moduleName, ModuleFilter moduleFilter) {
+        try {
+            moduleFilter.dirty = false;
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (DataOutputStream out = new DataOutputStream(bytes)) {
+                out.writeInt(SNAPSHOT_VERSION);
+                out.writeInt(moduleFilter.maxId);
+                moduleFilter.filter.writeTo(out);
+            }
+            byte[] key = (SNAPSHOT_KEY_PREFIX + moduleName).getBytes(StandardCharsets.UTF_8);
+            redisTemplate.execute((RedisCallback<Object>) connection -> connection.set(key, bytes.toByteArray()));
+        } catch (Exception e) {
+            moduleFilter.dirty = true;
+            log.warn("布隆过滤器快照保存失败: {}", moduleName, e);
+        }
+    }
+
+    /**
+     * 按主键分批读取ID
+     */
+    @FunctionalInterface
+    private interface IdLoader {
+        /**
+         * @param afterId 从大于该ID的数据开始
+         * @param limit   最多读取的数量
+         * @return 按ID升序排列
+         */
+        List<Integer> load(int afterId, int limit);
+    }
+
+    private static class ModuleFilter {
+
+        private volatile ScalableBloomFilter filter;
+
+        /**
+         * 已从数据源加载完成，判断结果可信
+         */
+        private volatile boolean ready;
+
+        /**
+         * 已加载的最大ID
+         */
+        private volatile int maxId;
+
+        /**
+         * 快照之后是否有新数据
+         */
+        private volatile boolean dirty;
+
+        ModuleFilter(ScalableBloomFilter filter) {
+            this.filter = filter;
+        }
+    }
+}
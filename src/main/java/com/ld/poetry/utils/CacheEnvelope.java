@@ -0,0 +1,48 @@
+package com.ld.poetry.utils;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 支持提前刷新的缓存值（XFetch 算法）
+ * <p>
+ * 除了数据本身，还记录回源耗时 delta 和逻辑过期时间 expiry。
+ * 读取时以 -delta * beta * ln(random) 的提前量判断是否需要刷新：
+ * 回源越慢、越接近过期，提前刷新的概率越大。
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CacheEnvelope implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 缓存数据
+     */
+    private Object value;
+
+    /**
+     * 回源耗时（毫秒）
+     */
+    private long delta;
+
+    /**
+     * 逻辑过期时间（毫秒时间戳），Redis 中的实际过期时间更晚，留出异步刷新的窗口
+     */
+    private long expiry;
+
+    /**
+     * 当前读取是否应该触发提前刷新
+     *
+     * @param beta 提前系数，越大越积极，1 为论文中的推荐值
+     */
+    public boolean shouldRefresh(double beta) {
+        double random = ThreadLocalRandom.current().nextDouble();
+        return System.currentTimeMillis() - delta * beta * Math.log(random) >= expiry;
+    }
+}
@@ -72,6 +72,12 @@ public class CommonConst {
      */
     public static final String SORT_INFO = "sortInfo";
 
+    /**
+     * 分类信息缓存过期时间：1小时（秒）
+     * 文章数量按增量维护，多节点并发修改时可能有偏差，过期后异步全量重建纠正
+     */
+    public static final long SORT_INFO_EXPIRE = 3600;
+
     /**
      * 密钥
      */
@@ -90,11 +96,51 @@ public class CommonConst {
      */
     public static final String COMMENT_COUNT_CACHE = "comment_count_";
 
+    /**
+     * 评论页：评论来源_楼层ID_每页条数_页码或游标
+     */
+    public static final String COMMENT_PAGE_CACHE = "comment_page_";
+
+    /**
+     * 评论页缓存的标签，按列表、最后一页、楼层预览分别失效
+     */
+    public static final String COMMENT_TAG = "comment:";
+
+    /**
+     * 评论页缓存过期时间，用户改名、换头像后最多这么久可见
+     */
+    public static final long COMMENT_PAGE_EXPIRE = 600;
+
     /**
      * 根据用户ID获取该用户所有文章ID
      */
     public static final String USER_ARTICLE_LIST = "user_article_list_";
 
+    /**
+     * 根据文章ID获取文章
+     */
+    public static final String ARTICLE_CACHE = "article_";
+
+    /**
+     * 按权限处理隐藏内容后的文章正文
+     */
+    public static final String ARTICLE_RENDER_CACHE = "article_render_";
+
+    /**
+     * 文章相关缓存的标签，文章修改、删除时按标签批量失效
+     */
+    public static final String ARTICLE_TAG = "article:";
+
+    /**
+     * 根据用户ID获取该用户对文章的权限索引
+     */
+    public static final String USER_ARTICLE_AUTH_CACHE = "user_article_auth_";
+
+    /**
+     * 文章缓存过期时间，浏览量随缓存刷新，不宜过长
+     */
+    public static final long ARTICLE_EXPIRE = 600;
+
     /**
      * 默认缓存过期时间
      */
@@ -115,6 +161,22 @@ public class CommonConst {
      */
     public static final int SUMMARY = 80;
 
+    /**
+     * 全文索引的分词长度，与 MySQL 的 ngram_token_size 一致，更短的关键词改用 LIKE 查询
+     */
+    public static final int NGRAM_TOKEN_SIZE = 2;
+
+    /**
+     * 搜索关键词最大长度
+     */
+    public static final int SEARCH_KEYWORDS_MAX_LENGTH = 50;
+
+    /**
+     * 搜索摘要取关键词前的字符数、摘要总长度
+     */
+    public static final int SEARCH_SNIPPET_BEFORE = 30;
+    public static final int SEARCH_SNIPPET_LENGTH = 120;
+
     /**
      * 留言的源
      */
@@ -1,21 +1,34 @@
 package com.ld.poetry.utils;
 
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.extension.conditions.query.LambdaQueryChainWrapper;
 import com.ld.poetry.dao.ArticleMapper;
 import com.ld.poetry.dao.CommentMapper;
 import com.ld.poetry.dao.LabelMapper;
 import com.ld.poetry.dao.SortMapper;
 import com.ld.poetry.entity.*;
+import com.ld.poetry.service.CacheService;
 import com.ld.poetry.service.UserService;
 
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 import org.springframework.util.CollectionUtils;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 
 
+@Slf4j
 @Component
 public class CommonQuery {
     @Autowired
@@ -33,17 +46,49 @@ public class CommonQuery {
     @Autowired
     private ArticleMapper articleMapper;
 
+    @Autowired
+    private CacheService cacheService;
+
+    @Autowired
+    @Qualifier("cacheRefreshExecutor")
+    private Executor cacheRefreshExecutor;
+
+    /**
+     * 分类标签信息是否需要重建，由定时任务合并处理
+     */
+    private final AtomicBoolean sortInfoDirty = new AtomicBoolean();
+
+    /**
+     * 是否有重建任务在执行，同一时刻最多一个
+     */
+    private final AtomicBoolean sortInfoRebuilding = new AtomicBoolean();
+
     public User getUser(Integer userId) {
-        User user = (User) PoetryCache.get(CommonConst.USER_CACHE + userId.toString());
-        if (user != null) {
-            return user;
-        }
-        User u = userService.getById(userId);
-        if (u != null) {
-            PoetryCache.put(CommonConst.USER_CACHE + userId.toString(), u, CommonConst.EXPIRE);
-            return u;
+        return cacheService.getOrLoad(CommonConst.USER_CACHE + userId.toString(), BloomFilterUtil.MODULE_USER, userId,
+                () -> userService.getById(userId), CommonConst.EXPIRE);
+    }
+
+    /**
+     * 批量获取用户，缓存未命中的用户用一次 selectBatchIds 查询
+     *
+     * @return 用户ID -> 用户，不存在的用户不在结果中
+     */
+    public Map<Integer, User> getUsers(Collection<Integer> userIds) {
+        Map<Integer, User> users = new HashMap<>();
+        if (CollectionUtils.isEmpty(userIds)) {
+            return users;
         }
-        return null;
+        List<String> keys = userIds.stream().filter(Objects::nonNull).distinct()
+                .map(userId -> CommonConst.USER_CACHE + userId).collect(Collectors.toList());
+        Map<String, User> cached = cacheService.getAll(keys, missingKeys -> {
+            List<Integer> ids = missingKeys.stream()
+                    .map(key -> Integer.valueOf(key.substring(CommonConst.USER_CACHE.length())))
+                    .collect(Collectors.toList());
+            return userService.listByIds(ids).stream()
+                    .collect(Collectors.toMap(user -> CommonConst.USER_CACHE + user.getId(), user -> user));
+        }, CommonConst.EXPIRE);
+        cached.values().forEach(user -> users.put(user.getId(), user));
+        return users;
     }
 
     public Integer getCommentCount(Integer source) {
@@ -57,6 +102,59 @@ public class CommonQuery {
         return c;
     }
 
+    /**
+     * 批量获取评论数量，缓存未命中的文章用一条 GROUP BY source 查询
+     *
+     * @return 文章ID -> 评论数量
+     */
+    public Map<Integer, Integer> getCommentCounts(Collection<Integer> sources) {
+        Map<Integer, Integer> counts = new HashMap<>();
+        if (CollectionUtils.isEmpty(sources)) {
+            return counts;
+        }
+        List<Integer> misses = new ArrayList<>();
+        sources.stream().filter(Objects::nonNull).distinct().forEach(source -> {
+            Integer count = (Integer) PoetryCache.get(CommonConst.COMMENT_COUNT_CACHE + source.toString());
+            if (count != null) {
+                counts.put(source, count);
+            } else {
+                misses.add(source);
+            }
+        });
+        if (misses.isEmpty()) {
+            return counts;
+        }
+
+        QueryWrapper<Comment> wrapper = new QueryWrapper<>();
+        wrapper.select("source", "count(*) as count").in("source", misses).groupBy("source");
+        Map<Integer, Integer> loaded = new HashMap<>();
+        commentMapper.selectMaps(wrapper).forEach(row ->
+                loaded.put(((Number) row.get("source")).intValue(), ((Number) row.get("count")).intValue()));
+        misses.forEach(source -> {
+            // 没有评论的文章不在分组结果中
+            Integer count = loaded.getOrDefault(source, 0);
+            PoetryCache.put(CommonConst.COMMENT_COUNT_CACHE + source.toString(), count, CommonConst.EXPIRE);
+            counts.put(source, count);
+        });
+        return counts;
+    }
+
+    /**
+     * 新增或删除评论后同步修改缓存中的评论数量，未缓存时不处理，下次读取时从数据库加载
+     *
+     * @param delta 新增为 1，删除为 -1
+     */
+    public synchronized void incrementCommentCount(Integer source, int delta) {
+        if (source == null) {
+            return;
+        }
+        String key = CommonConst.COMMENT_COUNT_CACHE + source.toString();
+        Integer count = (Integer) PoetryCache.get(key);
+        if (count != null) {
+            PoetryCache.put(key, Math.max(0, count + delta), CommonConst.EXPIRE);
+        }
+    }
+
     public List<Integer> getUserArticleIds(Integer userId) {
         List<Integer> ids = (List<Integer>) PoetryCache.get(CommonConst.USER_ARTICLE_LIST + userId.toString());
         if (ids != null) {
@@ -69,28 +167,164 @@ public class CommonQuery {
         return collect;
     }
 
-    public List<Sort> getSortInfo() {
-        List<Sort> sorts = new LambdaQueryChainWrapper<>(sortMapper).list();
-        if (!CollectionUtils.isEmpty(sorts)) {
-            sorts.forEach(sort -> {
-                LambdaQueryChainWrapper<Article> sortWrapper = new LambdaQueryChainWrapper<>(articleMapper);
-                Integer countOfSort = sortWrapper.eq(Article::getSortId, sort.getId()).eq(Article::getViewStatus, PoetryEnum.STATUS_ENABLE.getCode()).count();
-                sort.setCountOfSort(countOfSort);
-
-                LambdaQueryChainWrapper<Label> wrapper = new LambdaQueryChainWrapper<>(labelMapper);
-                List<Label> labels = wrapper.eq(Label::getSortId, sort.getId()).list();
-                if (!CollectionUtils.isEmpty(labels)) {
-                    labels.forEach(label -> {
-                        LambdaQueryChainWrapper<Article> labelWrapper = new LambdaQueryChainWrapper<>(articleMapper);
-                        Integer countOfLabel = labelWrapper.eq(Article::getLabelId, label.getId()).eq(Article::getViewStatus, PoetryEnum.STATUS_ENABLE.getCode()).count();
-                        label.setCountOfLabel(countOfLabel);
-                    });
-                    sort.setLabels(labels);
+    /**
+     * 读取缓存中的分类标签信息，缓存缺失时重建，临近过期时异步刷新
+     */
+    public List<Sort> getCachedSortInfo() {
+        return cacheService.getOrLoad(CommonConst.SORT_INFO, this::getSortInfo, CommonConst.SORT_INFO_EXPIRE);
+    }
+
+    /**
+     * 立即重建分类标签信息并写入缓存，其他节点的本地缓存随之失效，用于后台修改分类、标签
+     * <p>
+     * 重建期间读请求继续使用旧值，同时清除尚未处理的重建标记。
+     */
+    public List<Sort> refreshSortInfo() {
+        sortInfoDirty.set(false);
+        return rebuildSortInfo();
+    }
+
+    /**
+     * 标记分类标签信息需要重建，不阻塞调用方
+     * <p>
+     * 一个窗口期内的多次标记只触发一次重建，批量导入文章时不会反复查询数据库。
+     */
+    public void markSortInfoDirty() {
+        sortInfoDirty.set(true);
+    }
+
+    /**
+     * 每个窗口期检查一次重建标记，在缓存刷新线程池中重建
+     * <p>
+     * 上一次重建未结束时保留标记，下个窗口期再处理。
+     */
+    @Scheduled(fixedDelayString = "${poetry.cache.sort-info.refresh-window:5000}")
+    public void flushSortInfo() {
+        if (!sortInfoDirty.get() || !sortInfoRebuilding.compareAndSet(false, true)) {
+            return;
+        }
+        sortInfoDirty.set(false);
+        try {
+            cacheRefreshExecutor.execute(() -> {
+                try {
+                    rebuildSortInfo();
+                } catch (Exception e) {
+                    sortInfoDirty.set(true);
+                    log.warn("重建分类标签信息失败", e);
+                } finally {
+                    sortInfoRebuilding.set(false);
                 }
             });
-            return sorts;
-        } else {
+        } catch (Exception e) {
+            sortInfoDirty.set(true);
+            sortInfoRebuilding.set(false);
+            log.warn("提交分类标签信息重建任务失败", e);
+        }
+    }
+
+    /**
+     * 与 {@link #getCachedSortInfo} 写入同样的封装，重建后的缓存照常参与提前刷新
+     */
+    private List<Sort> rebuildSortInfo() {
+        return cacheService.reload(CommonConst.SORT_INFO, this::getSortInfo, CommonConst.SORT_INFO_EXPIRE);
+    }
+
+    /**
+     * 文章写入后按前后状态增量修改缓存中分类、标签的文章数量，只统计公开的文章
+     * <p>
+     * 缓存不存在时不处理，下次读取时全量重建；缓存中找不到对应的分类、标签时标记重建。
+     * 在 Redis 中比较并写入，多个节点同时修改时不会丢失计数。
+     *
+     * @param before 修改前的文章，新增时为 null
+     * @param after  修改后的文章，删除时为 null
+     */
+    public void applySortInfoChange(Article before, Article after) {
+        boolean wasCounted = before != null && Boolean.TRUE.equals(before.getViewStatus());
+        boolean isCounted = after != null && Boolean.TRUE.equals(after.getViewStatus());
+        if (!wasCounted && !isCounted) {
+            return;
+        }
+        if (wasCounted && isCounted
+                && Objects.equals(before.getSortId(), after.getSortId())
+                && Objects.equals(before.getLabelId(), after.getLabelId())) {
+            return;
+        }
+        AtomicBoolean applied = new AtomicBoolean(true);
+        // 传入的是从 Redis 反序列化出的新对象，可以直接修改；冲突重试时重新计算
+        cacheService.<List<Sort>>update(CommonConst.SORT_INFO, sortInfo -> {
+            boolean found = true;
+            if (wasCounted) {
+                found = adjustSortInfoCount(sortInfo, before.getSortId(), before.getLabelId(), -1);
+            }
+            if (isCounted) {
+                found &= adjustSortInfoCount(sortInfo, after.getSortId(), after.getLabelId(), 1);
+            }
+            applied.set(found);
+            return sortInfo;
+        });
+        if (!applied.get()) {
+            markSortInfoDirty();
+        }
+    }
+
+    /**
+     * @return 分类和标签都在缓存中找到时返回 true
+     */
+    private boolean adjustSortInfoCount(List<Sort> sortInfo, Integer sortId, Integer labelId, int delta) {
+        Sort sort = sortInfo.stream().filter(s -> Objects.equals(s.getId(), sortId)).findFirst().orElse(null);
+        if (sort == null) {
+            return false;
+        }
+        sort.setCountOfSort(Math.max(0, (sort.getCountOfSort() == null ? 0 : sort.getCountOfSort()) + delta));
+        Label label = sort.getLabels() == null ? null : sort.getLabels().stream()
+                .filter(l -> Objects.equals(l.getId(), labelId)).findFirst().orElse(null);
+        if (label == null) {
+            return false;
+        }
+        label.setCountOfLabel(Math.max(0, (label.getCountOfLabel() == null ? 0 : label.getCountOfLabel()) + delta));
+        return true;
+    }
+
+    /**
+     * 查询分类标签树及公开文章数量，共四条查询：分类、标签、按分类分组计数、按标签分组计数
+     */
+    public List<Sort> getSortInfo() {
+        List<Sort> sorts = new LambdaQueryChainWrapper<>(sortMapper).list();
+        if (CollectionUtils.isEmpty(sorts)) {
             return null;
         }
+        Map<Integer, List<Label>> labelsOfSort = new LambdaQueryChainWrapper<>(labelMapper).list().stream()
+                .filter(label -> label.getSortId() != null)
+                .collect(Collectors.groupingBy(Label::getSortId));
+        Map<Integer, Integer> countOfSort = countArticlesGroupBy("sort_id");
+        Map<Integer, Integer> countOfLabel = countArticlesGroupBy("label_id");
+
+        sorts.forEach(sort -> {
+            sort.setCountOfSort(countOfSort.getOrDefault(sort.getId(), 0));
+            List<Label> labels = labelsOfSort.get(sort.getId());
+            if (!CollectionUtils.isEmpty(labels)) {
+                labels.forEach(label -> label.setCountOfLabel(countOfLabel.getOrDefault(label.getId(), 0)));
+                sort.setLabels(labels);
+            }
+        });
+        return sorts;
+    }
+
+    /**
+     * 按列分组统计公开的文章数量
+     */
+    private Map<Integer, Integer> countArticlesGroupBy(String column) {
+        QueryWrapper<Article> wrapper = new QueryWrapper<>();
+        wrapper.select(column, "count(*) as count")
+                .eq("view_status", PoetryEnum.STATUS_ENABLE.getCode())
+                .groupBy(column);
+        Map<Integer, Integer> counts = new HashMap<>();
+        articleMapper.selectMaps(wrapper).forEach(row -> {
+            Object key = row.get(column);
+            if (key != null) {
+                counts.put(((Number) key).intValue(), ((Number) row.get("count")).intValue());
+            }
+        });
+        return counts;
     }
 }
@@ -0,0 +1,166 @@
+package com.ld.poetry.utils;
+
+import com.ld.poetry.service.CacheService;
+import lombok.extern.slf4j.Slf4j;
+import net.sf.jsqlparser.parser.CCJSqlParserUtil;
+import net.sf.jsqlparser.util.TablesNamesFinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * 总数缓存
+ * <p>
+ * 每张表在 Redis 中维护一个版本号，表被写入后版本号加一。
+ * 总数按 (涉及的表及其版本号, 查询指纹) 缓存，任何一张表变化后旧的总数自然失效，等待过期。
+ * Redis 不可用时直接查询数据库。
+ */
+@Slf4j
+@Component
+public class CountCacheUtil {
+
+    private static final String GENERATION_PREFIX = "count:gen:";
+
+    private static final String COUNT_PREFIX = "count:";
+
+    /**
+     * 总数缓存过期时间（秒），版本号变化后旧值只占用空间，不会被读到
+     */
+    private static final long COUNT_EXPIRE = 600;
+
+    /**
+     * 解析结果缓存的最大条数，动态 SQL 的种类有限，超出时清空重来
+     */
+    private static final int MAX_PARSED_SQL = 2000;
+
+    private final Map<String, Set<String>> tablesOfSql = new ConcurrentHashMap<>();
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Lazy
+    @Autowired
+    private CacheService cacheService;
+
+    /**
+     * 生成总数缓存的键，包含各表当前的版本号
+     * <p>
+     * 须在查询总数之前生成并用于随后的写入：查询期间有写入时结果记在旧版本号下，不会被读到。
+     *
+     * @param tables      查询涉及的表
+     * @param fingerprint 查询指纹（SQL 和参数值）
+     * @return 无法确定涉及的表或读取版本号失败时返回 null，此时不使用缓存
+     */
+    public String getCountKey(Collection<String> tables, String fingerprint) {
+        if (tables.isEmpty()) {
+            return null;
+        }
+        List<String> sortedTables = new ArrayList<>(new TreeSet<>(tables));
+        List<String> generations;
+        try {
+            generations = stringRedisTemplate.opsForValue().multiGet(
+                    sortedTables.stream().map(table -> GENERATION_PREFIX + table).collect(Collectors.toList()));
+        } catch (Exception e) {
+            log.warn("读取总数缓存版本号失败: tables={}", sortedTables, e);
+            return null;
+        }
+        if (generations == null) {
+            return null;
+        }
+        StringBuilder key = new StringBuilder(COUNT_PREFIX);
+        for (int i = 0; i < sortedTables.size(); i++) {
+            String generation = generations.get(i);
+            key.append(sortedTables.get(i)).append('@').append(generation == null ? "0" : generation).append(':');
+        }
+        return key.append(DigestUtils.md5DigestAsHex(fingerprint.getBytes(StandardCharsets.UTF_8))).toString();
+    }
+
+    /**
+     * 读取缓存的总数，未缓存或读取失败时返回 null
+     */
+    public Long get(String countKey) {
+        try {
+            Number count = cacheService.get(countKey, Number.class);
+            return count == null ? null : count.longValue();
+        } catch (Exception e) {
+            log.warn("读取总数缓存失败: key={}", countKey, e);
+            return null;
+        }
+    }
+
+    public void put(String countKey, long count) {
+        try {
+            cacheService.set(countKey, count, COUNT_EXPIRE);
+        } catch (Exception e) {
+            log.warn("写入总数缓存失败: key={}", countKey, e);
+        }
+    }
+
+    /**
+     * 查询单表总数，优先使用缓存
+     */
+    public long count(String table, String fingerprint, Supplier<? extends Number> counter) {
+        String countKey = getCountKey(Collections.singletonList(table), fingerprint);
+        if (countKey != null) {
+            Long count = get(countKey);
+            if (count != null) {
+                return count;
+            }
+        }
+        long loaded = counter.get().longValue();
+        if (countKey != null) {
+            put(countKey, loaded);
+        }
+        return loaded;
+    }
+
+    /**
+     * 表被写入后调用，使相关的总数缓存失效
+     */
+    public void bump(Collection<String> tables) {
+        for (String table : tables) {
+            try {
+                stringRedisTemplate.opsForValue().increment(GENERATION_PREFIX + table);
+            } catch (Exception e) {
+                log.warn("更新总数缓存版本号失败: table={}", table, e);
+            }
+        }
+    }
+
+    /**
+     * 解析 SQL 涉及的表名（小写，去掉反引号），解析失败时返回空集合
+     */
+    public Set<String> getTables(String sql) {
+        Set<String> tables = tablesOfSql.get(sql);
+        if (tables != null) {
+            return tables;
+        }
+        try {
+            tables = new TablesNamesFinder().getTableList(CCJSqlParserUtil.parse(sql)).stream()
+                    .map(name -> name.replace("`", "").toLowerCase())
+                    .collect(Collectors.toCollection(TreeSet::new));
+        } catch (Exception e) {
+            log.debug("解析 SQL 表名失败: {}", sql, e);
+            tables = Collections.emptySet();
+        }
+        if (tablesOfSql.size() >= MAX_PARSED_SQL) {
+            tablesOfSql.clear();
+        }
+        tablesOfSql.put(sql, tables);
+        return tables;
+    }
+}
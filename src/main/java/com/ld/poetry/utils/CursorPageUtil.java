@@ -0,0 +1,110 @@
+package com.ld.poetry.utils;
+
+import com.baomidou.mybatisplus.core.toolkit.support.SFunction;
+import com.baomidou.mybatisplus.extension.conditions.query.LambdaQueryChainWrapper;
+import com.ld.poetry.handle.PoetryRuntimeException;
+import com.ld.poetry.vo.BaseRequestVO;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * 游标分页（Keyset 分页）
+ * <p>
+ * 请求中带上 cursor 即启用（首页传空字符串）：按 (create_time, id) 定位上一页的最后一条，
+ * 查询 size + 1 条判断是否还有下一页，不执行 COUNT，翻到多深都只扫描一页的数据。
+ * 需要 (过滤列, create_time) 的联合索引配合，见 Ablaze.sql。
+ */
+public class CursorPageUtil {
+
+    /**
+     * 单页最大条数
+     */
+    private static final int MAX_SIZE = 100;
+
+    private static final String SEPARATOR = "_";
+
+    /**
+     * 请求是否使用游标分页
+     */
+    public static boolean isCursorMode(BaseRequestVO baseRequestVO) {
+        return baseRequestVO.getCursor() != null;
+    }
+
+    /**
+     * 按游标查询一页，结果写回 baseRequestVO 的 records、nextCursor 和 hasMore
+     *
+     * @param timeColumn 排序的时间列
+     * @param idColumn   主键列，时间相同时用于确定顺序
+     * @param asc        是否按时间正序
+     */
+    public static <T> void page(LambdaQueryChainWrapper<T> wrapper, BaseRequestVO baseRequestVO,
+                                SFunction<T, LocalDateTime> timeColumn, SFunction<T, Integer> idColumn, boolean asc) {
+        int size = (int) Math.min(Math.max(baseRequestVO.getSize(), 1), MAX_SIZE);
+        String cursor = baseRequestVO.getCursor();
+        if (cursor != null && !cursor.isEmpty()) {
+            LocalDateTime time;
+            Integer id;
+            try {
+                String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int index = decoded.lastIndexOf(SEPARATOR);
+                time = LocalDateTime.parse(decoded.substring(0, index));
+                id = Integer.valueOf(decoded.substring(index + 1));
+            } catch (Exception e) {
+                throw new PoetryRuntimeException("分页游标无效！");
+            }
+            if (asc) {
+                wrapper.and(w -> w.gt(timeColumn, time).or(o -> o.eq(timeColumn, time).gt(idColumn, id)));
+            } else {
+                wrapper.and(w -> w.lt(timeColumn, time).or(o -> o.eq(timeColumn, time).lt(idColumn, id)));
+            }
+        }
+        if (asc) {
+            wrapper.orderByAsc(timeColumn).orderByAsc(idColumn);
+        } else {
+            wrapper.orderByDesc(timeColumn).orderByDesc(idColumn);
+        }
+
+        List<T> records = wrapper.last("limit " + (size + 1)).list();
+        boolean hasMore = records.size() > size;
+        if (hasMore) {
+            records = new ArrayList<>(records.subList(0, size));
+        }
+        baseRequestVO.setSize(size);
+        baseRequestVO.setSearchCount(false);
+        baseRequestVO.setRecords(records);
+        baseRequestVO.setHasMore(hasMore);
+        if (hasMore) {
+            T last = records.get(records.size() - 1);
+            baseRequestVO.setNextCursor(encode(timeColumn.apply(last), idColumn.apply(last)));
+        } else {
+            baseRequestVO.setNextCursor(null);
+        }
+    }
+
+    /**
+     * 游标中的主键，游标无效时返回 null
+     */
+    public static Integer getId(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            return Integer.valueOf(decoded.substring(decoded.lastIndexOf(SEPARATOR) + 1));
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * 生成指向该记录的游标，与 {@link #page} 返回的 nextCursor 格式一致
+     */
+    public static String encode(LocalDateTime time, Integer id) {
+        String raw = time + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,207 @@
+package com.ld.poetry.utils;
+
+import java.util.function.Predicate;
+
+/**
+ * 文章隐藏内容处理器
+ * <p>
+ * 单遍扫描 [hidecontent type="xxx" ...]...[/hidecontent]，结果直接写入预分配的 StringBuilder：
+ * 开标签上追加 isshow="true|false"，有权限时保留内容，没有权限时清空内容，闭标签原样保留。
+ * <p>
+ * 标签语法与原来的正则一致：hidecontent 后至少一个空白字符，紧接 type=，类型值可带单/双引号，
+ * 其余属性原样保留到第一个 ]。边界情况的处理：
+ * <ul>
+ *     <li>嵌套：按层级配对，内层在外层有权限时同样按权限处理</li>
+ *     <li>开标签多于闭标签：退回与之后第一个闭标签配对，隐藏内容不会因为漏写闭标签而外泄</li>
+ *     <li>没有闭标签的开标签、不合语法的开标签、多余的闭标签：按普通文本输出</li>
+ * </ul>
+ * {@link #strip} 用于搜索摘要等匿名场景，隐藏内容连同标签一起去掉。
+ */
+public class HiddenContentRenderer {
+
+    private static final String OPEN_TAG = "[hidecontent";
+
+    private static final String CLOSE_TAG = "[/hidecontent]";
+
+    private static final String TYPE_ATTR = "type=";
+
+    /**
+     * 每个标签追加 isshow 属性的预留长度
+     */
+    private static final int EXTRA_CAPACITY = 64;
+
+    private final String content;
+
+    private final Predicate<String> permission;
+
+    private final StringBuilder out;
+
+    /**
+     * 是否输出标签，为 false 时只输出有权限的内容
+     */
+    private final boolean keepTags;
+
+    /**
+     * 最近一次 parseOpenTag 解析出的类型值位置
+     */
+    private int typeStart;
+
+    private int typeEnd;
+
+    private HiddenContentRenderer(String content, Predicate<String> permission, boolean keepTags) {
+        this.content = content;
+        this.permission = permission;
+        this.keepTags = keepTags;
+        this.out = new StringBuilder(content.length() + EXTRA_CAPACITY);
+    }
+
+    /**
+     * @param permission 按小写的类型值判断是否有权限查看
+     */
+    public static String render(String content, Predicate<String> permission) {
+        if (content == null || content.indexOf(OPEN_TAG) < 0) {
+            return content;
+        }
+        HiddenContentRenderer renderer = new HiddenContentRenderer(content, permission, true);
+        renderer.render(0, content.length());
+        return renderer.out.toString();
+    }
+
+    /**
+     * 按未登录用户的权限去掉所有隐藏内容和标签，只留公开的正文
+     */
+    public static String strip(String content) {
+        if (content == null || content.indexOf(OPEN_TAG) < 0) {
+            return content;
+        }
+        HiddenContentRenderer renderer = new HiddenContentRenderer(content, type -> false, false);
+        renderer.render(0, content.length());
+        return renderer.out.toString();
+    }
+
+    private void render(int from, int to) {
+        int i = from;
+        while (i < to) {
+            int open = content.indexOf(OPEN_TAG, i);
+            if (open < 0 || open >= to) {
+                break;
+            }
+            int tagEnd = parseOpenTag(open, to);
+            if (tagEnd < 0) {
+                // 不合语法，跳过这个 [ 继续查找
+                out.append(content, i, open + 1);
+                i = open + 1;
+                continue;
+            }
+            String type = content.substring(typeStart, typeEnd).toLowerCase();
+            int close = findClose(tagEnd, to);
+            if (close < 0) {
+                break;
+            }
+            boolean show = permission.test(type);
+
+            if (keepTags) {
+                out.append(content, i, tagEnd - 1)
+                        .append(" isshow=\"").append(show).append("\"]");
+            } else {
+                out.append(content, i, open);
+            }
+            if (show) {
+                render(tagEnd, close);
+            }
+            if (keepTags) {
+                out.append(CLOSE_TAG);
+            }
+            i = close + CLOSE_TAG.length();
+        }
+        if (i < to) {
+            out.append(content, i, to);
+        }
+    }
+
+    /**
+     * 解析 open 处的开标签
+     *
+     * @return 开标签结束位置（] 之后），不合语法时返回 -1
+     */
+    private int parseOpenTag(int open, int to) {
+        int p = open + OPEN_TAG.length();
+        if (p >= to || !isSpace(content.charAt(p))) {
+            return -1;
+        }
+        while (p < to && isSpace(content.charAt(p))) {
+            p++;
+        }
+        if (!content.startsWith(TYPE_ATTR, p)) {
+            return -1;
+        }
+        p += TYPE_ATTR.length();
+        if (p < to && isQuote(content.charAt(p))) {
+            p++;
+        }
+        int start = p;
+        while (p < to && isWord(content.charAt(p))) {
+            p++;
+        }
+        if (p == start) {
+            return -1;
+        }
+        int bracket = content.indexOf(']', p);
+        if (bracket < 0 || bracket >= to) {
+            return -1;
+        }
+        typeStart = start;
+        typeEnd = p;
+        return bracket + 1;
+    }
+
+    /**
+     * 查找与开标签配对的闭标签位置，层级不平衡时退回之后第一个闭标签，没有闭标签时返回 -1
+     */
+    private int findClose(int from, int to) {
+        int depth = 1;
+        int p = from;
+        while (p < to) {
+            int bracket = content.indexOf('[', p);
+            if (bracket < 0 || bracket >= to) {
+                break;
+            }
+            if (content.startsWith(CLOSE_TAG, bracket) && bracket + CLOSE_TAG.length() <= to) {
+                if (--depth == 0) {
+                    return bracket;
+                }
+                p = bracket + CLOSE_TAG.length();
+            } else if (content.startsWith(OPEN_TAG, bracket)) {
+                int tagEnd = parseOpenTag(bracket, to);
+                if (tagEnd > 0) {
+                    depth++;
+                    p = tagEnd;
+                } else {
+                    p = bracket + 1;
+                }
+            } else {
+                p = bracket + 1;
+            }
+        }
+        int close = content.indexOf(CLOSE_TAG, from);
+        return close >= 0 && close + CLOSE_TAG.length() <= to ? close : -1;
+    }
+
+    /**
+     * 与正则的 \s 一致
+     */
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    private static boolean isQuote(char c) {
+        return c == '"' || c == '\'';
+    }
+
+    /**
+     * 与正则的 \w 一致
+     */
+    private static boolean isWord(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+    }
+}
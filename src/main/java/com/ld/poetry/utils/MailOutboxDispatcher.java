@@ -0,0 +1,240 @@
+package com.ld.poetry.utils;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
+import com.ld.poetry.dao.MailOutboxMapper;
+import com.ld.poetry.entity.MailOutbox;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.CollectionUtils;
+
+import javax.mail.internet.MimeMessage;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * 发件箱投递
+ * <p>
+ * 定时从 mail_outbox 取一批到期的通知，在 mailExecutor 上渲染并发送：
+ * <ul>
+ *     <li>认领：按 (id, 状态, 修改时间) 条件更新为发送中，多个节点不会重复认领</li>
+ *     <li>合并：同一批里发给同一邮箱的通知合成一封邮件，整批邮件通过同一个 SMTP 连接发送</li>
+ *     <li>限流：每个邮箱每天最多 {@link CommonConst#COMMENT_IM_MAIL_COUNT} 封，超出的通知标记为已跳过</li>
+ *     <li>重试：发送失败按指数退避重试，超过次数后标记为失败</li>
+ * </ul>
+ * 进程在发送中途退出时，发送中的记录超时后重新认领，通知至少投递一次。
+ */
+@Slf4j
+@Component
+public class MailOutboxDispatcher {
+
+    /**
+     * 发送中超过该时间（分钟）视为进程已中断，重新认领
+     */
+    private static final long SENDING_TIMEOUT_MINUTES = 10;
+
+    /**
+     * 重试间隔基数（秒），每次失败翻倍
+     */
+    private static final long RETRY_BASE_SECONDS = 30;
+
+    /**
+     * 已发送、已跳过的记录保留天数
+     */
+    private static final long KEEP_DAYS = 7;
+
+    private static final int MAX_ERROR_LENGTH = 512;
+
+    private static final String[] STATUS_NAMES = {"pending", "sending", "sent", "skipped", "failed"};
+
+    @Autowired
+    private MailOutboxMapper mailOutboxMapper;
+
+    @Autowired
+    private MailSendUtil mailSendUtil;
+
+    @Autowired
+    private MailUtil mailUtil;
+
+    @Autowired
+    @Qualifier("mailExecutor")
+    private Executor mailExecutor;
+
+    @Value("${poetry.mail.outbox.batch-size:50}")
+    private int batchSize;
+
+    @Value("${poetry.mail.outbox.max-retries:5}")
+    private int maxRetries;
+
+    private final AtomicBoolean dispatching = new AtomicBoolean(false);
+
+    /**
+     * 上一批处理完之前不再提交新的一批
+     */
+    @Scheduled(fixedDelayString = "${poetry.mail.outbox.poll-interval:2000}")
+    public void poll() {
+        if (!dispatching.compareAndSet(false, true)) {
+            return;
+        }
+        mailExecutor.execute(() -> {
+            try {
+                dispatch();
+            } catch (Exception e) {
+                log.error("投递发件箱失败：", e);
+            } finally {
+                dispatching.set(false);
+            }
+        });
+    }
+
+    /**
+     * 清理已结束的记录，失败的记录保留以便排查
+     */
+    @Scheduled(cron = "0 30 3 * * ?")
+    public void purge() {
+        mailOutboxMapper.delete(new LambdaQueryWrapper<MailOutbox>()
+                .in(MailOutbox::getStatus, MailOutbox.STATUS_SENT, MailOutbox.STATUS_SKIPPED)
+                .lt(MailOutbox::getUpdateTime, LocalDateTime.now().minusDays(KEEP_DAYS)));
+    }
+
+    private void dispatch() {
+        LocalDateTime now = LocalDateTime.now();
+        List<MailOutbox> due = mailOutboxMapper.selectList(new LambdaQueryWrapper<MailOutbox>()
+                .and(w -> w.eq(MailOutbox::getStatus, MailOutbox.STATUS_PENDING).le(MailOutbox::getNextSendTime, now)
+                        .or(o -> o.eq(MailOutbox::getStatus, MailOutbox.STATUS_SENDING)
+                                .lt(MailOutbox::getUpdateTime, now.minusMinutes(SENDING_TIMEOUT_MINUTES))))
+                .orderByAsc(MailOutbox::getId)
+                .last("limit " + batchSize));
+        if (CollectionUtils.isEmpty(due)) {
+            return;
+        }
+
+        Map<String, List<MailOutbox>> byAddress = new LinkedHashMap<>();
+        for (MailOutbox outbox : due) {
+            if (!claim(outbox)) {
+                continue;
+            }
+            String address;
+            try {
+                address = mailSendUtil.getMailAddress(outbox);
+            } catch (Exception e) {
+                fail(Collections.singletonList(outbox), e);
+                continue;
+            }
+            if (address == null) {
+                finish(Collections.singletonList(outbox), MailOutbox.STATUS_SKIPPED, null);
+            } else {
+                byAddress.computeIfAbsent(address, k -> new ArrayList<>()).add(outbox);
+            }
+        }
+        send(byAddress);
+    }
+
+    private boolean claim(MailOutbox outbox) {
+        return mailOutboxMapper.update(null, new LambdaUpdateWrapper<MailOutbox>()
+                .set(MailOutbox::getStatus, MailOutbox.STATUS_SENDING)
+                .set(MailOutbox::getUpdateTime, LocalDateTime.now())
+                .eq(MailOutbox::getId, outbox.getId())
+                .eq(MailOutbox::getStatus, outbox.getStatus())
+                .eq(MailOutbox::getUpdateTime, outbox.getUpdateTime())) > 0;
+    }
+
+    /**
+     * 渲染后通过同一个 SMTP 连接批量发送
+     */
+    private void send(Map<String, List<MailOutbox>> byAddress) {
+        List<String> addresses = new ArrayList<>();
+        List<MimeMessage> messages = new ArrayList<>();
+        byAddress.forEach((address, outboxes) -> {
+            AtomicInteger count = (AtomicInteger) PoetryCache.get(CommonConst.COMMENT_IM_MAIL + address);
+            if (count != null && count.get() >= CommonConst.COMMENT_IM_MAIL_COUNT) {
+                finish(outboxes, MailOutbox.STATUS_SKIPPED, "超过每日通知上限");
+                return;
+            }
+            try {
+                String text = outboxes.stream().map(mailSendUtil::renderMail).collect(Collectors.joining());
+                messages.add(mailUtil.createMessage(Collections.singletonList(address), mailSendUtil.getMailSubject(), text));
+                addresses.add(address);
+            } catch (Exception e) {
+                fail(outboxes, e);
+            }
+        });
+        if (messages.isEmpty()) {
+            return;
+        }
+
+        List<Exception> results = mailUtil.sendBatch(messages);
+        for (int i = 0; i < addresses.size(); i++) {
+            String address = addresses.get(i);
+            List<MailOutbox> outboxes = byAddress.get(address);
+            Exception error = results.get(i);
+            if (error != null) {
+                log.warn("发送通知邮件失败：to={}, ids={}", address,
+                        outboxes.stream().map(MailOutbox::getId).collect(Collectors.toList()), error);
+                fail(outboxes, error);
+                continue;
+            }
+            finish(outboxes, MailOutbox.STATUS_SENT, null);
+            AtomicInteger count = (AtomicInteger) PoetryCache.get(CommonConst.COMMENT_IM_MAIL + address);
+            if (count == null) {
+                PoetryCache.put(CommonConst.COMMENT_IM_MAIL + address, new AtomicInteger(1), CommonConst.TOKEN_EXPIRE * 4);
+            } else {
+                count.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * 各状态的记录数
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        mailOutboxMapper.selectMaps(new QueryWrapper<MailOutbox>().select("status", "count(*) as count").groupBy("status"))
+                .forEach(row -> stats.put(STATUS_NAMES[((Number) row.get("status")).intValue()], row.get("count")));
+        return stats;
+    }
+
+    private void finish(List<MailOutbox> outboxes, int status, String reason) {
+        mailOutboxMapper.update(null, new LambdaUpdateWrapper<MailOutbox>()
+                .set(MailOutbox::getStatus, status)
+                .set(MailOutbox::getLastError, reason)
+                .set(MailOutbox::getUpdateTime, LocalDateTime.now())
+                .in(MailOutbox::getId, outboxes.stream().map(MailOutbox::getId).collect(Collectors.toList())));
+    }
+
+    private void fail(List<MailOutbox> outboxes, Exception e) {
+        String error = String.valueOf(e.getMessage());
+        if (error.length() > MAX_ERROR_LENGTH) {
+            error = error.substring(0, MAX_ERROR_LENGTH);
+        }
+        LocalDateTime now = LocalDateTime.now();
+        for (MailOutbox outbox : outboxes) {
+            int retryCount = outbox.getRetryCount() == null ? 1 : outbox.getRetryCount() + 1;
+            MailOutbox update = new MailOutbox();
+            update.setId(outbox.getId());
+            update.setRetryCount(retryCount);
+            update.setLastError(error);
+            update.setUpdateTime(now);
+            if (retryCount > maxRetries) {
+                update.setStatus(MailOutbox.STATUS_FAILED);
+            } else {
+                update.setStatus(MailOutbox.STATUS_PENDING);
+                update.setNextSendTime(now.plusSeconds(RETRY_BASE_SECONDS << Math.min(retryCount - 1, 10)));
+            }
+            mailOutboxMapper.updateById(update);
+        }
+    }
+}
@@ -2,22 +2,26 @@ package com.ld.poetry.utils;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
-import org.springframework.util.CollectionUtils;
 import org.springframework.util.StringUtils;
 
+import com.ld.poetry.dao.CommentMapper;
+import com.ld.poetry.dao.MailOutboxMapper;
 import com.ld.poetry.entity.Article;
 import com.ld.poetry.entity.Comment;
+import com.ld.poetry.entity.MailOutbox;
 import com.ld.poetry.entity.User;
 import com.ld.poetry.entity.WebInfo;
 import com.ld.poetry.im.http.entity.ImChatUserMessage;
-import com.ld.poetry.service.CommentService;
 import com.ld.poetry.vo.CommentVO;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.time.LocalDateTime;
 import java.util.Objects;
-import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * 评论、IM 通知邮件
+ * <p>
+ * send* 只把通知写入发件箱，查询收件人、渲染模板和发送都由 {@link MailOutboxDispatcher} 在 mailExecutor 上完成。
+ */
 @Component
 public class MailSendUtil {
 
@@ -25,49 +29,97 @@ public class MailSendUtil {
     private CommonQuery commonQuery;
 
     @Autowired
-    private MailUtil mailUtil;
+    private CommentMapper commentMapper;
 
-    public void sendCommentMail(CommentVO commentVO, Article one, CommentService commentService) {
-        List<String> mail = new ArrayList<>();
-        String toName = "";
+    @Autowired
+    private MailOutboxMapper mailOutboxMapper;
+
+    /**
+     * 评论通知写入发件箱，须在请求线程中调用（要取当前用户）
+     *
+     * @param one 评论的文章，留言时为空
+     */
+    public void sendCommentMail(CommentVO commentVO, Article one) {
+        MailOutbox outbox = new MailOutbox();
+        outbox.setMailType(MailOutbox.TYPE_COMMENT);
         if (commentVO.getParentUserId() != null) {
-            User user = commonQuery.getUser(commentVO.getParentUserId());
-            if (user != null && !user.getId().equals(PoetryUtil.getUserId()) && StringUtils.hasText(user.getEmail())) {
-                toName = user.getUsername();
-                mail.add(user.getEmail());
-            }
-        } else {
-            if (one == null) {
-                User adminUser = PoetryUtil.getAdminUser();
-                if (StringUtils.hasText(adminUser.getEmail()) && !Objects.equals(PoetryUtil.getUserId(), adminUser.getId())) {
-                    mail.add(adminUser.getEmail());
-                }
-            } else {
-                User user = commonQuery.getUser(one.getUserId());
-                if (user != null && StringUtils.hasText(user.getEmail()) && !user.getId().equals(PoetryUtil.getUserId())) {
-                    mail.add(user.getEmail());
-                }
+            outbox.setToUserId(commentVO.getParentUserId());
+            outbox.setToCommentId(commentVO.getParentCommentId());
+        } else if (one != null) {
+            outbox.setToUserId(one.getUserId());
+        }
+        outbox.setFromUserId(PoetryUtil.getUserId());
+        outbox.setFromName(PoetryUtil.getUsername());
+        outbox.setSourceTitle(one == null ? null : one.getArticleTitle());
+        outbox.setContent(commentVO.getCommentContent());
+        enqueue(outbox);
+    }
+
+    /**
+     * 未读的 IM 消息写入发件箱
+     */
+    public void sendImMail(ImChatUserMessage message) {
+        if (!message.getMessageStatus()) {
+            MailOutbox outbox = new MailOutbox();
+            outbox.setMailType(MailOutbox.TYPE_IM);
+            outbox.setToUserId(message.getToId());
+            outbox.setFromUserId(message.getFromId());
+            outbox.setContent(message.getContent());
+            enqueue(outbox);
+        }
+    }
+
+    private void enqueue(MailOutbox outbox) {
+        outbox.setStatus(MailOutbox.STATUS_PENDING);
+        outbox.setRetryCount(0);
+        outbox.setNextSendTime(LocalDateTime.now());
+        mailOutboxMapper.insert(outbox);
+    }
+
+    /**
+     * 通知的收件邮箱，没有邮箱或收件人就是发件人时返回 null
+     */
+    public String getMailAddress(MailOutbox outbox) {
+        User user = outbox.getToUserId() == null ? PoetryUtil.getAdminUser() : commonQuery.getUser(outbox.getToUserId());
+        if (user == null || !StringUtils.hasText(user.getEmail())) {
+            return null;
+        }
+        if (outbox.getMailType() == MailOutbox.TYPE_COMMENT && Objects.equals(user.getId(), outbox.getFromUserId())) {
+            return null;
+        }
+        return user.getEmail();
+    }
+
+    /**
+     * 渲染通知邮件正文
+     */
+    public String renderMail(MailOutbox outbox) {
+        if (outbox.getMailType() == MailOutbox.TYPE_IM) {
+            String username = "";
+            User fromUser = commonQuery.getUser(outbox.getFromUserId());
+            if (fromUser != null) {
+                username = fromUser.getUsername();
             }
+            return getImMail(username, outbox.getContent());
         }
 
-        if (!CollectionUtils.isEmpty(mail)) {
-            String commentMail = getCommentMail(one == null ? String.valueOf(CommonConst.TREE_HOLE_COMMENT_SOURCE) : one.getArticleTitle(),
-                    PoetryUtil.getUsername(),
-                    commentVO.getCommentContent(),
-                    toName,
-                    commentVO.getParentCommentId(), commentService);
-
-            AtomicInteger count = (AtomicInteger) PoetryCache.get(CommonConst.COMMENT_IM_MAIL + mail.get(0));
-            if (count == null || count.get() < CommonConst.COMMENT_IM_MAIL_COUNT) {
-                WebInfo webInfo = (WebInfo) PoetryCache.get(CommonConst.WEB_INFO);
-                mailUtil.sendMailMessage(mail, "您有一封来自" + (webInfo == null ? "寻国记" : webInfo.getWebName()) + "的回执！", commentMail);
-                if (count == null) {
-                    PoetryCache.put(CommonConst.COMMENT_IM_MAIL + mail.get(0), new AtomicInteger(1), CommonConst.TOKEN_EXPIRE * 4);
-                } else {
-                    count.incrementAndGet();
-                }
+        String toName = "";
+        if (outbox.getToCommentId() != null) {
+            User user = commonQuery.getUser(outbox.getToUserId());
+            if (user != null) {
+                toName = user.getUsername();
             }
         }
+        return getCommentMail(outbox.getSourceTitle() == null ? String.valueOf(CommonConst.TREE_HOLE_COMMENT_SOURCE) : outbox.getSourceTitle(),
+                outbox.getFromName(),
+                outbox.getContent(),
+                toName,
+                outbox.getToCommentId());
+    }
+
+    public String getMailSubject() {
+        WebInfo webInfo = (WebInfo) PoetryCache.get(CommonConst.WEB_INFO);
+        return "您有一封来自" + (webInfo == null ? "寻国记" : webInfo.getWebName()) + "的回执！";
     }
 
     /**
@@ -75,7 +127,7 @@ public class MailSendUtil {
      * fromName：评论人
      * toName：被评论人
      */
-    private String getCommentMail(String source, String fromName, String fromContent, String toName, Integer toCommentId, CommentService commentService) {
+    private String getCommentMail(String source, String fromName, String fromContent, String toName, Integer toCommentId) {
         WebInfo webInfo = (WebInfo) PoetryCache.get(CommonConst.WEB_INFO);
         String webName = (webInfo == null ? "寻国记" : webInfo.getWebName());
 
@@ -83,7 +135,7 @@ public class MailSendUtil {
         String toMail = "";
         if (StringUtils.hasText(toName)) {
             mailType = String.format(MailUtil.replyMail, fromName);
-            Comment toComment = commentService.lambdaQuery().select(Comment::getCommentContent).eq(Comment::getId, toCommentId).one();
+            Comment toComment = commentMapper.selectById(toCommentId);
             if (toComment != null) {
                 toMail = String.format(MailUtil.originalText, toName, toComment.getCommentContent());
             }
@@ -104,36 +156,6 @@ public class MailSendUtil {
                 webName);
     }
 
-    public void sendImMail(ImChatUserMessage message) {
-        if (!message.getMessageStatus()) {
-            List<String> mail = new ArrayList<>();
-            String username = "";
-            User toUser = commonQuery.getUser(message.getToId());
-            if (toUser != null && StringUtils.hasText(toUser.getEmail())) {
-                mail.add(toUser.getEmail());
-            }
-            User fromUser = commonQuery.getUser(message.getFromId());
-            if (fromUser != null) {
-                username = fromUser.getUsername();
-            }
-
-            if (!CollectionUtils.isEmpty(mail)) {
-                String commentMail = getImMail(username, message.getContent());
-
-                AtomicInteger count = (AtomicInteger) PoetryCache.get(CommonConst.COMMENT_IM_MAIL + mail.get(0));
-                if (count == null || count.get() < CommonConst.COMMENT_IM_MAIL_COUNT) {
-                    WebInfo webInfo = (WebInfo) PoetryCache.get(CommonConst.WEB_INFO);
-                    mailUtil.sendMailMessage(mail, "您有一封来自" + (webInfo == null ? "寻国记" : webInfo.getWebName()) + "的回执！", commentMail);
-                    if (count == null) {
-                        PoetryCache.put(CommonConst.COMMENT_IM_MAIL + mail.get(0), new AtomicInteger(1), CommonConst.TOKEN_EXPIRE * 4);
-                    } else {
-                        count.incrementAndGet();
-                    }
-                }
-            }
-        }
-    }
-
     private String getImMail(String fromName, String fromContent) {
         WebInfo webInfo = (WebInfo) PoetryCache.get(CommonConst.WEB_INFO);
         String webName = (webInfo == null ? "寻国记" : webInfo.getWebName());
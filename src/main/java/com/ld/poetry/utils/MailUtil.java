@@ -3,16 +3,42 @@ package com.ld.poetry.utils;
 import com.alibaba.fastjson.JSON;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailException;
 import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
 import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.mail.MessagingException;
+import javax.mail.SendFailedException;
+import javax.mail.Transport;
+import javax.mail.internet.MimeMessage;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * 邮件发送
+ * <p>
+ * SMTP 连接池化：已认证的连接用完放回池中复用，省去每封邮件的 TLS 握手和登录；
+ * 一批邮件借用同一个连接依次发送；连接断开时重连并重发一次，空闲过久的连接丢弃。
+ * 同时打开的连接数不超过 poetry.mail.pool.size。
+ */
 @Component
 @Slf4j
 public class MailUtil {
@@ -89,6 +115,54 @@ public class MailUtil {
     @Value("${spring.mail.username}")
     private String sendMailer;
 
+    @Autowired
+    @Qualifier("mailExecutor")
+    private Executor mailExecutor;
+
+    /**
+     * 最大连接数
+     */
+    @Value("${poetry.mail.pool.size:2}")
+    private int poolSize;
+
+    /**
+     * 连接空闲超过该时间（毫秒）后丢弃，不再复用，应小于邮件服务器的空闲断开时间
+     */
+    @Value("${poetry.mail.pool.idle-timeout:30000}")
+    private long idleTimeout;
+
+    private Semaphore permits;
+
+    /**
+     * 空闲连接，后进先出，优先复用最近用过的连接
+     */
+    private final BlockingDeque<PooledTransport> idle = new LinkedBlockingDeque<>();
+
+    private final AtomicLong sentCount = new AtomicLong();
+
+    private final AtomicLong failedCount = new AtomicLong();
+
+    private final AtomicLong connectCount = new AtomicLong();
+
+    private final AtomicLong reconnectCount = new AtomicLong();
+
+    private final AtomicLong totalLatencyNanos = new AtomicLong();
+
+    private final AtomicLong maxLatencyNanos = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        permits = new Semaphore(Math.max(poolSize, 1), true);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        PooledTransport pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            closeQuietly(pooled);
+        }
+    }
+
     @Async
     public void sendMailMessage(List<String> to, String subject, String text) {
         log.info("发送邮件===================");
@@ -96,26 +170,187 @@ public class MailUtil {
         log.info("subject：{}", subject);
         log.info("text：{}", text);
         try {
-            //true代表支持复杂的类型
-            MimeMessageHelper mimeMessageHelper = new MimeMessageHelper(mailSender.createMimeMessage(), true);
-            //邮件发信人
-            mimeMessageHelper.setFrom(sendMailer);
-            //邮件收信人1或多个
-            mimeMessageHelper.setTo(to.toArray(new String[0]));
-            //邮件主题
-            mimeMessageHelper.setSubject(subject);
-            //邮件内容
-            mimeMessageHelper.setText(text, true);
-            //邮件发送时间
-            mimeMessageHelper.setSentDate(new Date());
-
-            //发送邮件
-            mailSender.send(mimeMessageHelper.getMimeMessage());
-
+            sendMail(to, subject, text);
             log.info("发送成功==================");
         } catch (MessagingException e) {
             log.info("发送失败==================");
             log.error(e.getMessage());
         }
     }
+
+    /**
+     * 同步发送，失败时抛出异常
+     */
+    public void sendMail(List<String> to, String subject, String text) throws MessagingException {
+        Exception error = sendBatch(Collections.singletonList(createMessage(to, subject, text))).get(0);
+        if (error instanceof MessagingException) {
+            throw (MessagingException) error;
+        }
+        if (error != null) {
+            throw new MessagingException(error.getMessage(), error);
+        }
+    }
+
+    public MimeMessage createMessage(List<String> to, String subject, String text) throws MessagingException {
+        //true代表支持复杂的类型，正文固定用 UTF-8，不依赖平台默认编码
+        MimeMessageHelper mimeMessageHelper = new MimeMessageHelper(mailSender.createMimeMessage(), true, StandardCharsets.UTF_8.name());
+        //邮件发信人
+        mimeMessageHelper.setFrom(sendMailer);
+        //邮件收信人1或多个
+        mimeMessageHelper.setTo(to.toArray(new String[0]));
+        //邮件主题
+        mimeMessageHelper.setSubject(subject);
+        //邮件内容
+        mimeMessageHelper.setText(text, true);
+        //邮件发送时间
+        mimeMessageHelper.setSentDate(new Date());
+        return mimeMessageHelper.getMimeMessage();
+    }
+
+    /**
+     * 借用一个连接依次发送一批邮件
+     *
+     * @return 与 messages 一一对应的发送结果，成功为 null，失败为异常
+     */
+    public List<Exception> sendBatch(List<MimeMessage> messages) {
+        List<Exception> results = new ArrayList<>(messages.size());
+        if (!(mailSender instanceof JavaMailSenderImpl)) {
+            for (MimeMessage message : messages) {
+                long start = System.nanoTime();
+                try {
+                    mailSender.send(message);
+                    results.add(null);
+                } catch (MailException e) {
+                    results.add(e);
+                }
+                record(start, results.get(results.size() - 1) == null);
+            }
+            return results;
+        }
+
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            messages.forEach(message -> results.add(e));
+            return results;
+        }
+        PooledTransport pooled = null;
+        MessagingException connectError = null;
+        try {
+            for (MimeMessage message : messages) {
+                long start = System.nanoTime();
+                Exception error = connectError;
+                if (error == null) {
+                    try {
+                        message.saveChanges();
+                    } catch (MessagingException e) {
+                        error = e;
+                    }
+                }
+                for (int attempt = 0; error == null && attempt < 2; attempt++) {
+                    if (pooled == null) {
+                        try {
+                            pooled = borrow();
+                        } catch (MessagingException e) {
+                            // 连不上服务器，本批剩下的邮件不再尝试
+                            error = connectError = e;
+                            break;
+                        }
+                    }
+                    try {
+                        pooled.transport.sendMessage(message, message.getAllRecipients());
+                        pooled.lastUsed = System.currentTimeMillis();
+                        break;
+                    } catch (SendFailedException e) {
+                        // 收件人被拒绝，连接仍然可用，重发也不会成功
+                        error = e;
+                    } catch (MessagingException e) {
+                        // 连接已断开，关闭后重连再发一次
+                        closeQuietly(pooled);
+                        pooled = null;
+                        if (attempt == 0) {
+                            reconnectCount.incrementAndGet();
+                        } else {
+                            error = e;
+                        }
+                    }
+                }
+                record(start, error == null);
+                results.add(error);
+            }
+        } finally {
+            if (pooled != null) {
+                idle.offerFirst(pooled);
+            }
+            permits.release();
+        }
+        return results;
+    }
+
+    /**
+     * 取一个可用的空闲连接，没有时新建
+     */
+    private PooledTransport borrow() throws MessagingException {
+        PooledTransport pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            if (System.currentTimeMillis() - pooled.lastUsed < idleTimeout && pooled.transport.isConnected()) {
+                return pooled;
+            }
+            closeQuietly(pooled);
+        }
+        JavaMailSenderImpl sender = (JavaMailSenderImpl) mailSender;
+        Transport transport = sender.getSession().getTransport(sender.getProtocol() == null ? "smtp" : sender.getProtocol());
+        transport.connect(sender.getHost(), sender.getPort(), sender.getUsername(), sender.getPassword());
+        connectCount.incrementAndGet();
+        return new PooledTransport(transport);
+    }
+
+    private void closeQuietly(PooledTransport pooled) {
+        try {
+            pooled.transport.close();
+        } catch (MessagingException e) {
+            log.debug("关闭 SMTP 连接失败：{}", e.getMessage());
+        }
+    }
+
+    private void record(long start, boolean success) {
+        long latency = System.nanoTime() - start;
+        (success ? sentCount : failedCount).incrementAndGet();
+        totalLatencyNanos.addAndGet(latency);
+        maxLatencyNanos.accumulateAndGet(latency, Math::max);
+    }
+
+    /**
+     * 发送统计
+     */
+    public Map<String, Object> stats() {
+        long sent = sentCount.get();
+        long failed = failedCount.get();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("sent", sent);
+        stats.put("failed", failed);
+        stats.put("connects", connectCount.get());
+        stats.put("reconnects", reconnectCount.get());
+        stats.put("idleConnections", idle.size());
+        stats.put("activeConnections", Math.max(poolSize, 1) - permits.availablePermits());
+        stats.put("waitingForConnection", permits.getQueueLength());
+        stats.put("avgLatencyMs", sent + failed == 0 ? 0 : totalLatencyNanos.get() / (sent + failed) / 1_000_000);
+        stats.put("maxLatencyMs", maxLatencyNanos.get() / 1_000_000);
+        if (mailExecutor instanceof ThreadPoolTaskExecutor) {
+            stats.put("executorQueueDepth", ((ThreadPoolTaskExecutor) mailExecutor).getThreadPoolExecutor().getQueue().size());
+        }
+        return stats;
+    }
+
+    private static class PooledTransport {
+
+        private final Transport transport;
+
+        private long lastUsed = System.currentTimeMillis();
+
+        private PooledTransport(Transport transport) {
+            this.transport = transport;
+        }
+    }
 }
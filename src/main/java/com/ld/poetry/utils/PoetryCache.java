@@ -1,17 +1,59 @@
 package com.ld.poetry.utils;
 
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.*;
 
 
+/**
+ * 本地缓存
+ * <p>
+ * 底层由 {@link TimingWheelCache} 实现：过期键挂在时间轮上由后台线程统一清扫，
+ * 读取时惰性过期，不再为每个键调度一个 Future，也没有全局锁。
+ * <p>
+ * 默认不限制键数量，启动时可通过 {@link #configure(long)} 切换为有界（SLRU 淘汰）模式。
+ */
 public class PoetryCache {
 
-    //键值对集合
-    private final static Map<String, Entity> map = new ConcurrentHashMap<>();
+    /**
+     * 单独统计命中率的键前缀
+     */
+    private final static List<String> STAT_PREFIXES = Arrays.asList(
+            CommonConst.USER_CACHE,
+            CommonConst.COMMENT_COUNT_CACHE,
+            CommonConst.USER_ARTICLE_LIST,
+            CommonConst.USER_TOKEN,
+            CommonConst.ADMIN_TOKEN,
+            CommonConst.USER_CODE,
+            CommonConst.FORGET_PASSWORD,
+            CommonConst.COMMENT_IM_MAIL);
+
+    //缓存引擎
+    private static volatile TimingWheelCache cache = new TimingWheelCache("poetry-cache", 0, STAT_PREFIXES);
 
-    //定时器线程池，用于清除过期缓存
-    private final static ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+    /**
+     * 设置最大键数量并切换引擎，已有的键连同剩余 TTL 一起迁移
+     *
+     * @param maximumSize 最大键数量，0 表示不限制
+     */
+    public static synchronized void configure(long maximumSize) {
+        TimingWheelCache old = cache;
+        if (old.getMaximumSize() == Math.max(0, maximumSize)) {
+            return;
+        }
+        TimingWheelCache fresh = new TimingWheelCache("poetry-cache", maximumSize, STAT_PREFIXES);
+        old.transferTo(fresh);
+        cache = fresh;
+        old.shutdown();
+    }
+
+    /**
+     * 按键前缀汇总的命中、未命中、淘汰、过期次数
+     */
+    public static Map<String, Map<String, Object>> stats() {
+        return cache.stats();
+    }
 
     /**
      * 添加缓存
@@ -31,31 +73,7 @@ public class PoetryCache {
      * @param expire 过期时间，单位：秒， 0表示无限长
      */
     public static void put(String key, Object data, long expire) {
-        //清除原键值对
-        Entity entity = map.get(key);
-        if (entity != null) {
-            Future oldFuture = entity.getFuture();
-            if (oldFuture != null) {
-                oldFuture.cancel(true);
-            }
-        }
-
-        //设置过期时间
-        if (expire > 0) {
-            Future future = executor.schedule(new Runnable() {
-                @Override
-                public void run() {
-                    //过期后清除该键值对
-                    synchronized (PoetryCache.class) {
-                        map.remove(key);
-                    }
-                }
-            }, expire, TimeUnit.SECONDS);
-            map.put(key, new Entity(data, future));
-        } else {
-            //不设置过期时间
-            map.put(key, new Entity(data, null));
-        }
+        cache.put(key, data, expire);
     }
 
     /**
@@ -65,8 +83,7 @@ public class PoetryCache {
      * @return
      */
     public static Object get(String key) {
-        Entity entity = map.get(key);
-        return entity == null ? null : entity.getValue();
+        return cache.get(key);
     }
 
     /**
@@ -75,7 +92,7 @@ public class PoetryCache {
      * @return
      */
     public static Collection values() {
-        return map.values();
+        return cache.values();
     }
 
     /**
@@ -85,13 +102,7 @@ public class PoetryCache {
      * @return
      */
     public static Object remove(String key) {
-        //清除原缓存数据
-        Entity entity = map.remove(key);
-        if (entity == null) return null;
-        //清除原键值对定时器
-        Future future = entity.getFuture();
-        if (future != null) future.cancel(true);
-        return entity.getValue();
+        return cache.remove(key);
     }
 
     /**
@@ -100,40 +111,6 @@ public class PoetryCache {
      * @return
      */
     public static int size() {
-        return map.size();
-    }
-
-    /**
-     * 缓存实体类
-     */
-    private static class Entity {
-        //键值对的value
-        private Object value;
-
-        //定时器Future
-        private Future future;
-
-        public Entity(Object value, Future future) {
-            this.value = value;
-            this.future = future;
-        }
-
-        /**
-         * 获取值
-         *
-         * @return
-         */
-        public Object getValue() {
-            return value;
-        }
-
-        /**
-         * 获取Future对象
-         *
-         * @return
-         */
-        public Future getFuture() {
-            return future;
-        }
+        return cache.size();
     }
 }
@@ -9,10 +9,13 @@ import org.springframework.util.CollectionUtils;
 import org.springframework.util.StringUtils;
 import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.util.HtmlUtils;
 
 import javax.servlet.http.HttpServletRequest;
 import java.net.InetAddress;
 import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 public class PoetryUtil {
 
@@ -152,4 +155,38 @@ public class PoetryUtil {
         int h = key.hashCode();
         return (h ^ (h >>> 16)) & (length - 1);
     }
+
+    /**
+     * 搜索结果摘要：关键词前 SEARCH_SNIPPET_BEFORE 个字符起，共 SEARCH_SNIPPET_LENGTH 个字符；
+     * 隐藏内容先按未登录用户去掉再截取，正文里没有关键词时从开头截取
+     */
+    public static String searchSnippet(String content, String keywords) {
+        String text = HiddenContentRenderer.strip(content);
+        if (!StringUtils.hasText(text)) {
+            return text;
+        }
+        int start = 0;
+        if (StringUtils.hasText(keywords)) {
+            Matcher matcher = Pattern.compile(Pattern.quote(keywords), Pattern.CASE_INSENSITIVE).matcher(text);
+            if (matcher.find()) {
+                start = Math.max(matcher.start() - CommonConst.SEARCH_SNIPPET_BEFORE, 0);
+            }
+        }
+        return text.substring(start, Math.min(start + CommonConst.SEARCH_SNIPPET_LENGTH, text.length()));
+    }
+
+    /**
+     * 转义 HTML 后用 <em> 标记关键词，不区分大小写
+     */
+    public static String highlight(String text, String keywords) {
+        if (!StringUtils.hasText(text)) {
+            return text;
+        }
+        String escaped = HtmlUtils.htmlEscape(text);
+        if (!StringUtils.hasText(keywords)) {
+            return escaped;
+        }
+        return Pattern.compile(Pattern.quote(HtmlUtils.htmlEscape(keywords)), Pattern.CASE_INSENSITIVE)
+                .matcher(escaped).replaceAll("<em>$0</em>");
+    }
 }
@@ -2,15 +2,36 @@ package com.ld.poetry.utils;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisOperations;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.SessionCallback;
 import org.springframework.data.redis.core.script.DefaultRedisScript;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.UnaryOperator;
 
 /**
  * Redis 缓存工具类
@@ -34,9 +55,9 @@ import java.util.concurrent.TimeUnit;
  * 3. 缓存击穿（Cache Breakdown）
  *    - 问题：热点数据过期，大量并发请求同时访问数据库
  *    - 解决方案：
- *      a) 互斥锁：使用分布式锁，只允许一个线程查询数据库
+ *      a) 互斥锁：进程内 single-flight + 分布式锁，整个集群只有一个线程查询数据库
  *      b) 永不过期：热点数据设置永不过期，异步更新
- *      c) 逻辑过期：设置逻辑过期时间，后台异步刷新
+ *      c) 逻辑过期：设置逻辑过期时间，后台异步刷新（见 getWithEarlyRefresh）
  */
 @Component
 @Slf4j
@@ -48,6 +69,10 @@ public class RedisCacheUtil {
     @Autowired
     private BloomFilterUtil bloomFilterUtil;
 
+    @Autowired
+    @Qualifier("cacheRefreshExecutor")
+    private Executor cacheRefreshExecutor;
+
     /**
      * 空对象标识
      */
@@ -68,6 +93,58 @@ public class RedisCacheUtil {
      */
     private static final long RANDOM_EXPIRE_RANGE = 300;
 
+    /**
+     * 分布式锁过期时间（秒），也是等待其他线程回源的最长时间
+     */
+    private static final long LOCK_EXPIRE = 10;
+
+    /**
+     * 抢锁失败后的退避基数和上限（毫秒）
+     */
+    private static final long LOCK_BACKOFF_BASE = 50;
+
+    private static final long LOCK_BACKOFF_MAX = 800;
+
+    /**
+     * 抢锁失败后最多轮询缓存的次数，约 3 秒
+     */
+    private static final int LOCK_MAX_RETRIES = 6;
+
+    /**
+     * update 比较并写入失败后的最多重试次数
+     */
+    private static final int UPDATE_MAX_RETRIES = 5;
+
+    /**
+     * 正在回源的 key，同一进程内的并发请求共享一个 Future
+     */
+    private final ConcurrentHashMap<String, CompletableFuture<Object>> inFlightLoads = new ConcurrentHashMap<>();
+
+    /**
+     * 提前刷新系数（XFetch beta）
+     */
+    private static final double EARLY_REFRESH_BETA = 1.0;
+
+    /**
+     * 逻辑过期后继续保留旧值的最长时间（秒），期间读取返回旧值并触发异步刷新
+     */
+    private static final long EARLY_REFRESH_GRACE = 300;
+
+    /**
+     * 标签集合的 key 前缀，集合成员为打了该标签的缓存 key
+     */
+    private static final String TAG_PREFIX = "tag:";
+
+    /**
+     * SCAN/SSCAN 每批的数量，也是每次 UNLINK 的 key 数量
+     */
+    private static final int SCAN_BATCH_SIZE = 500;
+
+    /**
+     * 正在异步刷新的 key，同一进程内同一个 key 只提交一次刷新任务
+     */
+    private final Set<String> refreshingKeys = ConcurrentHashMap.newKeySet();
+
     /**
      * 获取随机过期时间，防止缓存雪崩
      */
@@ -97,6 +174,64 @@ public class RedisCacheUtil {
         }
     }
 
+    /**
+     * 基于已有缓存的值做修改并写回，保留剩余过期时间；提前刷新的缓存同时保留回源耗时和逻辑过期时间
+     * <p>
+     * 用于增量修改，不会延长数据的寿命，到期后照常回源重建。
+     * 通过 WATCH/MULTI/EXEC 比较并写入，其他节点在读取和写回之间修改了该 key 时重新读取再修改，
+     * 因此 updater 可能被调用多次，只应基于传入的值计算，不能有副作用。
+     * 多次冲突后删除缓存，下次读取时回源重建。
+     *
+     * @param updater 参数为当前缓存的值（反序列化出的新对象，可直接修改），返回 null 表示不写入
+     * @return 写入的新值；缓存不存在、updater 返回 null 或冲突后删除缓存时返回 null
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T update(String key, UnaryOperator<T> updater) {
+        for (int i = 0; i < UPDATE_MAX_RETRIES; i++) {
+            Object[] written = new Object[1];
+            Boolean committed = redisTemplate.execute(new SessionCallback<Boolean>() {
+                @Override
+                public <K, V> Boolean execute(RedisOperations<K, V> operations) {
+                    RedisOperations<String, Object> ops = (RedisOperations<String, Object>) operations;
+                    ops.watch(key);
+                    Object current = ops.opsForValue().get(key);
+                    Long ttl = ops.getExpire(key, TimeUnit.MILLISECONDS);
+                    if (current == null || NULL_VALUE.equals(current) || ttl == null || ttl == -2 || ttl == 0) {
+                        ops.unwatch();
+                        return true;
+                    }
+                    CacheEnvelope envelope = current instanceof CacheEnvelope ? (CacheEnvelope) current : null;
+                    T value = updater.apply((T) (envelope != null ? envelope.getValue() : current));
+                    if (value == null) {
+                        ops.unwatch();
+                        return true;
+                    }
+                    Object stored = envelope != null
+                            ? new CacheEnvelope(value, envelope.getDelta(), envelope.getExpiry()) : value;
+                    ops.multi();
+                    if (ttl > 0) {
+                        ops.opsForValue().set(key, stored, ttl, TimeUnit.MILLISECONDS);
+                    } else {
+                        ops.opsForValue().set(key, stored);
+                    }
+                    // 被其他连接修改过时 EXEC 返回空结果
+                    List<Object> results = ops.exec();
+                    if (results == null || results.isEmpty()) {
+                        return false;
+                    }
+                    written[0] = value;
+                    return true;
+                }
+            });
+            if (Boolean.TRUE.equals(committed)) {
+                return (T) written[0];
+            }
+        }
+        log.warn("缓存并发修改冲突，删除后等待重建: key={}", key);
+        redisTemplate.delete(key);
+        return null;
+    }
+
     /**
      * 获取缓存（防止缓存穿透和击穿）
      */
@@ -106,12 +241,19 @@ public class RedisCacheUtil {
             // 返回 null，表示数据不存在（已缓存空对象）
             return null;
         }
+        if (value instanceof CacheEnvelope) {
+            return ((CacheEnvelope) value).getValue();
+        }
         return value;
     }
 
     /**
      * 获取缓存，如果不存在则查询数据库（防止缓存穿透、击穿、雪崩）
-     * 
+     * <p>
+     * 同一个 key 在本进程内只有一个线程回源（single-flight），其余线程等待同一个 Future；
+     * 该线程再通过分布式锁保证整个集群只有一个节点查询数据库，
+     * 抢锁失败时按有界的指数退避轮询缓存，不再递归重试。
+     *
      * @param key 缓存key
      * @param moduleName 业务模块名称（用于布隆过滤器）
      * @param id 数据ID（用于布隆过滤器）
@@ -119,18 +261,13 @@ public class RedisCacheUtil {
      * @param expireSeconds 过期时间（秒）
      * @return 数据对象
      */
-    public <T> T get(String key, String moduleName, String id, 
+    @SuppressWarnings("unchecked")
+    public <T> T get(String key, String moduleName, String id,
                      DataLoader<T> dataLoader, long expireSeconds) {
-        // 1. 先查询缓存
-        Object value = get(key);
+        // 1. 先查询缓存，空对象标识同样视为命中
+        Object value = redisTemplate.opsForValue().get(key);
         if (value != null) {
-            // 如果是空对象标识，返回 null
-            if (NULL_VALUE.equals(value)) {
-                return null;
-            }
-            @SuppressWarnings("unchecked")
-            T result = (T) value;
-            return result;
+            return NULL_VALUE.equals(value) ? null : (T) value;
         }
 
         // 2. 使用布隆过滤器判断数据是否存在（防止缓存穿透）
@@ -144,56 +281,292 @@ public class RedisCacheUtil {
             }
         }
 
-        // 3. 使用分布式锁防止缓存击穿
-        String lockKey = "lock:" + key;
+        // 3. 进程内合并并发请求，只有第一个线程负责回源
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        CompletableFuture<Object> inFlight = inFlightLoads.putIfAbsent(key, future);
+        if (inFlight != null) {
+            try {
+                return (T) inFlight.get(LOCK_EXPIRE, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                log.error("等待缓存加载被中断: key={}", key, e);
+            } catch (TimeoutException e) {
+                log.warn("等待缓存加载超时: key={}", key);
+            } catch (ExecutionException e) {
+                log.error("获取缓存数据异常: key={}", key, e.getCause());
+            }
+            return null;
+        }
+
         try {
-            // 尝试获取分布式锁（使用 Redis SETNX 实现）
-            if (tryLock(lockKey, 10, TimeUnit.SECONDS)) {
+            Object data = loadWithLock(key, moduleName, id, dataLoader, expireSeconds);
+            future.complete(data);
+            return (T) data;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.completeExceptionally(e);
+            log.error("获取分布式锁被中断", e);
+            return null;
+        } catch (Exception e) {
+            future.completeExceptionally(e);
+            log.error("获取缓存数据异常: key={}", key, e);
+            return null;
+        } finally {
+            inFlightLoads.remove(key, future);
+        }
+    }
+
+    /**
+     * 批量获取缓存，未命中的 key 一次性交给 bulkLoader 回源（一次 MGET + 一次批量查询 + 一次管道写入）
+     * <p>
+     * bulkLoader 没有返回的 key 视为数据不存在，缓存空对象防止穿透。
+     *
+     * @param keys 缓存key
+     * @param bulkLoader 批量数据加载器，参数为未命中的 key
+     * @param expireSeconds 过期时间（秒）
+     * @return key -> 数据，不存在的数据不在结果中
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Map<String, T> getAll(Collection<String> keys, BulkLoader<T> bulkLoader, long expireSeconds) {
+        Map<String, T> result = new HashMap<>();
+        if (keys == null || keys.isEmpty()) {
+            return result;
+        }
+        List<String> keyList = new ArrayList<>(new LinkedHashSet<>(keys));
+        List<Object> values = redisTemplate.opsForValue().multiGet(keyList);
+
+        List<String> missingKeys = new ArrayList<>();
+        for (int i = 0; i < keyList.size(); i++) {
+            Object value = values == null ? null : values.get(i);
+            if (value == null) {
+                missingKeys.add(keyList.get(i));
+            } else if (value instanceof CacheEnvelope) {
+                result.put(keyList.get(i), (T) ((CacheEnvelope) value).getValue());
+            } else if (!NULL_VALUE.equals(value)) {
+                result.put(keyList.get(i), (T) value);
+            }
+        }
+        if (missingKeys.isEmpty()) {
+            return result;
+        }
+
+        Map<String, T> loaded = bulkLoader.load(missingKeys);
+        Map<String, Object> toCache = new HashMap<>();
+        for (String key : missingKeys) {
+            T data = loaded == null ? null : loaded.get(key);
+            if (data != null) {
+                result.put(key, data);
+            }
+            toCache.put(key, data);
+        }
+        setAll(toCache, expireSeconds);
+        return result;
+    }
+
+    /**
+     * 批量设置缓存（管道写入，每个 key 独立的随机过期时间），值为 null 时缓存空对象
+     */
+    public void setAll(Map<String, ?> entries, long expireSeconds) {
+        if (entries == null || entries.isEmpty()) {
+            return;
+        }
+        redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) {
+                RedisOperations<String, Object> ops = (RedisOperations<String, Object>) operations;
+                entries.forEach((key, value) -> {
+                    if (value == null) {
+                        ops.opsForValue().set(key, NULL_VALUE, NULL_VALUE_EXPIRE, TimeUnit.SECONDS);
+                    } else {
+                        ops.opsForValue().set(key, value, getRandomExpire(expireSeconds), TimeUnit.SECONDS);
+                    }
+                });
+                return null;
+            }
+        });
+    }
+
+    /**
+     * 批量数据加载器接口
+     */
+    @FunctionalInterface
+    public interface BulkLoader<T> {
+        /**
+         * @param keys 未命中的缓存key
+         * @return key -> 数据
+         */
+        Map<String, T> load(List<String> keys);
+    }
+
+    /**
+     * 获取缓存，热点 key 在过期前按 XFetch 算法概率性地异步刷新（stale-while-revalidate）
+     * <p>
+     * 缓存值包装为 {@link CacheEnvelope}，记录回源耗时和逻辑过期时间；
+     * Redis 中的实际过期时间比逻辑过期时间多出一段宽限期，
+     * 读到需要刷新的值时照常返回旧值，同时在 cacheRefreshExecutor 上重新回源。
+     * 缓存未命中时走 single-flight 回源。
+     *
+     * @param key 缓存key
+     * @param dataLoader 数据加载器（查询数据库的函数）
+     * @param expireSeconds 逻辑过期时间（秒）
+     * @return 数据对象
+     */
+    public <T> T getWithEarlyRefresh(String key, DataLoader<T> dataLoader, long expireSeconds) {
+        return getWithEarlyRefresh(key, null, null, dataLoader, expireSeconds);
+    }
+
+    /**
+     * 同 {@link #getWithEarlyRefresh(String, DataLoader, long)}，缓存未命中时先经过布隆过滤器，
+     * 判断数据不存在的请求不再回源
+     *
+     * @param moduleName 业务模块名称，见 {@link BloomFilterUtil}
+     * @param id 数据ID
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T getWithEarlyRefresh(String key, String moduleName, String id, DataLoader<T> dataLoader, long expireSeconds) {
+        Object value = redisTemplate.opsForValue().get(key);
+        if (value instanceof CacheEnvelope) {
+            CacheEnvelope envelope = (CacheEnvelope) value;
+            if (envelope.shouldRefresh(EARLY_REFRESH_BETA)) {
+                refreshAsync(key, dataLoader, expireSeconds);
+            }
+            return (T) envelope.getValue();
+        }
+        if (value != null) {
+            // 通过 set 写入的普通值，到期后再由本方法重建为 CacheEnvelope
+            return NULL_VALUE.equals(value) ? null : (T) value;
+        }
+
+        Object loaded = get(key, moduleName, id, () -> loadEnvelope(dataLoader, expireSeconds),
+                expireSeconds + getEarlyRefreshGrace(expireSeconds));
+        return loaded instanceof CacheEnvelope ? (T) ((CacheEnvelope) loaded).getValue() : (T) loaded;
+    }
+
+    /**
+     * 立即回源并按 {@link #getWithEarlyRefresh} 的格式写入，用于数据变更后主动重建
+     *
+     * @return 回源结果，数据不存在时删除缓存并返回 null
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T reload(String key, DataLoader<T> dataLoader, long expireSeconds) {
+        CacheEnvelope envelope = loadEnvelope(dataLoader, expireSeconds);
+        if (envelope == null) {
+            delete(key);
+            return null;
+        }
+        set(key, envelope, expireSeconds + getEarlyRefreshGrace(expireSeconds));
+        return (T) envelope.getValue();
+    }
+
+    /**
+     * 异步刷新，只有抢到分布式锁的节点回源，其余节点继续使用旧值
+     */
+    private <T> void refreshAsync(String key, DataLoader<T> dataLoader, long expireSeconds) {
+        if (!refreshingKeys.add(key)) {
+            return;
+        }
+        try {
+            cacheRefreshExecutor.execute(() -> {
+                String lockKey = "lock:" + key;
+                String token = UUID.randomUUID().toString();
                 try {
-                    // 双重检查，再次查询缓存
-                    value = get(key);
-                    if (value != null) {
-                        if (NULL_VALUE.equals(value)) {
-                            return null;
+                    if (tryLock(lockKey, token, LOCK_EXPIRE, TimeUnit.SECONDS)) {
+                        try {
+                            CacheEnvelope envelope = loadEnvelope(dataLoader, expireSeconds);
+                            // 数据已被删除时不覆盖旧值，等它自然过期后由正常读路径缓存空对象
+                            if (envelope != null) {
+                                set(key, envelope, expireSeconds + getEarlyRefreshGrace(expireSeconds));
+                            }
+                        } finally {
+                            releaseLock(lockKey, token);
                         }
-                        @SuppressWarnings("unchecked")
-                        T result = (T) value;
-                        return result;
                     }
+                } catch (Exception e) {
+                    log.warn("异步刷新缓存失败: key={}", key, e);
+                } finally {
+                    refreshingKeys.remove(key);
+                }
+            });
+        } catch (Exception e) {
+            refreshingKeys.remove(key);
+            log.warn("提交缓存刷新任务失败: key={}", key, e);
+        }
+    }
 
-                    // 4. 查询数据库
-                    T data = dataLoader.load();
-                    
-                    if (data != null) {
-                        // 5. 将数据写入缓存
-                        set(key, data, expireSeconds);
-                        // 6. 将数据ID添加到布隆过滤器
-                        if (StringUtils.hasText(moduleName) && StringUtils.hasText(id)) {
-                            bloomFilterUtil.add(moduleName, id);
-                        }
-                        return data;
-                    } else {
-                        // 数据不存在，缓存空对象（防止缓存穿透）
-                        set(key, null, NULL_VALUE_EXPIRE);
-                        return null;
+    /**
+     * 回源并记录耗时，数据不存在时返回 null
+     */
+    private <T> CacheEnvelope loadEnvelope(DataLoader<T> dataLoader, long expireSeconds) {
+        long start = System.currentTimeMillis();
+        T data = dataLoader.load();
+        if (data == null) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        return new CacheEnvelope(data, now - start, now + TimeUnit.SECONDS.toMillis(expireSeconds));
+    }
+
+    /**
+     * 宽限期不超过逻辑过期时间本身，短 TTL 的数据不会长时间返回旧值
+     */
+    private long getEarlyRefreshGrace(long expireSeconds) {
+        return Math.min(expireSeconds, EARLY_REFRESH_GRACE);
+    }
+
+    /**
+     * 持有分布式锁回源；锁被其他节点持有时退避等待其写入缓存
+     */
+    private <T> Object loadWithLock(String key, String moduleName, String id,
+                                    DataLoader<T> dataLoader, long expireSeconds) throws InterruptedException {
+        String lockKey = "lock:" + key;
+        String token = UUID.randomUUID().toString();
+        for (int attempt = 0; attempt <= LOCK_MAX_RETRIES; attempt++) {
+            if (tryLock(lockKey, token, LOCK_EXPIRE, TimeUnit.SECONDS)) {
+                try {
+                    // 双重检查，再次查询缓存
+                    Object value = redisTemplate.opsForValue().get(key);
+                    if (value != null) {
+                        return NULL_VALUE.equals(value) ? null : value;
                     }
+                    return loadAndCache(key, moduleName, id, dataLoader, expireSeconds);
                 } finally {
                     // 释放锁
-                    releaseLock(lockKey);
+                    releaseLock(lockKey, token);
                 }
-            } else {
-                // 获取锁失败，等待一段时间后重试
-                Thread.sleep(50);
-                return get(key, moduleName, id, dataLoader, expireSeconds);
             }
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            log.error("获取分布式锁被中断", e);
-            return null;
-        } catch (Exception e) {
-            log.error("获取缓存数据异常: key={}", key, e);
-            return null;
+
+            // 其他节点正在回源，退避后检查它是否已经写入缓存
+            long backoff = Math.min(LOCK_BACKOFF_MAX, LOCK_BACKOFF_BASE << attempt);
+            Thread.sleep(backoff + ThreadLocalRandom.current().nextLong(LOCK_BACKOFF_BASE));
+            Object value = redisTemplate.opsForValue().get(key);
+            if (value != null) {
+                return NULL_VALUE.equals(value) ? null : value;
+            }
         }
+
+        // 持锁节点迟迟没有写入缓存（可能已宕机），不再等待，直接回源
+        log.warn("等待分布式锁超时，直接查询数据库: key={}", key);
+        return loadAndCache(key, moduleName, id, dataLoader, expireSeconds);
+    }
+
+    private <T> T loadAndCache(String key, String moduleName, String id,
+                               DataLoader<T> dataLoader, long expireSeconds) {
+        // 4. 查询数据库
+        T data = dataLoader.load();
+
+        if (data != null) {
+            // 5. 将数据写入缓存
+            set(key, data, expireSeconds);
+            // 6. 将数据ID添加到布隆过滤器
+            if (StringUtils.hasText(moduleName) && StringUtils.hasText(id)) {
+                bloomFilterUtil.add(moduleName, id);
+            }
+        } else {
+            // 数据不存在，缓存空对象（防止缓存穿透）
+            set(key, null, NULL_VALUE_EXPIRE);
+        }
+        return data;
     }
 
     /**
@@ -205,29 +578,14 @@ public class RedisCacheUtil {
     }
 
     /**
-     * 尝试获取分布式锁（使用 Redis SETNX 实现）
+     * 尝试获取分布式锁（SET NX EX，一条命令同时设置过期时间）
+     *
+     * @param token 锁持有者标识，释放时校验，不能用线程ID（不同节点的线程ID会重复）
      */
-    private boolean tryLock(String lockKey, long timeout, TimeUnit unit) {
+    private boolean tryLock(String lockKey, String token, long timeout, TimeUnit unit) {
         try {
-            // 使用 Lua 脚本实现原子性操作
-            String script = "if redis.call('get', KEYS[1]) == false then " +
-                           "redis.call('set', KEYS[1], ARGV[1]) " +
-                           "redis.call('expire', KEYS[1], ARGV[2]) " +
-                           "return 1 " +
-                           "else " +
-                           "return 0 " +
-                           "end";
-            
-            DefaultRedisScript<Long> redisScript = new DefaultRedisScript<>();
-            redisScript.setScriptText(script);
-            redisScript.setResultType(Long.class);
-            
-            Long result = redisTemplate.execute(redisScript, 
-                    Collections.singletonList(lockKey), 
-                    Thread.currentThread().getId() + "", 
-                    String.valueOf(unit.toSeconds(timeout)));
-            
-            return result != null && result == 1;
+            // 过期时间作为命令参数传入，不经过值序列化器，锁一定带 TTL
+            return Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(lockKey, token, timeout, unit));
         } catch (Exception e) {
             log.error("获取分布式锁异常: lockKey={}", lockKey, e);
             return false;
@@ -237,9 +595,9 @@ public class RedisCacheUtil {
     /**
      * 释放分布式锁
      */
-    private void releaseLock(String lockKey) {
+    private void releaseLock(String lockKey, String token) {
         try {
-            // 使用 Lua 脚本确保只释放自己持有的锁
+            // 使用 Lua 脚本确保只释放自己持有的锁，token 与加锁时经过同一个值序列化器，字节一致
             String script = "if redis.call('get', KEYS[1]) == ARGV[1] then " +
                            "return redis.call('del', KEYS[1]) " +
                            "else " +
@@ -252,7 +610,7 @@ public class RedisCacheUtil {
             
             redisTemplate.execute(redisScript, 
                     Collections.singletonList(lockKey), 
-                    Thread.currentThread().getId() + "");
+                    token);
         } catch (Exception e) {
             log.error("释放分布式锁异常: lockKey={}", lockKey, e);
         }
@@ -266,10 +624,68 @@ public class RedisCacheUtil {
     }
 
     /**
-     * 批量删除缓存
+     * 批量删除缓存（UNLINK，大 value 的内存在 Redis 后台线程释放）
      */
     public void delete(List<String> keys) {
-        redisTemplate.delete(keys);
+        if (keys != null && !keys.isEmpty()) {
+            redisTemplate.unlink(keys);
+        }
+    }
+
+    /**
+     * 设置缓存并打上标签，之后可以通过 {@link #invalidateTag(String)} 按标签批量删除
+     *
+     * @param tags 标签，如 article:1、user:1
+     */
+    public void setWithTags(String key, Object value, long expireSeconds, String... tags) {
+        set(key, value, expireSeconds);
+        if (tags == null || tags.length == 0) {
+            return;
+        }
+        // 标签集合比成员多活一个随机过期区间，保证不早于成员过期
+        long tagExpire = expireSeconds + RANDOM_EXPIRE_RANGE;
+        redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) {
+                RedisOperations<String, Object> ops = (RedisOperations<String, Object>) operations;
+                for (String tag : tags) {
+                    ops.opsForSet().add(TAG_PREFIX + tag, key);
+                    ops.expire(TAG_PREFIX + tag, tagExpire, TimeUnit.SECONDS);
+                }
+                return null;
+            }
+        });
+    }
+
+    /**
+     * 删除打了该标签的所有缓存
+     * <p>
+     * 用 SSCAN 分批遍历标签集合、分批 UNLINK，不会像 KEYS 那样长时间阻塞 Redis。
+     *
+     * @return 被删除的缓存key
+     */
+    public List<String> invalidateTag(String tag) {
+        String tagKey = TAG_PREFIX + tag;
+        List<String> deleted = new ArrayList<>();
+        List<String> batch = new ArrayList<>(SCAN_BATCH_SIZE);
+        try (Cursor<Object> cursor = redisTemplate.opsForSet().scan(tagKey,
+                ScanOptions.scanOptions().count(SCAN_BATCH_SIZE).build())) {
+            while (cursor.hasNext()) {
+                batch.add(String.valueOf(cursor.next()));
+                if (batch.size() >= SCAN_BATCH_SIZE) {
+                    delete(batch);
+                    deleted.addAll(batch);
+                    batch.clear();
+                }
+            }
+        } catch (IOException e) {
+            log.error("关闭 SSCAN 游标异常: tag={}", tag, e);
+        }
+        delete(batch);
+        deleted.addAll(batch);
+        redisTemplate.unlink(tagKey);
+        return deleted;
     }
 
     /**
@@ -296,12 +712,40 @@ public class RedisCacheUtil {
 
     /**
      * 根据模式删除缓存
+     * <p>
+     * 用 SCAN 游标分批遍历、分批 UNLINK，每次只占用 Redis 很短的时间；
+     * 能预先确定范围的数据优先使用标签（{@link #invalidateTag(String)}），避免遍历整个键空间。
+     *
+     * @return 删除的 key 数量
      */
-    public void deleteByPattern(String pattern) {
-        Set<String> keys = redisTemplate.keys(pattern);
-        if (keys != null && !keys.isEmpty()) {
-            redisTemplate.delete(keys);
+    public long deleteByPattern(String pattern) {
+        Long deleted = redisTemplate.execute((RedisCallback<Long>) connection -> {
+            long count = 0;
+            List<byte[]> batch = new ArrayList<>(SCAN_BATCH_SIZE);
+            try (Cursor<byte[]> cursor = connection.scan(
+                    ScanOptions.scanOptions().match(pattern).count(SCAN_BATCH_SIZE).build())) {
+                while (cursor.hasNext()) {
+                    batch.add(cursor.next());
+                    if (batch.size() >= SCAN_BATCH_SIZE) {
+                        count += unlink(connection, batch);
+                        batch.clear();
+                    }
+                }
+            } catch (IOException e) {
+                log.error("关闭 SCAN 游标异常: pattern={}", pattern, e);
+            }
+            count += unlink(connection, batch);
+            return count;
+        });
+        return deleted == null ? 0 : deleted;
+    }
+
+    private long unlink(RedisConnection connection, List<byte[]> keys) {
+        if (keys.isEmpty()) {
+            return 0;
         }
+        Long count = connection.unlink(keys.toArray(new byte[0][]));
+        return count == null ? 0 : count;
     }
 
     /**
@@ -0,0 +1,174 @@
+package com.ld.poetry.utils;
+
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnel;
+import com.google.common.hash.Funnels;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 可扩容的布隆过滤器（Scalable Bloom Filter）
+ * <p>
+ * 由多层 Guava 布隆过滤器叠加而成：当前层写满后追加一层，容量翻倍、误判率减半，
+ * 总误判率收敛在 FPP 以内（p0 / (1 - 0.5) = FPP）。查询时任意一层命中即视为可能存在。
+ * <p>
+ * Guava 的 put / mightContain 本身是线程安全的，这里只在追加新层时加锁。
+ */
+public class ScalableBloomFilter {
+
+    /**
+     * 每层容量的增长倍数
+     */
+    private static final int GROWTH_FACTOR = 2;
+
+    /**
+     * 每层误判率的收紧比例
+     */
+    private static final double TIGHTENING_RATIO = 0.5;
+
+    private static final Funnel<CharSequence> FUNNEL = Funnels.stringFunnel(StandardCharsets.UTF_8);
+
+    private final List<Stage> stages = new CopyOnWriteArrayList<>();
+
+    private final long initialCapacity;
+
+    private final double fpp;
+
+    /**
+     * @param initialCapacity 第一层的预期插入量
+     * @param fpp             总误判率
+     */
+    public ScalableBloomFilter(long initialCapacity, double fpp) {
+        this.initialCapacity = initialCapacity;
+        this.fpp = fpp;
+        stages.add(new Stage(initialCapacity, fpp * (1 - TIGHTENING_RATIO)));
+    }
+
+    private ScalableBloomFilter(long initialCapacity, double fpp, List<Stage> stages) {
+        this.initialCapacity = initialCapacity;
+        this.fpp = fpp;
+        this.stages.addAll(stages);
+    }
+
+    public void put(String value) {
+        Stage current = stages.get(stages.size() - 1);
+        if (current.isFull()) {
+            current = grow(current);
+        }
+        current.filter.put(value);
+    }
+
+    public boolean mightContain(String value) {
+        for (Stage stage : stages) {
+            if (stage.filter.mightContain(value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private synchronized Stage grow(Stage full) {
+        Stage last = stages.get(stages.size() - 1);
+        if (last != full) {
+            // 其他线程已经扩容
+            return last;
+        }
+        Stage next = new Stage(last.capacity * GROWTH_FACTOR, last.fpp * TIGHTENING_RATIO);
+        stages.add(next);
+        return next;
+    }
+
+    public int getStageCount() {
+        return stages.size();
+    }
+
+    /**
+     * 各层容量之和
+     */
+    public long getCapacity() {
+        return stages.stream().mapToLong(stage -> stage.capacity).sum();
+    }
+
+    /**
+     * 估算的已插入数量（按置位比例推算，重复插入不会重复计数）
+     */
+    public long getApproximateElementCount() {
+        return stages.stream().mapToLong(stage -> stage.filter.approximateElementCount()).sum();
+    }
+
+    /**
+     * 按当前填充程度估算的总误判率：1 - Π(1 - p_i)
+     */
+    public double getExpectedFpp() {
+        double notFalsePositive = 1;
+        for (Stage stage : stages) {
+            notFalsePositive *= 1 - stage.filter.expectedFpp();
+        }
+        return 1 - notFalsePositive;
+    }
+
+    /**
+     * 位数组占用的内存（字节），按 m = -n * ln(p) / (ln2)^2 计算
+     */
+    public long getMemoryBytes() {
+        return stages.stream().mapToLong(stage ->
+                (long) Math.ceil(-stage.capacity * Math.log(stage.fpp) / (Math.log(2) * Math.log(2)) / 8)).sum();
+    }
+
+    /**
+     * 序列化：层数，然后每层的容量、误判率和 Guava 自身的序列化格式
+     */
+    public void writeTo(DataOutputStream out) throws IOException {
+        List<Stage> snapshot = new ArrayList<>(stages);
+        out.writeLong(initialCapacity);
+        out.writeDouble(fpp);
+        out.writeInt(snapshot.size());
+        for (Stage stage : snapshot) {
+            out.writeLong(stage.capacity);
+            out.writeDouble(stage.fpp);
+            stage.filter.writeTo(out);
+        }
+    }
+
+    public static ScalableBloomFilter readFrom(DataInputStream in) throws IOException {
+        long initialCapacity = in.readLong();
+        double fpp = in.readDouble();
+        int count = in.readInt();
+        List<Stage> stages = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            long capacity = in.readLong();
+            double stageFpp = in.readDouble();
+            stages.add(new Stage(capacity, stageFpp, BloomFilter.readFrom(in, FUNNEL)));
+        }
+        return new ScalableBloomFilter(initialCapacity, fpp, stages);
+    }
+
+    private static class Stage {
+
+        private final long capacity;
+
+        private final double fpp;
+
+        private final BloomFilter<CharSequence> filter;
+
+        Stage(long capacity, double fpp) {
+            this(capacity, fpp, BloomFilter.create(FUNNEL, capacity, fpp));
+        }
+
+        Stage(long capacity, double fpp, BloomFilter<CharSequence> filter) {
+            this.capacity = capacity;
+            this.fpp = fpp;
+            this.filter = filter;
+        }
+
+        boolean isFull() {
+            return filter.approximateElementCount() >= capacity;
+        }
+    }
+}
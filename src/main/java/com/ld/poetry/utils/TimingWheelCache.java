@@ -0,0 +1,507 @@
+package com.ld.poetry.utils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 基于哈希时间轮的本地 TTL 缓存引擎
+ * <p>
+ * 1. 数据存放在 ConcurrentHashMap 中，读写不加全局锁
+ * 2. 带过期时间的键只往时间轮对应槽位追加一个节点，不再为每个键单独调度 Future
+ * 3. 覆盖写入时旧节点留在时间轮中，清扫时发现已不是当前值直接丢弃，无需取消
+ * 4. 读取时惰性判断过期，后台清扫线程每个 tick 只处理当前槽位
+ * <p>
+ * 有界模式（maximumSize > 0）：按键哈希分成若干段，每段独立加锁维护一个分段 LRU（SLRU），
+ * 新键进入试用区，再次命中晋升到保护区，超出容量时优先淘汰试用区最久未访问的键。
+ * 读命中时只 tryLock 调整顺序，抢不到锁就跳过，读路径不会阻塞。
+ * 不过期的键常驻内存，不参与淘汰，也不计入容量。
+ */
+public class TimingWheelCache {
+
+    /**
+     * 时间轮 tick 间隔（毫秒）
+     */
+    private static final long TICK_MILLIS = 1000;
+
+    /**
+     * 时间轮槽位数，必须是 2 的幂
+     */
+    private static final int WHEEL_SIZE = 512;
+
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+
+    private static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(TICK_MILLIS);
+
+    /**
+     * 有界模式的分段数，必须是 2 的幂
+     */
+    private static final int SEGMENT_COUNT = 16;
+
+    /**
+     * 保护区占每段容量的比例
+     */
+    private static final double PROTECTED_RATIO = 0.8;
+
+    /**
+     * 未匹配任何前缀的键归入该统计项
+     */
+    public static final String OTHER_PREFIX = "other";
+
+    //键值对集合
+    private final Map<String, Entry> map = new ConcurrentHashMap<>();
+
+    //时间轮槽位
+    private final ConcurrentLinkedQueue<Entry>[] wheel;
+
+    //时钟（纳秒），默认 System.nanoTime
+    private final LongSupplier clock;
+
+    //时间基准
+    private final long startNanos;
+
+    //下一个待清扫的 tick，只由清扫线程修改
+    private volatile long cursorTick = 0;
+
+    //清扫线程，为 null 时由调用方手动推进时间轮
+    private final ScheduledExecutorService sweeper;
+
+    //最大键数量，0 表示不限制
+    private final long maximumSize;
+
+    //SLRU 分段，无界模式下为 null
+    private final Segment[] segments;
+
+    //按前缀统计，按前缀长度倒序，保证 user_article_list_ 先于 user_ 匹配
+    private final List<String> statPrefixes;
+
+    private final Map<String, Stats> stats = new ConcurrentHashMap<>();
+
+    public TimingWheelCache(String name) {
+        this(name, 0, Collections.emptyList());
+    }
+
+    /**
+     * @param name         清扫线程名前缀
+     * @param maximumSize  最大键数量，0 表示不限制
+     * @param statPrefixes 需要单独统计命中率的键前缀
+     */
+    public TimingWheelCache(String name, long maximumSize, List<String> statPrefixes) {
+        this(name, maximumSize, statPrefixes, System::nanoTime, true);
+    }
+
+    /**
+     * @param clock 纳秒时钟
+     * @param sweep 是否启动清扫线程，为 false 时通过 {@link #advance()} 手动推进
+     */
+    @SuppressWarnings("unchecked")
+    TimingWheelCache(String name, long maximumSize, List<String> statPrefixes, LongSupplier clock, boolean sweep) {
+        this.clock = clock;
+        this.startNanos = clock.getAsLong();
+        this.maximumSize = Math.max(0, maximumSize);
+        List<String> prefixes = new ArrayList<>(statPrefixes);
+        prefixes.sort(Comparator.comparingInt(String::length).reversed());
+        this.statPrefixes = prefixes;
+
+        if (this.maximumSize > 0) {
+            segments = new Segment[SEGMENT_COUNT];
+            long capacity = Math.max(1, (this.maximumSize + SEGMENT_COUNT - 1) / SEGMENT_COUNT);
+            for (int i = 0; i < SEGMENT_COUNT; i++) {
+                segments[i] = new Segment(capacity);
+            }
+        } else {
+            segments = null;
+        }
+
+        wheel = new ConcurrentLinkedQueue[WHEEL_SIZE];
+        for (int i = 0; i < WHEEL_SIZE; i++) {
+            wheel[i] = new ConcurrentLinkedQueue<>();
+        }
+        if (!sweep) {
+            sweeper = null;
+            return;
+        }
+        sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, name + "-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sweeper.scheduleAtFixedRate(this::advance, TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 添加缓存
+     *
+     * @param key    键
+     * @param data   值
+     * @param expire 过期时间，单位：秒， 0表示无限长
+     */
+    public void put(String key, Object data, long expire) {
+        Entry entry;
+        if (expire > 0) {
+            long deadline = clock.getAsLong() + TimeUnit.SECONDS.toNanos(expire);
+            entry = new Entry(key, data, true, deadline);
+        } else {
+            entry = new Entry(key, data, false, 0);
+        }
+
+        if (segments == null) {
+            map.put(key, entry);
+        } else {
+            Segment segment = segmentFor(key);
+            segment.lock.lock();
+            try {
+                map.put(key, entry);
+                segment.recordWrite(entry);
+                segment.evictOverflow();
+            } finally {
+                segment.lock.unlock();
+            }
+        }
+
+        if (entry.expirable) {
+            schedule(entry);
+        }
+    }
+
+    /**
+     * 读取缓存，已过期的键在此处惰性清除
+     */
+    public Object get(String key) {
+        Entry entry = map.get(key);
+        if (entry == null) {
+            statsFor(key).misses.increment();
+            return null;
+        }
+        if (entry.isExpired(clock.getAsLong())) {
+            if (removeEntry(entry)) {
+                statsFor(key).expirations.increment();
+            }
+            statsFor(key).misses.increment();
+            return null;
+        }
+        statsFor(key).hits.increment();
+        if (segments != null) {
+            Segment segment = segmentFor(key);
+            if (segment.lock.tryLock()) {
+                try {
+                    segment.recordAccess(entry);
+                } finally {
+                    segment.lock.unlock();
+                }
+            }
+        }
+        return entry.value;
+    }
+
+    /**
+     * 读取所有未过期的值
+     */
+    public Collection<Object> values() {
+        long now = clock.getAsLong();
+        List<Object> values = new ArrayList<>(map.size());
+        for (Entry entry : map.values()) {
+            if (!entry.isExpired(now)) {
+                values.add(entry.value);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * 清除缓存
+     */
+    public Object remove(String key) {
+        Entry entry;
+        if (segments == null) {
+            entry = map.remove(key);
+        } else {
+            Segment segment = segmentFor(key);
+            segment.lock.lock();
+            try {
+                entry = map.remove(key);
+                segment.forget(key);
+            } finally {
+                segment.lock.unlock();
+            }
+        }
+        if (entry == null || entry.isExpired(clock.getAsLong())) {
+            return null;
+        }
+        return entry.value;
+    }
+
+    /**
+     * 当前键值对数量（可能包含已过期但尚未清扫的键）
+     */
+    public int size() {
+        return map.size();
+    }
+
+    /**
+     * 最大键数量，0 表示不限制
+     */
+    public long getMaximumSize() {
+        return maximumSize;
+    }
+
+    /**
+     * 按前缀汇总的命中、未命中、淘汰、过期次数
+     */
+    public Map<String, Map<String, Object>> stats() {
+        Map<String, Map<String, Object>> result = new LinkedHashMap<>();
+        List<String> names = new ArrayList<>(statPrefixes);
+        names.add(OTHER_PREFIX);
+        for (String name : names) {
+            Stats s = stats.get(name);
+            if (s == null) {
+                continue;
+            }
+            long hits = s.hits.sum();
+            long misses = s.misses.sum();
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("hits", hits);
+            item.put("misses", misses);
+            item.put("hitRate", hits + misses == 0 ? 0D : (double) hits / (hits + misses));
+            item.put("evictions", s.evictions.sum());
+            item.put("expirations", s.expirations.sum());
+            result.put(name, item);
+        }
+        return result;
+    }
+
+    /**
+     * 把未过期的键连同剩余 TTL 复制到另一个缓存，用于切换引擎配置
+     */
+    public void transferTo(TimingWheelCache target) {
+        long now = clock.getAsLong();
+        for (Entry entry : map.values()) {
+            if (!entry.expirable) {
+                target.put(entry.key, entry.value, 0);
+            } else if (!entry.isExpired(now)) {
+                long remaining = TimeUnit.NANOSECONDS.toSeconds(entry.deadline - now) + 1;
+                target.put(entry.key, entry.value, remaining);
+            }
+        }
+    }
+
+    /**
+     * 停止清扫线程
+     */
+    public void shutdown() {
+        if (sweeper != null) {
+            sweeper.shutdownNow();
+        }
+    }
+
+    private Segment segmentFor(String key) {
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        return segments[h & (SEGMENT_COUNT - 1)];
+    }
+
+    private Stats statsFor(String key) {
+        String name = OTHER_PREFIX;
+        for (String prefix : statPrefixes) {
+            if (key.startsWith(prefix)) {
+                name = prefix;
+                break;
+            }
+        }
+        Stats s = stats.get(name);
+        return s != null ? s : stats.computeIfAbsent(name, k -> new Stats());
+    }
+
+    /**
+     * 仅当键仍映射到该节点时删除
+     */
+    private boolean removeEntry(Entry entry) {
+        if (segments == null) {
+            return map.remove(entry.key, entry);
+        }
+        Segment segment = segmentFor(entry.key);
+        segment.lock.lock();
+        try {
+            if (map.remove(entry.key, entry)) {
+                segment.forget(entry.key);
+                return true;
+            }
+            return false;
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    private long tickOf(long deadlineNanos) {
+        long elapsed = deadlineNanos - startNanos;
+        return (elapsed + TICK_NANOS - 1) / TICK_NANOS;
+    }
+
+    private void schedule(Entry entry) {
+        // 落在已清扫过的 tick 时放到下一个 tick，晚到最多一个 tick，读取时仍会惰性过期
+        long tick = Math.max(tickOf(entry.deadline), cursorTick);
+        wheel[(int) (tick & WHEEL_MASK)].offer(entry);
+    }
+
+    /**
+     * 推进时间轮，补齐因调度延迟而落下的 tick
+     */
+    void advance() {
+        try {
+            long now = clock.getAsLong();
+            long currentTick = (now - startNanos) / TICK_NANOS;
+            while (cursorTick <= currentTick) {
+                expireSlot(wheel[(int) (cursorTick & WHEEL_MASK)], now);
+                cursorTick++;
+            }
+        } catch (Throwable ignored) {
+            // 清扫线程不能因为异常退出，否则只剩惰性过期
+        }
+    }
+
+    private void expireSlot(ConcurrentLinkedQueue<Entry> slot, long now) {
+        // 只处理本轮开始时已在槽位中的节点，未到期（还需转圈）的节点重新放回队尾
+        int pending = slot.size();
+        for (int i = 0; i < pending; i++) {
+            Entry entry = slot.poll();
+            if (entry == null) {
+                break;
+            }
+            if (map.get(entry.key) != entry) {
+                // 已被覆盖、删除或淘汰
+                continue;
+            }
+            if (entry.isExpired(now)) {
+                if (removeEntry(entry)) {
+                    statsFor(entry.key).expirations.increment();
+                }
+            } else {
+                slot.offer(entry);
+            }
+        }
+    }
+
+    /**
+     * SLRU 分段，所有方法都要求持有 lock
+     */
+    private final class Segment {
+        private final ReentrantLock lock = new ReentrantLock();
+
+        //试用区：只被写入过、尚未再次命中的键
+        private final LinkedHashMap<String, Entry> probation = new LinkedHashMap<>();
+
+        //保护区：至少命中过一次的键
+        private final LinkedHashMap<String, Entry> protectedArea = new LinkedHashMap<>();
+
+        private final long capacity;
+
+        private final long protectedCapacity;
+
+        Segment(long capacity) {
+            this.capacity = capacity;
+            this.protectedCapacity = Math.max(1, (long) (capacity * PROTECTED_RATIO));
+        }
+
+        void recordWrite(Entry entry) {
+            // 不过期的键（网站配置、站长信息等）常驻，不进入 SLRU，也不占容量
+            if (!entry.expirable) {
+                forget(entry.key);
+                return;
+            }
+            // 覆盖写入保持原有区域，只移到队尾
+            if (protectedArea.remove(entry.key) != null) {
+                protectedArea.put(entry.key, entry);
+            } else {
+                probation.remove(entry.key);
+                probation.put(entry.key, entry);
+            }
+        }
+
+        void recordAccess(Entry entry) {
+            if (!entry.expirable || map.get(entry.key) != entry) {
+                return;
+            }
+            if (probation.remove(entry.key) != null) {
+                protectedArea.put(entry.key, entry);
+                if (protectedArea.size() > protectedCapacity) {
+                    // 保护区溢出时把最久未访问的降级回试用区
+                    Iterator<Map.Entry<String, Entry>> it = protectedArea.entrySet().iterator();
+                    Entry demoted = it.next().getValue();
+                    it.remove();
+                    probation.put(demoted.key, demoted);
+                }
+            } else if (protectedArea.remove(entry.key) != null) {
+                protectedArea.put(entry.key, entry);
+            }
+        }
+
+        void forget(String key) {
+            if (probation.remove(key) == null) {
+                protectedArea.remove(key);
+            }
+        }
+
+        void evictOverflow() {
+            while (probation.size() + protectedArea.size() > capacity) {
+                LinkedHashMap<String, Entry> victims = probation.isEmpty() ? protectedArea : probation;
+                Iterator<Map.Entry<String, Entry>> it = victims.entrySet().iterator();
+                Entry victim = it.next().getValue();
+                it.remove();
+                if (map.remove(victim.key, victim)) {
+                    statsFor(victim.key).evictions.increment();
+                }
+            }
+        }
+    }
+
+    /**
+     * 单个前缀的统计
+     */
+    private static final class Stats {
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+        private final LongAdder evictions = new LongAdder();
+        private final LongAdder expirations = new LongAdder();
+    }
+
+    /**
+     * 缓存实体类
+     */
+    private static final class Entry {
+        //键
+        private final String key;
+
+        //键值对的value
+        private final Object value;
+
+        //是否设置了过期时间
+        private final boolean expirable;
+
+        //过期时间点（clock 纳秒）
+        private final long deadline;
+
+        Entry(String key, Object value, boolean expirable, long deadline) {
+            this.key = key;
+            this.value = value;
+            this.expirable = expirable;
+            this.deadline = deadline;
+        }
+
+        boolean isExpired(long now) {
+            return expirable && now - deadline >= 0;
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.ld.poetry.utils;
+
+import com.ld.poetry.dao.ArticleMapper;
+import com.ld.poetry.dao.DiaryMapper;
+import com.ld.poetry.service.CacheService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+
+/**
+ * 浏览量写回缓冲
+ * <p>
+ * 详情页每次访问只在本地 LongAdder 上加一，定时把各篇的增量合并成一条 UPDATE ... CASE 写回，
+ * 停机时再写回一次；热门文章不再每次访问都争抢同一行的行锁。
+ * 读取浏览量时加上尚未写回的增量。
+ * <p>
+ * 调用方传入的浏览量可能来自写回之前加载的缓存，所以每个ID另外记录一个下限：
+ * 读取时见过的最大浏览量加上之后写回的增量，不超过数据库中的值。
+ * 显示的浏览量为 max(传入值, 下限) + 未写回的增量，写回前后不会倒退。
+ */
+@Slf4j
+@Component
+public class ViewCountBuffer {
+
+    /**
+     * 每条 UPDATE 最多包含的ID数量
+     */
+    private static final int FLUSH_BATCH_SIZE = 500;
+
+    @Autowired
+    private ArticleMapper articleMapper;
+
+    @Autowired
+    private DiaryMapper diaryMapper;
+
+    @Autowired
+    private CacheService cacheService;
+
+    //文章ID -> 未写回的浏览量和下限，条目数不超过文章数，写回后保留复用
+    private final Map<Integer, Counter> articleViews = new ConcurrentHashMap<>();
+
+    private final Map<Integer, Counter> diaryViews = new ConcurrentHashMap<>();
+
+    /**
+     * 写回数据库到修改计数之间持有写锁，读取时在这段时间内等待；累加浏览量不受影响
+     */
+    private final StampedLock flushLock = new StampedLock();
+
+    public void incrementArticle(Integer id) {
+        articleViews.computeIfAbsent(id, k -> new Counter()).pending.increment();
+    }
+
+    public void incrementDiary(Integer id) {
+        diaryViews.computeIfAbsent(id, k -> new Counter()).pending.increment();
+    }
+
+    /**
+     * 数据库或缓存中的浏览量加上未写回的增量
+     */
+    public Integer getArticleViewCount(Integer id, Integer viewCount) {
+        return merge(articleViews, id, viewCount);
+    }
+
+    public Integer getDiaryViewCount(Integer id, Integer viewCount) {
+        return merge(diaryViews, id, viewCount);
+    }
+
+    @Scheduled(fixedDelayString = "${poetry.view-count.flush-interval:10000}")
+    public void flush() {
+        // 缓存中的文章行不再包含最新的浏览量，删除后其他节点也会重新加载
+        flush(articleViews, articleMapper::addViewCounts, id -> cacheService.delete(CommonConst.ARTICLE_CACHE + id), "文章");
+        // 日记详情直接读数据库，没有缓存
+        flush(diaryViews, diaryMapper::addViewCounts, id -> {
+        }, "日记");
+    }
+
+    @PreDestroy
+    public void destroy() {
+        flush();
+    }
+
+    private Integer merge(Map<Integer, Counter> views, Integer id, Integer viewCount) {
+        Counter counter = views.get(id);
+        if (counter == null) {
+            return viewCount;
+        }
+        long base = viewCount == null ? 0 : viewCount;
+        long stamp = flushLock.tryOptimisticRead();
+        if (stamp != 0) {
+            // 未在写回：传入值是写回之前读到的，可以计入下限
+            long count = counter.count(base);
+            if (flushLock.validate(stamp)) {
+                return (int) count;
+            }
+        }
+        // 正在写回时传入值可能已包含本次写回的增量，等计数修改完成后再计算
+        stamp = flushLock.readLock();
+        try {
+            return (int) counter.count(base);
+        } finally {
+            flushLock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * 读取增量分批写回，写回成功后才从缓冲中减去，写回失败的增量留到下次再写
+     *
+     * @param evictor 删除该ID在缓存中的数据，下次读取时从数据库加载
+     */
+    private synchronized void flush(Map<Integer, Counter> views, Consumer<Map<Integer, Long>> writer,
+                                    Consumer<Integer> evictor, String name) {
+        Map<Integer, Long> batch = new LinkedHashMap<>();
+        for (Map.Entry<Integer, Counter> entry : views.entrySet()) {
+            long delta = entry.getValue().pending.sum();
+            if (delta == 0) {
+                continue;
+            }
+            batch.put(entry.getKey(), delta);
+            if (batch.size() >= FLUSH_BATCH_SIZE) {
+                write(views, writer, evictor, batch, name);
+                batch = new LinkedHashMap<>();
+            }
+        }
+        if (!batch.isEmpty()) {
+            write(views, writer, evictor, batch, name);
+        }
+    }
+
+    private void write(Map<Integer, Counter> views, Consumer<Map<Integer, Long>> writer, Consumer<Integer> evictor,
+                       Map<Integer, Long> batch, String name) {
+        long stamp = flushLock.writeLock();
+        try {
+            writer.accept(batch);
+            batch.forEach((id, delta) -> {
+                Counter counter = views.get(id);
+                counter.floor.addAndGet(delta);
+                // 写回期间新增的访问保留在缓冲中
+                counter.pending.add(-delta);
+            });
+        } catch (Exception e) {
+            log.warn("写回{}浏览量失败: size={}", name, batch.size(), e);
+            return;
+        } finally {
+            flushLock.unlockWrite(stamp);
+        }
+        batch.keySet().forEach(evictor);
+    }
+
+    /**
+     * 单篇的未写回增量和浏览量下限
+     */
+    private static class Counter {
+
+        private final LongAdder pending = new LongAdder();
+
+        //不超过数据库中的浏览量
+        private final AtomicLong floor = new AtomicLong();
+
+        long count(long base) {
+            return floor.accumulateAndGet(base, Math::max) + pending.sum();
+        }
+    }
+}
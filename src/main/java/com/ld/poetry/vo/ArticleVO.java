@@ -36,6 +36,9 @@ public class ArticleVO {
     private String articleContent;
 
     private String articlePreview;
+
+    // 搜索结果中关键词附近的片段，关键词以 <em> 标记
+    private String highlight;
     
     private Integer viewCount;
 
@@ -29,4 +29,11 @@ public class BaseRequestVO extends Page {
     private String resourceType;
 
     private Boolean resourceStatus;
+
+    // 游标分页：上一页返回的 nextCursor，首页传空字符串，不传则按页码分页
+    private String cursor;
+
+    private String nextCursor;
+
+    private Boolean hasMore;
 }
@@ -0,0 +1,37 @@
+package com.ld.poetry.vo;
+
+import lombok.Data;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 缓存的一页评论
+ * <p>
+ * 楼中楼单独存放，读取时再组装成 CommentVO 的 childComments；总数单独缓存，追加评论时不影响已满的页。
+ */
+@Data
+public class CommentPageVO {
+
+    /**
+     * 本页评论，childComments 为空
+     */
+    private List<CommentVO> records;
+
+    /**
+     * 楼层ID -> 前几条楼中楼，仅楼层列表有
+     */
+    private Map<Integer, List<CommentVO>> childRecords;
+
+    /**
+     * 楼层ID -> 楼中楼总数，仅楼层列表有
+     */
+    private Map<Integer, Integer> childTotals;
+
+    /**
+     * 游标分页时的结果
+     */
+    private Boolean hasMore;
+
+    private String nextCursor;
+}
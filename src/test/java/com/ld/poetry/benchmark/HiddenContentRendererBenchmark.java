@@ -0,0 +1,92 @@
+package com.ld.poetry.benchmark;
+
+import com.ld.poetry.utils.HiddenContentRenderer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * 文章隐藏内容处理：单遍扫描的 HiddenContentRenderer vs 原正则实现
+ * <p>
+ * 运行：mvn -P benchmark test-compile exec:exec -Dbenchmark=HiddenContentRendererBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HiddenContentRendererBenchmark {
+
+    /**
+     * 已登录、未评论、非会员的读者
+     */
+    private static final Predicate<String> PERMISSION = "logged"::equals;
+
+    private static final String[] TYPES = {"logged", "reply", "vip1", "pay"};
+
+    /**
+     * 正文长度（字符）
+     */
+    @Param({"2000", "50000"})
+    public int length;
+
+    /**
+     * 隐藏块数量，均匀分布在正文中
+     */
+    @Param({"1", "20"})
+    public int blocks;
+
+    private String content;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        String paragraph = "<p>床前明月光，疑是地上霜。举头望明月，低头思故乡。The quick brown fox jumps over the lazy dog.</p>\n";
+        int segment = Math.max(1, length / (blocks + 1));
+        StringBuilder sb = new StringBuilder(length + blocks * 64);
+        for (int i = 0; i <= blocks; i++) {
+            int end = sb.length() + segment;
+            while (sb.length() < end) {
+                sb.append(paragraph);
+            }
+            if (i < blocks) {
+                sb.append("[hidecontent type=\"").append(TYPES[i % TYPES.length]).append("\" title=\"隐藏内容\"]")
+                        .append(paragraph).append(paragraph)
+                        .append("[/hidecontent]\n");
+            }
+        }
+        content = sb.toString();
+        if (!HiddenContentRenderer.render(content, PERMISSION).equals(LegacyHiddenContentRenderer.render(content, PERMISSION))) {
+            throw new IllegalStateException("两种实现的输出不一致");
+        }
+    }
+
+    @Benchmark
+    public String renderer() {
+        return HiddenContentRenderer.render(content, PERMISSION);
+    }
+
+    @Benchmark
+    public String regex() {
+        return LegacyHiddenContentRenderer.render(content, PERMISSION);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(HiddenContentRendererBenchmark.class.getSimpleName()).build()).run();
+    }
+}
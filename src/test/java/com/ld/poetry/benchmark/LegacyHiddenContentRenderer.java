@@ -0,0 +1,58 @@
+package com.ld.poetry.benchmark;
+
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 改为 HiddenContentRenderer 之前 ArticleServiceImpl 中的正则实现，作为基准测试和一致性测试的对照
+ * <p>
+ * 逻辑与原实现一致，只是把按权限位判断改成传入 Predicate，与 HiddenContentRenderer 的参数相同
+ */
+public class LegacyHiddenContentRenderer {
+
+    private static final Pattern HIDE_CONTENT_PATTERN = Pattern.compile(
+        "(\\[hidecontent\\s+type=[\"']?(\\w+)[\"']?[^\\]]*\\])(.*?)(\\[/hidecontent\\])",
+        Pattern.DOTALL
+    );
+
+    private LegacyHiddenContentRenderer() {
+    }
+
+    public static String render(String content, Predicate<String> permission) {
+        Matcher matcher = HIDE_CONTENT_PATTERN.matcher(content);
+        StringBuffer result = new StringBuffer();
+
+        while (matcher.find()) {
+            // group(1) = 原始开标签, 例如 [hidecontent type="vip1" xxx...]
+            // group(2) = 具体的 type 值
+            // group(3) = 中间隐藏内容
+            // group(4) = 闭标签 [/hidecontent]
+            String openTag = matcher.group(1);
+            String type = matcher.group(2).toLowerCase();
+            String hiddenContent = matcher.group(3);
+            String closeTag = matcher.group(4);
+
+            boolean hasPermission = permission.test(type);
+
+            String isShowValue = hasPermission ? "true" : "false";
+            String finalContent = hasPermission ? hiddenContent : "";
+
+            // 在开标签里额外加一个属性 isshow="true|false"
+            String openTagWithAttr;
+            if (openTag.endsWith("]")) {
+                openTagWithAttr = openTag.substring(0, openTag.length() - 1)
+                        + " isshow=\"" + isShowValue + "\"]";
+            } else {
+                // 理论上不会出现这种情况，除非开标签不规范
+                openTagWithAttr = openTag + " isshow=\"" + isShowValue + "\"]";
+            }
+
+            String replacement = openTagWithAttr + finalContent + closeTag;
+            matcher.appendReplacement(result, Matcher.quoteReplacement(replacement));
+        }
+        matcher.appendTail(result);
+
+        return result.toString();
+    }
+}
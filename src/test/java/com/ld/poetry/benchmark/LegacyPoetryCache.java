@@ -0,0 +1,85 @@
+package com.ld.poetry.benchmark;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 改为时间轮之前的 PoetryCache（ConcurrentHashMap + 每个键一个定时 Future），仅作为基准测试的对照
+ * <p>
+ * 逻辑与原实现一致，只是把静态成员改成实例成员，便于在基准测试中创建和关闭
+ */
+class LegacyPoetryCache {
+
+    //键值对集合
+    private final Map<String, Entity> map = new ConcurrentHashMap<>();
+
+    //定时器线程池，用于清除过期缓存
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+
+    void put(String key, Object data, long expire) {
+        //清除原键值对
+        Entity entity = map.get(key);
+        if (entity != null) {
+            Future<?> oldFuture = entity.future;
+            if (oldFuture != null) {
+                oldFuture.cancel(true);
+            }
+        }
+
+        //设置过期时间
+        if (expire > 0) {
+            Future<?> future = executor.schedule(() -> {
+                //过期后清除该键值对
+                synchronized (LegacyPoetryCache.this) {
+                    map.remove(key);
+                }
+            }, expire, TimeUnit.SECONDS);
+            map.put(key, new Entity(data, future));
+        } else {
+            //不设置过期时间
+            map.put(key, new Entity(data, null));
+        }
+    }
+
+    Object get(String key) {
+        Entity entity = map.get(key);
+        return entity == null ? null : entity.value;
+    }
+
+    Object remove(String key) {
+        //清除原缓存数据
+        Entity entity = map.remove(key);
+        if (entity == null) {
+            return null;
+        }
+        //清除原键值对定时器
+        if (entity.future != null) {
+            entity.future.cancel(true);
+        }
+        return entity.value;
+    }
+
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 缓存实体类
+     */
+    private static class Entity {
+        //键值对的value
+        private final Object value;
+
+        //定时器Future
+        private final Future<?> future;
+
+        Entity(Object value, Future<?> future) {
+            this.value = value;
+            this.future = future;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.ld.poetry.benchmark;
+
+import com.ld.poetry.utils.TimingWheelCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Collections;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 本地缓存 put/get/过期：时间轮引擎 vs 原 map + 定时 Future 实现
+ * <p>
+ * 运行：mvn -P benchmark test-compile exec:exec -Dbenchmark=PoetryCacheBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class PoetryCacheBenchmark {
+
+    private static final int KEY_COUNT = 10_000;
+
+    /**
+     * 与线上常用的 TTL 同一量级（秒）
+     */
+    private static final long EXPIRE = 300;
+
+    @Param({"timingWheel", "legacy"})
+    public String engine;
+
+    private String[] keys;
+
+    private TimingWheelCache timingWheel;
+
+    private LegacyPoetryCache legacy;
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        keys = new String[KEY_COUNT];
+        for (int i = 0; i < KEY_COUNT; i++) {
+            keys[i] = "user_" + i;
+        }
+        if ("timingWheel".equals(engine)) {
+            timingWheel = new TimingWheelCache("benchmark", 0, Collections.emptyList());
+        } else {
+            legacy = new LegacyPoetryCache();
+        }
+        for (String key : keys) {
+            put(key, key, EXPIRE);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (timingWheel != null) {
+            timingWheel.shutdown();
+        }
+        if (legacy != null) {
+            legacy.shutdown();
+        }
+    }
+
+    /**
+     * 读取已有的键
+     */
+    @Benchmark
+    public Object get() {
+        return get(keys[ThreadLocalRandom.current().nextInt(KEY_COUNT)]);
+    }
+
+    /**
+     * 覆盖写入已有的键：原实现要取消旧 Future 再调度新 Future
+     */
+    @Benchmark
+    public void put() {
+        String key = keys[ThreadLocalRandom.current().nextInt(KEY_COUNT)];
+        put(key, key, EXPIRE);
+    }
+
+    /**
+     * 写入后很快过期的新键（验证码、限流计数等），过期清理的开销计入后台线程与写入的竞争
+     */
+    @Benchmark
+    public void putExpiring() {
+        String key = "code_" + sequence.incrementAndGet();
+        put(key, key, 1);
+    }
+
+    /**
+     * 写入后立即删除（登出、token 失效）
+     */
+    @Benchmark
+    public Object putRemove() {
+        String key = "token_" + sequence.incrementAndGet();
+        put(key, key, EXPIRE);
+        return remove(key);
+    }
+
+    private void put(String key, Object value, long expire) {
+        if (timingWheel != null) {
+            timingWheel.put(key, value, expire);
+        } else {
+            legacy.put(key, value, expire);
+        }
+    }
+
+    private Object get(String key) {
+        return timingWheel != null ? timingWheel.get(key) : legacy.get(key);
+    }
+
+    private Object remove(String key) {
+        return timingWheel != null ? timingWheel.remove(key) : legacy.remove(key);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(PoetryCacheBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,133 @@
+package com.ld.poetry.benchmark;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.jsontype.impl.LaissezFaireSubTypeValidator;
+import com.ld.poetry.config.RedisConfig;
+import com.ld.poetry.entity.Label;
+import com.ld.poetry.entity.Sort;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Redis value 序列化：升级前的 Jackson2JsonRedisSerializer、json、smile、smile + LZ4 的耗时和字节数
+ * <p>
+ * 运行：mvn -P benchmark test-compile exec:exec -Dbenchmark=RedisSerializerBenchmark
+ * <p>
+ * 字节数在每组参数开始时打印（bytes=...）
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RedisSerializerBenchmark {
+
+    @Param({"legacy", "json", "smile", "smileLz4"})
+    public String format;
+
+    /**
+     * 分类数量，每个分类 4 个标签；5 约为小站点的 SORT_INFO，50 用于观察压缩效果
+     */
+    @Param({"5", "50"})
+    public int sorts;
+
+    private RedisSerializer<Object> serializer;
+
+    private List<Sort> value;
+
+    private byte[] bytes;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        serializer = createSerializer(format);
+        value = sortInfo(sorts);
+        bytes = serializer.serialize(value);
+        System.out.println();
+        System.out.println("format=" + format + ", sorts=" + sorts + ", bytes=" + bytes.length);
+    }
+
+    @Benchmark
+    public byte[] serialize() {
+        return serializer.serialize(value);
+    }
+
+    @Benchmark
+    public Object deserialize() {
+        return serializer.deserialize(bytes);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static RedisSerializer<Object> createSerializer(String format) {
+        if ("legacy".equals(format)) {
+            // 升级前 RedisConfig 中的配置
+            Jackson2JsonRedisSerializer<Object> legacy = new Jackson2JsonRedisSerializer<>(Object.class);
+            ObjectMapper om = new ObjectMapper();
+            om.setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.ANY);
+            om.activateDefaultTyping(LaissezFaireSubTypeValidator.instance, ObjectMapper.DefaultTyping.NON_FINAL);
+            legacy.setObjectMapper(om);
+            return legacy;
+        }
+        RedisConfig config = new RedisConfig();
+        ReflectionTestUtils.setField(config, "serializer", format.startsWith("smile") ? "smile" : "json");
+        ReflectionTestUtils.setField(config, "compressThreshold", "smileLz4".equals(format) ? 1024 : 0);
+        // 只用于构造 RedisTemplate，不会建立连接
+        RedisTemplate<String, Object> template = config.redisTemplate(Mockito.mock(RedisConnectionFactory.class));
+        return (RedisSerializer<Object>) template.getValueSerializer();
+    }
+
+    private static List<Sort> sortInfo(int sortCount) {
+        List<Sort> sorts = new ArrayList<>();
+        for (int i = 1; i <= sortCount; i++) {
+            Sort sort = new Sort();
+            sort.setId(i);
+            sort.setSortName("分类" + i);
+            sort.setSortDescription("分类" + i + "的描述，记录一些诗词和随笔");
+            sort.setSortType(i % 2);
+            sort.setPriority(i);
+            sort.setCountOfSort(i * 3);
+            List<Label> labels = new ArrayList<>();
+            for (int j = 1; j <= 4; j++) {
+                Label label = new Label();
+                label.setId(i * 10 + j);
+                label.setSortId(i);
+                label.setLabelName("标签" + j);
+                label.setLabelDescription("标签" + j + "的描述");
+                label.setCountOfLabel(j);
+                labels.add(label);
+            }
+            sort.setLabels(labels);
+            sorts.add(sort);
+        }
+        return sorts;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(RedisSerializerBenchmark.class.getSimpleName()).build()).run();
+    }
+}
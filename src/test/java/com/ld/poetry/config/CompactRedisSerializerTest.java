@@ -0,0 +1,119 @@
+package com.ld.poetry.config;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.jsontype.impl.LaissezFaireSubTypeValidator;
+import com.ld.poetry.entity.Label;
+import com.ld.poetry.entity.Sort;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * 滚动发布兼容：默认写 JSON，与升级前的 Jackson2JsonRedisSerializer 互相可读；smile、LZ4 写入的数据升级后的节点都能读取
+ */
+class CompactRedisSerializerTest {
+
+    @Test
+    void defaultConfigWritesJsonWithoutCompression() {
+        RedisSerializer<Object> serializer = valueSerializer(new RedisConfig());
+
+        byte[] bytes = serializer.serialize(sortInfo(50));
+
+        assertThat(bytes[0]).isEqualTo((byte) '[');
+        assertThat(legacySerializer().deserialize(bytes)).isEqualTo(sortInfo(50));
+    }
+
+    @Test
+    void readsValuesWrittenBeforeUpgrade() {
+        byte[] legacy = legacySerializer().serialize(sortInfo(50));
+
+        RedisConfig smileConfig = new RedisConfig();
+        ReflectionTestUtils.setField(smileConfig, "serializer", "smile");
+        ReflectionTestUtils.setField(smileConfig, "compressThreshold", 1024);
+
+        assertThat(valueSerializer(smileConfig).deserialize(legacy)).isEqualTo(sortInfo(50));
+        assertThat(valueSerializer(new RedisConfig()).deserialize(legacy)).isEqualTo(sortInfo(50));
+    }
+
+    @Test
+    void smileAndCompressedValuesRoundTripAcrossConfigs() {
+        RedisConfig smileConfig = new RedisConfig();
+        ReflectionTestUtils.setField(smileConfig, "serializer", "smile");
+        ReflectionTestUtils.setField(smileConfig, "compressThreshold", 1024);
+        RedisSerializer<Object> smile = valueSerializer(smileConfig);
+
+        byte[] small = smile.serialize(sortInfo(1));
+        byte[] large = smile.serialize(sortInfo(200));
+
+        assertThat(new String(small, 0, 3)).isEqualTo(":)\n");
+        // LZ4 标记
+        assertThat(large[0]).isEqualTo((byte) 0x01);
+        assertThat(large.length).isLessThan(valueSerializer(new RedisConfig()).serialize(sortInfo(200)).length);
+        // 改回 json 后仍能读取 smile 和压缩数据
+        RedisSerializer<Object> json = valueSerializer(new RedisConfig());
+        assertThat(json.deserialize(small)).isEqualTo(sortInfo(1));
+        assertThat(json.deserialize(large)).isEqualTo(sortInfo(200));
+    }
+
+    @SuppressWarnings("unchecked")
+    static RedisSerializer<Object> valueSerializer(RedisConfig config) {
+        if (ReflectionTestUtils.getField(config, "serializer") == null) {
+            // 与 @Value 默认值一致
+            ReflectionTestUtils.setField(config, "serializer", "json");
+        }
+        RedisTemplate<String, Object> template = config.redisTemplate(mock(RedisConnectionFactory.class));
+        return (RedisSerializer<Object>) template.getValueSerializer();
+    }
+
+    /**
+     * 升级前 RedisConfig 中的序列化器
+     */
+    static RedisSerializer<Object> legacySerializer() {
+        Jackson2JsonRedisSerializer<Object> serializer = new Jackson2JsonRedisSerializer<>(Object.class);
+        ObjectMapper om = new ObjectMapper();
+        om.setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.ANY);
+        om.activateDefaultTyping(LaissezFaireSubTypeValidator.instance, ObjectMapper.DefaultTyping.NON_FINAL);
+        serializer.setObjectMapper(om);
+        return serializer;
+    }
+
+    /**
+     * 与 SORT_INFO 缓存同样结构的分类标签树
+     */
+    static List<Sort> sortInfo(int sortCount) {
+        List<Sort> sorts = new ArrayList<>();
+        for (int i = 1; i <= sortCount; i++) {
+            Sort sort = new Sort();
+            sort.setId(i);
+            sort.setSortName("分类" + i);
+            sort.setSortDescription("分类" + i + "的描述，记录一些诗词和随笔");
+            sort.setSortType(i % 2);
+            sort.setPriority(i);
+            sort.setCountOfSort(i * 3);
+            List<Label> labels = new ArrayList<>();
+            for (int j = 1; j <= 4; j++) {
+                Label label = new Label();
+                label.setId(i * 10 + j);
+                label.setSortId(i);
+                label.setLabelName("标签" + j);
+                label.setLabelDescription("标签" + j + "的描述");
+                label.setCountOfLabel(j);
+                labels.add(label);
+            }
+            sort.setLabels(labels);
+            sorts.add(sort);
+        }
+        return sorts;
+    }
+}
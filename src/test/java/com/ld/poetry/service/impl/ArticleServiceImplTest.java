@@ -0,0 +1,127 @@
+package com.ld.poetry.service.impl;
+
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.ld.poetry.config.PoetryResult;
+import com.ld.poetry.dao.ArticleMapper;
+import com.ld.poetry.entity.Article;
+import com.ld.poetry.entity.User;
+import com.ld.poetry.service.CacheService;
+import com.ld.poetry.utils.CommonQuery;
+import com.ld.poetry.utils.ViewCountBuffer;
+import com.ld.poetry.vo.ArticleVO;
+import com.ld.poetry.vo.BaseRequestVO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.BadSqlGrammarException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 文章搜索：全文索引不可用时改用 LIKE，摘要和高亮不含隐藏内容
+ */
+class ArticleServiceImplTest {
+
+    private ArticleMapper articleMapper;
+
+    private CommonQuery commonQuery;
+
+    private ArticleServiceImpl articleService;
+
+    @BeforeEach
+    void setUp() {
+        articleMapper = mock(ArticleMapper.class);
+        commonQuery = mock(CommonQuery.class);
+        User user = new User();
+        user.setId(1);
+        user.setUsername("作者");
+        when(commonQuery.getUsers(any())).thenReturn(Collections.singletonMap(1, user));
+        when(commonQuery.getCommentCounts(any())).thenReturn(Collections.singletonMap(10, 3));
+
+        articleService = new ArticleServiceImpl();
+        ReflectionTestUtils.setField(articleService, "articleMapper", articleMapper);
+        ReflectionTestUtils.setField(articleService, "commonQuery", commonQuery);
+        ReflectionTestUtils.setField(articleService, "cacheService", mock(CacheService.class));
+        ReflectionTestUtils.setField(articleService, "viewCountBuffer", new ViewCountBuffer());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void fallsBackToLikeWhenFullTextIndexIsMissing() {
+        when(articleMapper.searchArticle(any(), anyString()))
+                .thenThrow(new BadSqlGrammarException("searchArticle", "match against", new SQLException("Can't find FULLTEXT index")));
+        when(articleMapper.searchArticleByLike(any(), anyString())).thenAnswer(invocation -> {
+            Page<Article> page = invocation.getArgument(0);
+            page.setRecords(Collections.singletonList(article()));
+            page.setTotal(1);
+            return page;
+        });
+
+        PoetryResult<Page> result = articleService.searchArticle(request("关键词"));
+
+        List<ArticleVO> records = result.getData().getRecords();
+        assertThat(records).hasSize(1);
+        ArticleVO articleVO = records.get(0);
+        assertThat(articleVO.getHighlight()).contains("<em>关键词</em>").doesNotContain("秘密");
+        assertThat(articleVO.getArticleContent()).isEqualTo("公开的摘要");
+        assertThat(articleVO.getUsername()).isEqualTo("作者");
+        assertThat(articleVO.getCommentCount()).isEqualTo(3);
+        assertThat(result.getData().getTotal()).isEqualTo(1);
+
+        // 失败一次后不再尝试全文索引
+        articleService.searchArticle(request("关键词"));
+        verify(articleMapper, times(1)).searchArticle(any(), anyString());
+        verify(articleMapper, times(2)).searchArticleByLike(any(), eq("关键词"));
+    }
+
+    @Test
+    void shortKeywordsUseLike() {
+        articleService.searchArticle(request("诗"));
+
+        verify(articleMapper, never()).searchArticle(any(), anyString());
+        verify(articleMapper).searchArticleByLike(any(), eq("诗"));
+    }
+
+    @Test
+    void blankKeywordsAreRejected() {
+        PoetryResult<Page> result = articleService.searchArticle(request("  "));
+
+        assertThat(result.getData()).isNull();
+        verify(articleMapper, never()).searchArticleByLike(any(), anyString());
+    }
+
+    private BaseRequestVO request(String keywords) {
+        BaseRequestVO baseRequestVO = new BaseRequestVO();
+        baseRequestVO.setCurrent(1);
+        baseRequestVO.setSize(10);
+        baseRequestVO.setKeywords(keywords);
+        return baseRequestVO;
+    }
+
+    private Article article() {
+        Article article = new Article();
+        article.setId(10);
+        article.setUserId(1);
+        article.setSortId(1);
+        article.setLabelId(1);
+        article.setArticleTitle("标题");
+        article.setArticleCover("cover.png");
+        article.setArticlePreview("公开的摘要");
+        article.setArticleContent("公开的开头[hidecontent type=\"pay\"]付费的秘密，关键词[/hidecontent]公开的结尾也有关键词");
+        article.setViewCount(5);
+        article.setCommentStatus(true);
+        return article;
+    }
+}
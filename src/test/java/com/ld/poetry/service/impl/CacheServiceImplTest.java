@@ -0,0 +1,218 @@
+package com.ld.poetry.service.impl;
+
+import com.ld.poetry.config.RedisConfig;
+import com.ld.poetry.entity.User;
+import com.ld.poetry.utils.BloomFilterUtil;
+import com.ld.poetry.utils.RedisCacheUtil;
+import com.ld.poetry.utils.TimingWheelCache;
+import io.lettuce.core.api.async.BaseRedisAsyncCommands;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.test.util.ReflectionTestUtils;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * 两个节点共用一个 Redis：一个节点写入或删除后，另一个节点的 L1 通过失效通知被清除
+ */
+class CacheServiceImplTest {
+
+    private static final String CHANNEL = "poetry:cache:invalidate";
+
+    private static final long EXPIRE = 600;
+
+    private static RedisServer redisServer;
+
+    private static int port;
+
+    private Node nodeA;
+
+    private Node nodeB;
+
+    @BeforeAll
+    static void startRedis() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        redisServer = RedisServer.builder().port(port).setting("bind 127.0.0.1").build();
+        redisServer.start();
+    }
+
+    @AfterAll
+    static void stopRedis() {
+        redisServer.stop();
+    }
+
+    @BeforeEach
+    void setUp() throws Exception {
+        nodeA = new Node();
+        nodeB = new Node();
+        nodeA.flushAll();
+        // 两个节点都订阅成功后再开始，避免丢失第一条通知
+        await(() -> nodeA.subscribers() == 2);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        nodeA.close();
+        nodeB.close();
+    }
+
+    @Test
+    void setOnOneNodeEvictsNearCacheOnOther() {
+        nodeA.cacheService.set("user_1", user("v1"), EXPIRE);
+        assertThat(nodeB.cacheService.get("user_1", User.class).getUsername()).isEqualTo("v1");
+        assertThat(nodeB.nearCache().get("user_1")).isNotNull();
+
+        nodeA.cacheService.set("user_1", user("v2"), EXPIRE);
+
+        // near-ttl 为 60 秒，只有失效通知能在这么短的时间内清除 B 的 L1
+        await(() -> nodeB.nearCache().get("user_1") == null);
+        assertThat(nodeB.cacheService.get("user_1", User.class).getUsername()).isEqualTo("v2");
+        // 自己发出的通知不清除自己的 L1
+        assertThat(nodeA.nearCache().get("user_1")).isNotNull();
+    }
+
+    @Test
+    void deleteOnOneNodeEvictsNearCacheOnOther() {
+        nodeA.cacheService.set("user_2", user("v1"), EXPIRE);
+        assertThat(nodeB.cacheService.get("user_2", User.class)).isNotNull();
+
+        nodeA.cacheService.delete("user_2");
+
+        await(() -> nodeB.nearCache().get("user_2") == null);
+        assertThat(nodeB.cacheService.get("user_2", User.class)).isNull();
+    }
+
+    @Test
+    void reloadOnOneNodeIsSeenByGetOrLoadOnOther() {
+        AtomicInteger loads = new AtomicInteger();
+        User first = nodeB.cacheService.getOrLoad("user_3", () -> {
+            loads.incrementAndGet();
+            return user("v1");
+        }, EXPIRE);
+        assertThat(first.getUsername()).isEqualTo("v1");
+        // 第二次命中 B 的 L1，不回源
+        nodeB.cacheService.getOrLoad("user_3", () -> user("unexpected"), EXPIRE);
+        assertThat(loads).hasValue(1);
+
+        nodeA.cacheService.reload("user_3", () -> user("v2"), EXPIRE);
+
+        await(() -> nodeB.nearCache().get("user_3") == null);
+        User reloaded = nodeB.cacheService.getOrLoad("user_3", () -> user("unexpected"), EXPIRE);
+        assertThat(reloaded.getUsername()).isEqualTo("v2");
+    }
+
+    private static User user(String username) {
+        User user = new User();
+        user.setId(1);
+        user.setUsername(username);
+        return user;
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new AssertionError("等待超时");
+            }
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AssertionError(e);
+            }
+        }
+    }
+
+    /**
+     * 一个应用节点：独立的连接、监听容器、RedisCacheUtil 和 CacheServiceImpl
+     */
+    private static class Node {
+
+        private final LettuceConnectionFactory connectionFactory;
+
+        private final RedisMessageListenerContainer container;
+
+        private final StringRedisTemplate stringRedisTemplate;
+
+        private final CacheServiceImpl cacheService;
+
+        Node() throws Exception {
+            connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration("127.0.0.1", port));
+            connectionFactory.afterPropertiesSet();
+            stringRedisTemplate = new StringRedisTemplate(connectionFactory);
+
+            RedisConfig redisConfig = new RedisConfig();
+            ReflectionTestUtils.setField(redisConfig, "serializer", "json");
+            RedisCacheUtil redisCacheUtil = new RedisCacheUtil();
+            ReflectionTestUtils.setField(redisCacheUtil, "redisTemplate", redisConfig.redisTemplate(connectionFactory));
+            ReflectionTestUtils.setField(redisCacheUtil, "bloomFilterUtil", mock(BloomFilterUtil.class));
+            ReflectionTestUtils.setField(redisCacheUtil, "cacheRefreshExecutor", (Executor) Runnable::run);
+
+            container = redisConfig.redisMessageListenerContainer(connectionFactory);
+            container.afterPropertiesSet();
+
+            cacheService = new CacheServiceImpl();
+            ReflectionTestUtils.setField(cacheService, "redisCacheUtil", redisCacheUtil);
+            ReflectionTestUtils.setField(cacheService, "stringRedisTemplate", stringRedisTemplate);
+            ReflectionTestUtils.setField(cacheService, "redisMessageListenerContainer", container);
+            ReflectionTestUtils.setField(cacheService, "nearMaxEntries", 100L);
+            ReflectionTestUtils.setField(cacheService, "nearTtl", 60L);
+            ReflectionTestUtils.setField(cacheService, "cacheRefreshExecutor", (Executor) Runnable::run);
+            cacheService.init();
+            container.start();
+        }
+
+        TimingWheelCache nearCache() {
+            return (TimingWheelCache) ReflectionTestUtils.getField(cacheService, "nearCache");
+        }
+
+        void flushAll() {
+            stringRedisTemplate.execute((RedisCallback<Object>) connection -> {
+                connection.flushAll();
+                return null;
+            });
+        }
+
+        /**
+         * 失效通知频道的订阅数
+         */
+        @SuppressWarnings("unchecked")
+        long subscribers() {
+            Map<byte[], Long> reply = stringRedisTemplate.execute((RedisCallback<Map<byte[], Long>>) connection -> {
+                try {
+                    return ((BaseRedisAsyncCommands<byte[], byte[]>) connection.getNativeConnection())
+                            .pubsubNumsub(CHANNEL.getBytes(StandardCharsets.UTF_8)).get();
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            return reply == null ? 0 : reply.values().stream().mapToLong(Long::longValue).sum();
+        }
+
+        void close() throws Exception {
+            cacheService.destroy();
+            container.destroy();
+            connectionFactory.destroy();
+        }
+    }
+}
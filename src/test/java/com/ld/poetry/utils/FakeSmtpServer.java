@@ -0,0 +1,219 @@
+package com.ld.poetry.utils;
+
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.mail.Multipart;
+import javax.mail.Part;
+import javax.mail.Session;
+import javax.mail.internet.MimeMessage;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 测试用的本地 SMTP 服务
+ * <p>
+ * 只实现 JavaMail 发送时用到的命令，不做认证和 TLS；收件人地址包含 reject 时返回 550。
+ */
+class FakeSmtpServer implements AutoCloseable {
+
+    private final ServerSocket serverSocket;
+
+    private final Set<Socket> clients = ConcurrentHashMap.newKeySet();
+
+    private final AtomicInteger connections = new AtomicInteger();
+
+    private final List<String> recipients = new CopyOnWriteArrayList<>();
+
+    private final List<String> messages = new CopyOnWriteArrayList<>();
+
+    FakeSmtpServer() throws IOException {
+        serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        Thread acceptor = new Thread(this::accept, "fake-smtp-accept");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * 累计建立的连接数
+     */
+    int getConnections() {
+        return connections.get();
+    }
+
+    /**
+     * 已接受的收件人，每封邮件的收件人依次追加
+     */
+    List<String> getRecipients() {
+        return recipients;
+    }
+
+    /**
+     * 已收到的邮件原文
+     */
+    List<String> getMessages() {
+        return messages;
+    }
+
+    /**
+     * 解码后的正文，多个文本段依次拼接
+     */
+    String getText(int index) throws Exception {
+        MimeMessage message = new MimeMessage(Session.getInstance(new Properties()),
+                new ByteArrayInputStream(messages.get(index).getBytes(StandardCharsets.US_ASCII)));
+        StringBuilder text = new StringBuilder();
+        appendText(message, text);
+        return text.toString();
+    }
+
+    /**
+     * 指向本服务的 MailUtil，正文固定 UTF-8，mailExecutor 在调用线程上执行
+     */
+    MailUtil createMailUtil() {
+        JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
+        mailSender.setHost("localhost");
+        mailSender.setPort(getPort());
+        mailSender.setProtocol("smtp");
+        mailSender.setDefaultEncoding("UTF-8");
+
+        MailUtil mailUtil = new MailUtil();
+        ReflectionTestUtils.setField(mailUtil, "mailSender", mailSender);
+        ReflectionTestUtils.setField(mailUtil, "sendMailer", "noreply@poetize.test");
+        ReflectionTestUtils.setField(mailUtil, "mailExecutor", (Executor) Runnable::run);
+        ReflectionTestUtils.setField(mailUtil, "poolSize", 2);
+        ReflectionTestUtils.setField(mailUtil, "idleTimeout", 30000L);
+        mailUtil.init();
+        return mailUtil;
+    }
+
+    /**
+     * 断开所有客户端连接，模拟服务器空闲超时
+     */
+    void disconnectAll() {
+        for (Socket client : clients) {
+            closeQuietly(client);
+        }
+        clients.clear();
+    }
+
+    @Override
+    public void close() {
+        disconnectAll();
+        try {
+            serverSocket.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    private void accept() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket client = serverSocket.accept();
+                connections.incrementAndGet();
+                clients.add(client);
+                Thread handler = new Thread(() -> handle(client), "fake-smtp-client");
+                handler.setDaemon(true);
+                handler.start();
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    private void handle(Socket client) {
+        try (Socket socket = client;
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+             OutputStream out = socket.getOutputStream()) {
+            reply(out, "220 localhost fake smtp");
+            List<String> pending = new ArrayList<>();
+            String line;
+            while ((line = in.readLine()) != null) {
+                String command = line.length() < 4 ? line.toUpperCase() : line.substring(0, 4).toUpperCase();
+                switch (command) {
+                    case "EHLO":
+                    case "HELO":
+                    case "MAIL":
+                    case "NOOP":
+                        reply(out, "250 OK");
+                        break;
+                    case "RSET":
+                        pending.clear();
+                        reply(out, "250 OK");
+                        break;
+                    case "RCPT":
+                        if (line.toLowerCase().contains("reject")) {
+                            reply(out, "550 mailbox unavailable");
+                        } else {
+                            pending.add(line.substring(line.indexOf('<') + 1, line.indexOf('>')));
+                            reply(out, "250 OK");
+                        }
+                        break;
+                    case "DATA":
+                        reply(out, "354 end data with <CR><LF>.<CR><LF>");
+                        StringBuilder data = new StringBuilder();
+                        String dataLine;
+                        while ((dataLine = in.readLine()) != null && !".".equals(dataLine)) {
+                            // 去掉客户端为以 . 开头的行补上的 .
+                            data.append(dataLine.startsWith(".") ? dataLine.substring(1) : dataLine).append("\r\n");
+                        }
+                        recipients.addAll(pending);
+                        pending.clear();
+                        messages.add(data.toString());
+                        reply(out, "250 OK queued");
+                        break;
+                    case "QUIT":
+                        reply(out, "221 bye");
+                        return;
+                    default:
+                        reply(out, "502 command not implemented");
+                }
+            }
+        } catch (IOException ignored) {
+            // 客户端断开或被 disconnectAll 关闭
+        } finally {
+            clients.remove(client);
+        }
+    }
+
+    private static void appendText(Part part, StringBuilder text) throws Exception {
+        if (part.isMimeType("text/*")) {
+            text.append(part.getContent());
+        } else if (part.isMimeType("multipart/*")) {
+            Multipart multipart = (Multipart) part.getContent();
+            for (int i = 0; i < multipart.getCount(); i++) {
+                appendText(multipart.getBodyPart(i), text);
+            }
+        }
+    }
+
+    private void reply(OutputStream out, String line) throws IOException {
+        out.write((line + "\r\n").getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+    }
+
+    private void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.ld.poetry.utils;
+
+import com.ld.poetry.benchmark.LegacyHiddenContentRenderer;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 隐藏内容处理：嵌套、缺少闭标签、多余闭标签等边界情况，以及与原正则实现的一致性
+ */
+class HiddenContentRendererTest {
+
+    private static final Predicate<String> NONE = type -> false;
+
+    private static final Predicate<String> ALL = type -> true;
+
+    @Test
+    void contentWithoutTagsIsReturnedAsIs() {
+        String content = "普通正文 [b]粗体[/b]";
+
+        assertThat(HiddenContentRenderer.render(content, NONE)).isSameAs(content);
+        assertThat(HiddenContentRenderer.render(null, NONE)).isNull();
+        assertThat(HiddenContentRenderer.strip(content)).isSameAs(content);
+    }
+
+    @Test
+    void marksTagAndClearsContentByPermission() {
+        String content = "前[hidecontent type=\"vip1\" title=\"会员\"]会员内容[/hidecontent]后";
+
+        assertThat(HiddenContentRenderer.render(content, type -> type.equals("vip1")))
+                .isEqualTo("前[hidecontent type=\"vip1\" title=\"会员\" isshow=\"true\"]会员内容[/hidecontent]后");
+        assertThat(HiddenContentRenderer.render(content, NONE))
+                .isEqualTo("前[hidecontent type=\"vip1\" title=\"会员\" isshow=\"false\"][/hidecontent]后");
+    }
+
+    @Test
+    void typeIsPassedInLowerCase() {
+        Set<String> types = new HashSet<>();
+
+        HiddenContentRenderer.render("[hidecontent type='PAY']a[/hidecontent][hidecontent\ttype=Reply]b[/hidecontent]",
+                type -> {
+                    types.add(type);
+                    return false;
+                });
+
+        assertThat(types).containsExactlyInAnyOrder("pay", "reply");
+    }
+
+    @Test
+    void nestedBlocksPairByDepth() {
+        String content = "[hidecontent type=logged]外[hidecontent type=pay]内[/hidecontent]尾[/hidecontent]后";
+
+        // 外层有权限、内层没有：内层同样按权限处理
+        assertThat(HiddenContentRenderer.render(content, type -> type.equals("logged")))
+                .isEqualTo("[hidecontent type=logged isshow=\"true\"]外[hidecontent type=pay isshow=\"false\"][/hidecontent]尾[/hidecontent]后");
+        // 外层没有权限：整个外层内容清空，包括内层和内层之后的部分
+        assertThat(HiddenContentRenderer.render(content, type -> type.equals("pay")))
+                .isEqualTo("[hidecontent type=logged isshow=\"false\"][/hidecontent]后");
+        assertThat(HiddenContentRenderer.render(content, ALL))
+                .isEqualTo("[hidecontent type=logged isshow=\"true\"]外[hidecontent type=pay isshow=\"true\"]内[/hidecontent]尾[/hidecontent]后");
+        assertThat(HiddenContentRenderer.strip(content)).isEqualTo("后");
+    }
+
+    @Test
+    void nestedBlocksDoNotLeakTextAfterInnerClose() {
+        String content = "[hidecontent type=vip1]A[hidecontent type=vip1]B[/hidecontent]C[/hidecontent]";
+
+        // 正则把外层开标签和内层闭标签配对，C 会留在正文中
+        assertThat(LegacyHiddenContentRenderer.render(content, NONE)).contains("C");
+        assertThat(HiddenContentRenderer.render(content, NONE)).doesNotContain("A", "B", "C");
+    }
+
+    @Test
+    void openTagWithoutCloseIsKeptAsText() {
+        String content = "前[hidecontent type=vip1]没有闭标签";
+
+        assertThat(HiddenContentRenderer.render(content, NONE)).isEqualTo(content);
+        assertThat(HiddenContentRenderer.render(content, NONE)).isEqualTo(LegacyHiddenContentRenderer.render(content, NONE));
+    }
+
+    @Test
+    void missingInnerCloseFallsBackToFirstClose() {
+        // 内层漏写闭标签，外层与唯一的闭标签配对，没有权限时全部清空
+        String content = "[hidecontent type=vip1]A[hidecontent type=pay]B[/hidecontent]C";
+
+        assertThat(HiddenContentRenderer.render(content, NONE))
+                .isEqualTo("[hidecontent type=vip1 isshow=\"false\"][/hidecontent]C");
+        assertThat(HiddenContentRenderer.strip(content)).isEqualTo("C");
+        assertThat(HiddenContentRenderer.render(content, NONE)).isEqualTo(LegacyHiddenContentRenderer.render(content, NONE));
+    }
+
+    @Test
+    void strayCloseTagsAreKeptAsText() {
+        String content = "前[/hidecontent]中[hidecontent type=logged]x[/hidecontent][/hidecontent]后";
+
+        assertThat(HiddenContentRenderer.render(content, ALL))
+                .isEqualTo("前[/hidecontent]中[hidecontent type=logged isshow=\"true\"]x[/hidecontent][/hidecontent]后");
+        assertThat(HiddenContentRenderer.render(content, ALL)).isEqualTo(LegacyHiddenContentRenderer.render(content, ALL));
+    }
+
+    @Test
+    void malformedOpenTagsAreKeptAsText() {
+        List<String> contents = Arrays.asList(
+                "[hidecontent]x[/hidecontent]",
+                "[hidecontenttype=vip1]x[/hidecontent]",
+                "[hidecontent type=]x[/hidecontent]",
+                "[hidecontent title=a type=vip1]x[/hidecontent]",
+                "[hidecontent type=vip1 没有右括号");
+
+        for (String content : contents) {
+            assertThat(HiddenContentRenderer.render(content, ALL)).isEqualTo(content);
+            assertThat(LegacyHiddenContentRenderer.render(content, ALL)).isEqualTo(content);
+        }
+    }
+
+    @Test
+    void stripRemovesHiddenContentAndTags() {
+        String content = "公开[hidecontent type=logged]登录可见[/hidecontent]内容[hidecontent type=\"pay\"]付费[/hidecontent]";
+
+        assertThat(HiddenContentRenderer.strip(content)).isEqualTo("公开内容");
+    }
+
+    /**
+     * 随机组合不嵌套的标签、多余的闭标签、不合语法的开标签和普通文本，输出与正则实现逐字相同
+     */
+    @Test
+    void matchesRegexOutputForNonNestedContent() {
+        Random random = new Random(20200417L);
+        List<Predicate<String>> permissions = Arrays.asList(NONE, ALL,
+                type -> type.equals("logged") || type.equals("reply"), type -> type.equals("vip1"));
+        for (int i = 0; i < 20_000; i++) {
+            String content = randomContent(random);
+            for (Predicate<String> permission : permissions) {
+                assertThat(HiddenContentRenderer.render(content, permission))
+                        .as(content)
+                        .isEqualTo(LegacyHiddenContentRenderer.render(content, permission));
+            }
+        }
+    }
+
+    private static final String[] OPEN_TAGS = {
+            "[hidecontent type=\"vip1\"]",
+            "[hidecontent type='pay' title=\"付费\"]",
+            "[hidecontent\ntype=logged]",
+            "[hidecontent  type=REPLY]",
+            "[hidecontent type=\"unknown\" a=b]",
+            "[hidecontent type=vip1\"]"
+    };
+
+    private static final String[] NOISE = {
+            "[hidecontent]", "[hidecontent type=]", "[hidecontent x", "[/hidecontent]", "[", "]", "[b]", "\n", "[/hide"
+    };
+
+    private static final String[] TEXT = {"正文", "abc", "诗词 ", "<p>段落</p>", "$1\\", ""};
+
+    private static String randomContent(Random random) {
+        StringBuilder sb = new StringBuilder();
+        int parts = random.nextInt(6);
+        for (int i = 0; i < parts; i++) {
+            switch (random.nextInt(4)) {
+                case 0:
+                    sb.append(OPEN_TAGS[random.nextInt(OPEN_TAGS.length)])
+                            .append(randomText(random))
+                            .append("[/hidecontent]");
+                    break;
+                case 1:
+                    sb.append(NOISE[random.nextInt(NOISE.length)]);
+                    break;
+                default:
+                    sb.append(randomText(random));
+            }
+        }
+        // 结尾偶尔留一个没有闭标签的开标签
+        if (random.nextInt(8) == 0) {
+            sb.append(OPEN_TAGS[random.nextInt(OPEN_TAGS.length)]).append(randomText(random));
+        }
+        return sb.toString();
+    }
+
+    private static String randomText(Random random) {
+        StringBuilder sb = new StringBuilder();
+        int parts = random.nextInt(3);
+        for (int i = 0; i < parts; i++) {
+            sb.append(random.nextInt(5) == 0 ? NOISE[random.nextInt(NOISE.length)] : TEXT[random.nextInt(TEXT.length)]);
+        }
+        return sb.toString();
+    }
+}
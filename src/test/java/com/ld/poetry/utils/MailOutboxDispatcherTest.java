@@ -0,0 +1,164 @@
+package com.ld.poetry.utils;
+
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.core.conditions.Wrapper;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
+import com.baomidou.mybatisplus.core.metadata.TableInfoHelper;
+import com.ld.poetry.dao.MailOutboxMapper;
+import com.ld.poetry.entity.MailOutbox;
+import org.apache.ibatis.builder.MapperBuilderAssistant;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 发件箱投递：同一邮箱合并成一封、每日上限、发送失败退避重试
+ */
+class MailOutboxDispatcherTest {
+
+    private static final String ADDRESS = "reader@poetize.test";
+
+    private static final String REJECTED_ADDRESS = "reject@poetize.test";
+
+    private FakeSmtpServer server;
+
+    private MailUtil mailUtil;
+
+    private MailOutboxMapper mailOutboxMapper;
+
+    private MailSendUtil mailSendUtil;
+
+    private MailOutboxDispatcher dispatcher;
+
+    @BeforeAll
+    static void initTableInfo() {
+        // LambdaUpdateWrapper 解析列名需要实体的 TableInfo
+        TableInfoHelper.initTableInfo(new MapperBuilderAssistant(new MybatisConfiguration(), ""), MailOutbox.class);
+    }
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = new FakeSmtpServer();
+        mailUtil = server.createMailUtil();
+
+        mailOutboxMapper = mock(MailOutboxMapper.class);
+        when(mailOutboxMapper.update(isNull(), any())).thenReturn(1);
+        mailSendUtil = mock(MailSendUtil.class);
+        when(mailSendUtil.getMailSubject()).thenReturn("subject");
+        when(mailSendUtil.renderMail(any())).thenAnswer(invocation -> "<p>" + ((MailOutbox) invocation.getArgument(0)).getContent() + "</p>");
+
+        dispatcher = new MailOutboxDispatcher();
+        ReflectionTestUtils.setField(dispatcher, "mailOutboxMapper", mailOutboxMapper);
+        ReflectionTestUtils.setField(dispatcher, "mailSendUtil", mailSendUtil);
+        ReflectionTestUtils.setField(dispatcher, "mailUtil", mailUtil);
+        ReflectionTestUtils.setField(dispatcher, "mailExecutor", (Executor) Runnable::run);
+        ReflectionTestUtils.setField(dispatcher, "batchSize", 50);
+        ReflectionTestUtils.setField(dispatcher, "maxRetries", 5);
+    }
+
+    @AfterEach
+    void tearDown() {
+        PoetryCache.remove(CommonConst.COMMENT_IM_MAIL + ADDRESS);
+        PoetryCache.remove(CommonConst.COMMENT_IM_MAIL + REJECTED_ADDRESS);
+        mailUtil.destroy();
+        server.close();
+    }
+
+    @Test
+    void coalescesOutboxesForSameAddress() throws Exception {
+        MailOutbox first = outbox(101L, "第一条评论");
+        MailOutbox second = outbox(102L, "第二条评论");
+        when(mailOutboxMapper.selectList(any())).thenReturn(Arrays.asList(first, second));
+        when(mailSendUtil.getMailAddress(any())).thenReturn(ADDRESS);
+
+        dispatcher.poll();
+
+        assertThat(server.getMessages()).hasSize(1);
+        assertThat(server.getText(0)).contains("第一条评论", "第二条评论");
+        assertThat(server.getRecipients()).containsExactly(ADDRESS);
+        // 两次认领加一次标记已发送
+        List<LambdaUpdateWrapper<MailOutbox>> updates = captureUpdates(3);
+        assertThat(updates.get(2).getParamNameValuePairs()).containsValue(MailOutbox.STATUS_SENT);
+        assertThat(((AtomicInteger) PoetryCache.get(CommonConst.COMMENT_IM_MAIL + ADDRESS)).get()).isEqualTo(1);
+    }
+
+    @Test
+    void skipsAddressOverDailyLimit() {
+        PoetryCache.put(CommonConst.COMMENT_IM_MAIL + ADDRESS, new AtomicInteger(CommonConst.COMMENT_IM_MAIL_COUNT));
+        when(mailOutboxMapper.selectList(any())).thenReturn(Arrays.asList(outbox(103L, "超出上限")));
+        when(mailSendUtil.getMailAddress(any())).thenReturn(ADDRESS);
+
+        dispatcher.poll();
+
+        assertThat(server.getMessages()).isEmpty();
+        List<LambdaUpdateWrapper<MailOutbox>> updates = captureUpdates(2);
+        assertThat(updates.get(1).getParamNameValuePairs()).containsValue(MailOutbox.STATUS_SKIPPED);
+    }
+
+    @Test
+    void failedSendIsRetriedLater() {
+        when(mailOutboxMapper.selectList(any())).thenReturn(Arrays.asList(outbox(104L, "收件人被拒")));
+        when(mailSendUtil.getMailAddress(any())).thenReturn(REJECTED_ADDRESS);
+
+        dispatcher.poll();
+
+        assertThat(server.getMessages()).isEmpty();
+        ArgumentCaptor<MailOutbox> captor = ArgumentCaptor.forClass(MailOutbox.class);
+        verify(mailOutboxMapper).updateById(captor.capture());
+        MailOutbox update = captor.getValue();
+        assertThat(update.getId()).isEqualTo(104L);
+        assertThat(update.getRetryCount()).isEqualTo(1);
+        assertThat(update.getStatus()).isEqualTo(MailOutbox.STATUS_PENDING);
+        assertThat(update.getNextSendTime()).isAfter(LocalDateTime.now());
+        assertThat(update.getLastError()).isNotEmpty();
+        // 只有认领，没有标记已发送
+        captureUpdates(1);
+    }
+
+    @Test
+    void unclaimedOutboxIsNotSent() {
+        when(mailOutboxMapper.update(isNull(), any())).thenReturn(0);
+        when(mailOutboxMapper.selectList(any())).thenReturn(Arrays.asList(outbox(105L, "已被其他节点认领")));
+
+        dispatcher.poll();
+
+        assertThat(server.getMessages()).isEmpty();
+        verify(mailSendUtil, never()).getMailAddress(any());
+    }
+
+    private MailOutbox outbox(Long id, String content) {
+        MailOutbox outbox = new MailOutbox();
+        outbox.setId(id);
+        outbox.setMailType(MailOutbox.TYPE_COMMENT);
+        outbox.setStatus(MailOutbox.STATUS_PENDING);
+        outbox.setRetryCount(0);
+        outbox.setContent(content);
+        outbox.setUpdateTime(LocalDateTime.now());
+        return outbox;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private List<LambdaUpdateWrapper<MailOutbox>> captureUpdates(int count) {
+        ArgumentCaptor<Wrapper> captor = ArgumentCaptor.forClass(Wrapper.class);
+        verify(mailOutboxMapper, times(count)).update(isNull(), captor.capture());
+        return (List) captor.getAllValues();
+    }
+}
@@ -0,0 +1,88 @@
+package com.ld.poetry.utils;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.mail.MessagingException;
+import javax.mail.SendFailedException;
+import javax.mail.internet.MimeMessage;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * SMTP 连接池：批量发送共用连接、连接复用、收件人被拒、断线重连
+ */
+class MailUtilTest {
+
+    private FakeSmtpServer server;
+
+    private MailUtil mailUtil;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = new FakeSmtpServer();
+        mailUtil = server.createMailUtil();
+    }
+
+    @AfterEach
+    void tearDown() {
+        mailUtil.destroy();
+        server.close();
+    }
+
+    @Test
+    void sendBatchUsesOneConnection() throws Exception {
+        List<Exception> results = mailUtil.sendBatch(messages("a@poetize.test", "b@poetize.test", "c@poetize.test"));
+
+        assertThat(results).containsExactly(null, null, null);
+        assertThat(server.getMessages()).hasSize(3);
+        assertThat(server.getRecipients()).containsExactly("a@poetize.test", "b@poetize.test", "c@poetize.test");
+        assertThat(server.getConnections()).isEqualTo(1);
+        assertThat(mailUtil.stats()).containsEntry("sent", 3L).containsEntry("connects", 1L).containsEntry("idleConnections", 1);
+    }
+
+    @Test
+    void idleConnectionIsReused() throws Exception {
+        mailUtil.sendBatch(messages("a@poetize.test"));
+        mailUtil.sendMail(Collections.singletonList("b@poetize.test"), "subject", "<p>text</p>");
+
+        assertThat(server.getMessages()).hasSize(2);
+        assertThat(server.getConnections()).isEqualTo(1);
+    }
+
+    @Test
+    void rejectedRecipientFailsOnlyItsMessage() throws Exception {
+        List<Exception> results = mailUtil.sendBatch(messages("a@poetize.test", "reject@poetize.test", "c@poetize.test"));
+
+        assertThat(results.get(0)).isNull();
+        assertThat(results.get(1)).isInstanceOf(SendFailedException.class);
+        assertThat(results.get(2)).isNull();
+        assertThat(server.getRecipients()).containsExactly("a@poetize.test", "c@poetize.test");
+        assertThat(server.getConnections()).isEqualTo(1);
+        assertThat(mailUtil.stats()).containsEntry("sent", 2L).containsEntry("failed", 1L);
+    }
+
+    @Test
+    void reconnectsAfterServerDisconnect() throws Exception {
+        mailUtil.sendBatch(messages("a@poetize.test"));
+        server.disconnectAll();
+
+        List<Exception> results = mailUtil.sendBatch(messages("b@poetize.test", "c@poetize.test"));
+
+        assertThat(results).containsExactly(null, null);
+        assertThat(server.getRecipients()).containsExactly("a@poetize.test", "b@poetize.test", "c@poetize.test");
+        assertThat(server.getConnections()).isEqualTo(2);
+    }
+
+    private List<MimeMessage> messages(String... to) throws MessagingException {
+        List<MimeMessage> messages = new ArrayList<>();
+        for (String address : to) {
+            messages.add(mailUtil.createMessage(Collections.singletonList(address), "subject", "<p>text</p>"));
+        }
+        return messages;
+    }
+}
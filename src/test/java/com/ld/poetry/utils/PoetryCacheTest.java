@@ -0,0 +1,55 @@
+package com.ld.poetry.utils;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * configure 切换引擎：已有的键连同 TTL 迁移，旧引擎的清扫线程停止
+ */
+class PoetryCacheTest {
+
+    @AfterEach
+    void tearDown() {
+        PoetryCache.remove("configure:expiring");
+        PoetryCache.remove("configure:pinned");
+        PoetryCache.configure(0);
+    }
+
+    @Test
+    void configureSwapsEngineAndKeepsEntries() {
+        PoetryCache.put("configure:expiring", "v", 60);
+        PoetryCache.put("configure:pinned", "p");
+        TimingWheelCache old = engine();
+
+        PoetryCache.configure(1000);
+
+        TimingWheelCache bounded = engine();
+        assertThat(bounded).isNotSameAs(old);
+        assertThat(bounded.getMaximumSize()).isEqualTo(1000);
+        assertThat(sweeper(old).isShutdown()).isTrue();
+        assertThat(PoetryCache.get("configure:expiring")).isEqualTo("v");
+        assertThat(PoetryCache.get("configure:pinned")).isEqualTo("p");
+
+        // 容量不变时不切换
+        PoetryCache.configure(1000);
+        assertThat(engine()).isSameAs(bounded);
+
+        PoetryCache.configure(0);
+        assertThat(engine().getMaximumSize()).isZero();
+        assertThat(PoetryCache.get("configure:expiring")).isEqualTo("v");
+        assertThat(PoetryCache.get("configure:pinned")).isEqualTo("p");
+    }
+
+    private TimingWheelCache engine() {
+        return (TimingWheelCache) ReflectionTestUtils.getField(PoetryCache.class, "cache");
+    }
+
+    private ScheduledExecutorService sweeper(TimingWheelCache cache) {
+        return (ScheduledExecutorService) ReflectionTestUtils.getField(cache, "sweeper");
+    }
+}
@@ -0,0 +1,52 @@
+package com.ld.poetry.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 搜索摘要不能带出隐藏内容
+ */
+class PoetryUtilTest {
+
+    private static final String CONTENT = "开头的公开内容。"
+            + "[hidecontent type=\"pay\"]付费才能看的秘密，关键词也在这里[/hidecontent]"
+            + "[hidecontent type=\"logged\"]登录可见的段落[/hidecontent]"
+            + "中间的公开内容，这里出现了关键词，后面还有更多的公开内容。";
+
+    @Test
+    void stripRemovesHiddenContentAndTags() {
+        String text = HiddenContentRenderer.strip(CONTENT);
+
+        assertThat(text).isEqualTo("开头的公开内容。中间的公开内容，这里出现了关键词，后面还有更多的公开内容。");
+    }
+
+    @Test
+    void searchSnippetNeverContainsHiddenContent() {
+        String snippet = PoetryUtil.searchSnippet(CONTENT, "关键词");
+
+        assertThat(snippet).contains("关键词").doesNotContain("秘密", "登录可见", "hidecontent");
+    }
+
+    @Test
+    void searchSnippetStartsNearKeyword() {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            content.append("前文");
+        }
+        content.append("关键词在此");
+        for (int i = 0; i < 100; i++) {
+            content.append("后文");
+        }
+
+        String snippet = PoetryUtil.searchSnippet(content.toString(), "关键词");
+
+        assertThat(snippet).hasSize(CommonConst.SEARCH_SNIPPET_LENGTH);
+        assertThat(snippet.indexOf("关键词")).isEqualTo(CommonConst.SEARCH_SNIPPET_BEFORE);
+    }
+
+    @Test
+    void highlightEscapesHtml() {
+        assertThat(PoetryUtil.highlight("<b>关键词</b>", "关键词")).isEqualTo("&lt;b&gt;<em>关键词</em>&lt;/b&gt;");
+    }
+}
@@ -0,0 +1,114 @@
+package com.ld.poetry.utils;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.invocation.Invocation;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockingDetails;
+import static org.mockito.Mockito.when;
+
+/**
+ * 按模式、按标签删除缓存只能用 SCAN/SSCAN + UNLINK，不能出现 KEYS/DEL
+ */
+class RedisCacheUtilTest {
+
+    /**
+     * 超过一批（500）的数量，保证分批 UNLINK
+     */
+    private static final int KEY_COUNT = 1200;
+
+    private RedisConnection connection;
+
+    private RedisCacheUtil redisCacheUtil;
+
+    @BeforeEach
+    void setUp() {
+        connection = mock(RedisConnection.class);
+        RedisConnectionFactory connectionFactory = mock(RedisConnectionFactory.class);
+        when(connectionFactory.getConnection()).thenReturn(connection);
+        when(connection.unlink(any())).thenAnswer(invocation -> (long) invocation.getArguments().length);
+
+        RedisTemplate<String, Object> redisTemplate = new RedisTemplate<>();
+        redisTemplate.setConnectionFactory(connectionFactory);
+        redisTemplate.setKeySerializer(new StringRedisSerializer());
+        redisTemplate.setValueSerializer(new StringRedisSerializer());
+        redisTemplate.afterPropertiesSet();
+
+        redisCacheUtil = new RedisCacheUtil();
+        ReflectionTestUtils.setField(redisCacheUtil, "redisTemplate", redisTemplate);
+    }
+
+    @Test
+    void deleteByPatternUsesScanAndUnlink() {
+        Cursor<byte[]> cursor = cursor(keys("article:"));
+        when(connection.scan(any())).thenReturn(cursor);
+
+        assertThat(redisCacheUtil.deleteByPattern("article:*")).isEqualTo(KEY_COUNT);
+
+        assertThat(invokedMethods()).contains("scan", "unlink").doesNotContain("keys", "del");
+        assertThat(unlinkBatches()).containsExactly(500, 500, 200);
+    }
+
+    @Test
+    void invalidateTagUsesSscanAndUnlink() {
+        Cursor<byte[]> cursor = cursor(keys("comment:page:"));
+        when(connection.sScan(any(), any())).thenReturn(cursor);
+
+        List<String> deleted = redisCacheUtil.invalidateTag("article:1");
+
+        assertThat(deleted).hasSize(KEY_COUNT).startsWith("comment:page:0");
+        assertThat(invokedMethods()).contains("sScan", "unlink").doesNotContain("keys", "del", "sMembers");
+        // 三批成员，最后删除标签集合本身
+        assertThat(unlinkBatches()).containsExactly(500, 500, 200, 1);
+    }
+
+    private List<byte[]> keys(String prefix) {
+        List<byte[]> keys = new ArrayList<>(KEY_COUNT);
+        for (int i = 0; i < KEY_COUNT; i++) {
+            keys.add((prefix + i).getBytes(StandardCharsets.UTF_8));
+        }
+        return keys;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Cursor<byte[]> cursor(List<byte[]> keys) {
+        Iterator<byte[]> iterator = keys.iterator();
+        Cursor<byte[]> cursor = mock(Cursor.class);
+        when(cursor.hasNext()).thenAnswer(invocation -> iterator.hasNext());
+        when(cursor.next()).thenAnswer(invocation -> iterator.next());
+        return cursor;
+    }
+
+    private Set<String> invokedMethods() {
+        return mockingDetails(connection).getInvocations().stream()
+                .map(invocation -> invocation.getMethod().getName())
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * 每次 UNLINK 的 key 数量
+     */
+    private List<Integer> unlinkBatches() {
+        return mockingDetails(connection).getInvocations().stream()
+                .filter(invocation -> "unlink".equals(invocation.getMethod().getName()))
+                .map(Invocation::getArguments)
+                .map(arguments -> arguments.length)
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,195 @@
+package com.ld.poetry.utils;
+
+import com.ld.poetry.config.RedisConfig;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * 两个节点通过 update 修改同一个 key：比较并写入，不丢失其他节点的修改，保留过期时间和提前刷新信息
+ */
+class RedisCacheUtilUpdateTest {
+
+    private static RedisServer redisServer;
+
+    private static int port;
+
+    private Node nodeA;
+
+    private Node nodeB;
+
+    @BeforeAll
+    static void startRedis() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        redisServer = RedisServer.builder().port(port).setting("bind 127.0.0.1").build();
+        redisServer.start();
+    }
+
+    @AfterAll
+    static void stopRedis() {
+        redisServer.stop();
+    }
+
+    @BeforeEach
+    void setUp() {
+        nodeA = new Node();
+        nodeB = new Node();
+        nodeA.redisTemplate.execute((RedisCallback<Object>) connection -> {
+            connection.flushAll();
+            return null;
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        nodeA.close();
+        nodeB.close();
+    }
+
+    @Test
+    void retriesWhenAnotherNodeWritesBetweenReadAndExec() {
+        nodeA.redisCacheUtil.set("counter", 0, 600);
+        AtomicInteger calls = new AtomicInteger();
+
+        Integer result = nodeA.redisCacheUtil.<Integer>update("counter", current -> {
+            if (calls.incrementAndGet() == 1) {
+                // 第一次读取之后、EXEC 之前，B 完成了自己的修改
+                nodeB.redisCacheUtil.<Integer>update("counter", value -> value + 10);
+            }
+            return current + 1;
+        });
+
+        assertThat(calls).hasValue(2);
+        assertThat(result).isEqualTo(11);
+        assertThat(nodeB.redisCacheUtil.get("counter")).isEqualTo(11);
+    }
+
+    @Test
+    void concurrentUpdatesFromTwoNodesAreNotLost() throws Exception {
+        nodeA.redisCacheUtil.set("counter", 0, 600);
+        int threads = 4;
+        int updates = 50;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger applied = new AtomicInteger();
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                RedisCacheUtil util = (t % 2 == 0 ? nodeA : nodeB).redisCacheUtil;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < updates; i++) {
+                        if (util.<Integer>update("counter", value -> value + 1) != null) {
+                            applied.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // 多次冲突时缓存被删除，之后的修改都不写入；没有删除时每次成功的修改都必须可见
+        Object counter = nodeA.redisCacheUtil.get("counter");
+        if (counter != null) {
+            assertThat(counter).isEqualTo(applied.get());
+        }
+    }
+
+    @Test
+    void keepsTtlAndEnvelope() {
+        nodeA.redisCacheUtil.getWithEarlyRefresh("counter", () -> 1, 600);
+        Long ttlBefore = nodeA.redisTemplate.getExpire("counter", TimeUnit.SECONDS);
+        Object envelopeBefore = nodeA.redisTemplate.opsForValue().get("counter");
+
+        nodeA.redisCacheUtil.<Integer>update("counter", value -> value + 1);
+
+        Object envelopeAfter = nodeA.redisTemplate.opsForValue().get("counter");
+        assertThat(envelopeAfter).isInstanceOf(CacheEnvelope.class);
+        assertThat(((CacheEnvelope) envelopeAfter).getValue()).isEqualTo(2);
+        assertThat(((CacheEnvelope) envelopeAfter).getExpiry()).isEqualTo(((CacheEnvelope) envelopeBefore).getExpiry());
+        assertThat(nodeA.redisTemplate.getExpire("counter", TimeUnit.SECONDS)).isBetween(ttlBefore - 2, ttlBefore);
+    }
+
+    @Test
+    void missingOrNullValueIsNotWritten() {
+        assertThat(nodeA.redisCacheUtil.<Integer>update("missing", value -> value + 1)).isNull();
+        assertThat(nodeA.redisTemplate.hasKey("missing")).isFalse();
+
+        nodeA.redisCacheUtil.set("empty", null);
+        assertThat(nodeA.redisCacheUtil.<Integer>update("empty", value -> value + 1)).isNull();
+        assertThat(nodeA.redisCacheUtil.get("empty")).isNull();
+    }
+
+    @Test
+    void deletesKeyAfterRepeatedConflicts() {
+        nodeA.redisCacheUtil.set("counter", 0, 600);
+
+        Integer result = nodeA.redisCacheUtil.<Integer>update("counter", current -> {
+            // 每次读取之后 B 都抢先写入
+            nodeB.redisTemplate.opsForValue().set("counter", current + 100);
+            return current + 1;
+        });
+
+        assertThat(result).isNull();
+        assertThat(nodeA.redisTemplate.hasKey("counter")).isFalse();
+    }
+
+    /**
+     * 一个应用节点：独立的连接和 RedisCacheUtil
+     */
+    private static class Node {
+
+        private final LettuceConnectionFactory connectionFactory;
+
+        private final RedisTemplate<String, Object> redisTemplate;
+
+        private final RedisCacheUtil redisCacheUtil;
+
+        Node() {
+            connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration("127.0.0.1", port));
+            connectionFactory.afterPropertiesSet();
+            RedisConfig redisConfig = new RedisConfig();
+            ReflectionTestUtils.setField(redisConfig, "serializer", "json");
+            redisTemplate = redisConfig.redisTemplate(connectionFactory);
+            redisCacheUtil = new RedisCacheUtil();
+            ReflectionTestUtils.setField(redisCacheUtil, "redisTemplate", redisTemplate);
+            ReflectionTestUtils.setField(redisCacheUtil, "bloomFilterUtil", mock(BloomFilterUtil.class));
+            ReflectionTestUtils.setField(redisCacheUtil, "cacheRefreshExecutor", (Executor) Runnable::run);
+        }
+
+        void close() {
+            connectionFactory.destroy();
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.ld.poetry.utils;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 时间轮过期：跨多圈、同槽位不同圈、覆盖写入、迁移剩余 TTL、有界模式淘汰
+ * <p>
+ * 时钟由测试推进，不启动清扫线程，每推进一秒手动清扫一次
+ */
+class TimingWheelCacheTest {
+
+    /**
+     * 与 TimingWheelCache.WHEEL_SIZE 一致，tick 为 1 秒
+     */
+    private static final int WHEEL_SECONDS = 512;
+
+    private final AtomicLong nanos = new AtomicLong(TimeUnit.HOURS.toNanos(1));
+
+    private TimingWheelCache cache = newCache(0);
+
+    @AfterEach
+    void tearDown() {
+        cache.shutdown();
+    }
+
+    @Test
+    void expiresAfterSeveralWheelRounds() {
+        long ttl = WHEEL_SECONDS * 2 + 300;
+        cache.put("k", "v", ttl);
+
+        sleep(ttl - 1);
+        assertThat(cache.size()).isEqualTo(1);
+        assertThat(cache.get("k")).isEqualTo("v");
+
+        sleep(2);
+        // 由清扫移除，而不是读取时惰性过期
+        assertThat(cache.size()).isZero();
+        assertThat(cache.stats().get(TimingWheelCache.OTHER_PREFIX)).containsEntry("expirations", 1L);
+    }
+
+    @Test
+    void sameSlotDifferentRoundsExpireSeparately() {
+        cache.put("near", 1, 10);
+        cache.put("far", 2, 10 + WHEEL_SECONDS);
+
+        sleep(11);
+        assertThat(cache.get("near")).isNull();
+        assertThat(cache.get("far")).isEqualTo(2);
+
+        sleep(WHEEL_SECONDS);
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    void overwriteIsNotExpiredByStaleNode() {
+        cache.put("k", "old", 5);
+        cache.put("k", "new", 0);
+
+        sleep(WHEEL_SECONDS + 10);
+        assertThat(cache.get("k")).isEqualTo("new");
+
+        cache.put("k", "short", 3);
+        cache.put("k", "long", 30);
+        sleep(10);
+        assertThat(cache.get("k")).isEqualTo("long");
+        sleep(21);
+        assertThat(cache.get("k")).isNull();
+    }
+
+    @Test
+    void readExpiresLazilyBeforeSweep() {
+        cache.put("k", "v", 5);
+
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(5));
+
+        assertThat(cache.get("k")).isNull();
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    void transferKeepsRemainingTtl() {
+        cache.put("expiring", "v", 10);
+        cache.put("pinned", "p", 0);
+        sleep(6);
+
+        TimingWheelCache target = newCache(100);
+        try {
+            cache.transferTo(target);
+            assertThat(target.get("pinned")).isEqualTo("p");
+
+            // 剩余 4 秒，向上取整后多保留 1 秒
+            nanos.addAndGet(TimeUnit.SECONDS.toNanos(4));
+            target.advance();
+            assertThat(target.get("expiring")).isEqualTo("v");
+
+            nanos.addAndGet(TimeUnit.SECONDS.toNanos(2));
+            target.advance();
+            assertThat(target.get("expiring")).isNull();
+            assertThat(target.get("pinned")).isEqualTo("p");
+        } finally {
+            target.shutdown();
+        }
+    }
+
+    @Test
+    void boundedModeEvictsProbationBeforeProtectedAndKeepsPinned() {
+        cache.shutdown();
+        cache = newCache(1600);
+        cache.put("pinned", "p", 0);
+        cache.put("hot", "h", 600);
+        // 再次命中晋升到保护区
+        assertThat(cache.get("hot")).isEqualTo("h");
+
+        for (int i = 0; i < 5000; i++) {
+            cache.put("cold:" + i, i, 600);
+        }
+
+        // 不过期的键不计入容量
+        assertThat(cache.size()).isLessThanOrEqualTo(1600 + 1);
+        assertThat(cache.get("pinned")).isEqualTo("p");
+        assertThat(cache.get("hot")).isEqualTo("h");
+        assertThat(cache.get("cold:0")).isNull();
+        assertThat(cache.get("cold:4999")).isEqualTo(4999);
+        assertThat((Long) cache.stats().get(TimingWheelCache.OTHER_PREFIX).get("evictions")).isGreaterThan(0L);
+    }
+
+    private TimingWheelCache newCache(long maximumSize) {
+        return new TimingWheelCache("test-cache", maximumSize, Collections.emptyList(), nanos::get, false);
+    }
+
+    /**
+     * 逐秒推进时钟并清扫，模拟清扫线程
+     */
+    private void sleep(long seconds) {
+        for (long i = 0; i < seconds; i++) {
+            nanos.addAndGet(TimeUnit.SECONDS.toNanos(1));
+            cache.advance();
+        }
+    }
+}
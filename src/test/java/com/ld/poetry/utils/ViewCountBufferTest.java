@@ -0,0 +1,181 @@
+package com.ld.poetry.utils;
+
+import com.ld.poetry.dao.ArticleMapper;
+import com.ld.poetry.dao.DiaryMapper;
+import com.ld.poetry.service.CacheService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * 浏览量写回：写回前后看到的浏览量（数据库或缓存中的值 + 未写回的增量）不倒退
+ */
+class ViewCountBufferTest {
+
+    private ArticleMapper articleMapper;
+
+    private DiaryMapper diaryMapper;
+
+    private CacheService cacheService;
+
+    private ViewCountBuffer buffer;
+
+    /**
+     * 数据库中的浏览量
+     */
+    private final Map<Integer, Long> database = new HashMap<>();
+
+    /**
+     * 缓存中的文章行读取时的浏览量，删除后从数据库重新加载
+     */
+    private final Map<Integer, Long> cache = new HashMap<>();
+
+    @BeforeEach
+    void setUp() {
+        articleMapper = mock(ArticleMapper.class);
+        diaryMapper = mock(DiaryMapper.class);
+        cacheService = mock(CacheService.class);
+        buffer = new ViewCountBuffer();
+        ReflectionTestUtils.setField(buffer, "articleMapper", articleMapper);
+        ReflectionTestUtils.setField(buffer, "diaryMapper", diaryMapper);
+        ReflectionTestUtils.setField(buffer, "cacheService", cacheService);
+
+        database.put(1, 100L);
+        cache.put(1, 100L);
+        doAnswer(invocation -> {
+            Map<Integer, Long> batch = invocation.getArgument(0);
+            batch.forEach((id, delta) -> database.merge(id, delta, Long::sum));
+            return null;
+        }).when(articleMapper).addViewCounts(anyMap());
+        doAnswer(invocation -> {
+            String key = invocation.getArgument(0);
+            cache.remove(Integer.valueOf(key.substring(CommonConst.ARTICLE_CACHE.length())));
+            return null;
+        }).when(cacheService).delete(anyString());
+    }
+
+    @Test
+    void displayedCountNeverGoesBackwardsAcrossFlush() throws Exception {
+        List<Integer> seen = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            buffer.incrementArticle(1);
+        }
+        seen.add(displayed(1));
+        // 写回过程中其他请求读到的浏览量：写回前的缓存值、写回后从数据库重新加载的值
+        List<CompletableFuture<Integer>> readers = new ArrayList<>();
+        doAnswer(invocation -> {
+            Map<Integer, Long> batch = invocation.getArgument(0);
+            readers.add(readArticle(1, cache.get(1)));
+            batch.forEach((id, delta) -> database.merge(id, delta, Long::sum));
+            readers.add(readArticle(1, database.get(1)));
+            return null;
+        }).when(articleMapper).addViewCounts(anyMap());
+        doAnswer(invocation -> {
+            seen.add(displayed(1));
+            cache.remove(1);
+            seen.add(displayed(1));
+            return null;
+        }).when(cacheService).delete(CommonConst.ARTICLE_CACHE + 1);
+
+        buffer.flush();
+        for (CompletableFuture<Integer> reader : readers) {
+            seen.add(reader.get(5, TimeUnit.SECONDS));
+        }
+        seen.add(displayed(1));
+        // 写回之前加载、之后才读取的旧缓存值
+        seen.add(buffer.getArticleViewCount(1, 100));
+
+        assertThat(seen).containsOnly(105);
+        assertThat(database.get(1)).isEqualTo(105L);
+    }
+
+    @Test
+    void evictsCacheAfterWriteAndKeepsViewsArrivingDuringFlush() {
+        buffer.incrementArticle(1);
+        buffer.incrementArticle(1);
+        doAnswer(invocation -> {
+            Map<Integer, Long> batch = invocation.getArgument(0);
+            // 写回期间又有一次访问
+            buffer.incrementArticle(1);
+            batch.forEach((id, delta) -> database.merge(id, delta, Long::sum));
+            return null;
+        }).when(articleMapper).addViewCounts(anyMap());
+
+        buffer.flush();
+
+        InOrder order = inOrder(articleMapper, cacheService);
+        order.verify(articleMapper).addViewCounts(anyMap());
+        order.verify(cacheService).delete(CommonConst.ARTICLE_CACHE + 1);
+        assertThat(database.get(1)).isEqualTo(102L);
+        assertThat(displayed(1)).isEqualTo(103);
+    }
+
+    @Test
+    void failedWriteKeepsPendingViewsAndCache() {
+        buffer.incrementArticle(1);
+        doThrow(new IllegalStateException("db down")).when(articleMapper).addViewCounts(anyMap());
+
+        buffer.flush();
+
+        verify(cacheService, never()).delete(any());
+        assertThat(displayed(1)).isEqualTo(101);
+        assertThat(database.get(1)).isEqualTo(100L);
+    }
+
+    @Test
+    void diaryReadDuringWriteSeesCountAfterWrite() throws Exception {
+        Map<Integer, Long> diaries = new HashMap<>();
+        diaries.put(7, 10L);
+        buffer.incrementDiary(7);
+        assertThat(buffer.getDiaryViewCount(7, 10)).isEqualTo(11);
+        List<CompletableFuture<Integer>> readers = new ArrayList<>();
+        doAnswer(invocation -> {
+            Map<Integer, Long> batch = invocation.getArgument(0);
+            batch.forEach((id, delta) -> diaries.merge(id, delta, Long::sum));
+            // 已经读到写回后的数据库值，但缓冲还没有减去增量
+            int base = diaries.get(7).intValue();
+            readers.add(CompletableFuture.supplyAsync(() -> buffer.getDiaryViewCount(7, base)));
+            return null;
+        }).when(diaryMapper).addViewCounts(anyMap());
+
+        buffer.flush();
+
+        assertThat(readers.get(0).get(5, TimeUnit.SECONDS)).isEqualTo(11);
+        assertThat(buffer.getDiaryViewCount(7, 11)).isEqualTo(11);
+        assertThat(buffer.getDiaryViewCount(7, 10)).isEqualTo(11);
+    }
+
+    /**
+     * 在另一个线程中读取，写回期间会等待写回完成
+     */
+    private CompletableFuture<Integer> readArticle(Integer id, Long base) {
+        return CompletableFuture.supplyAsync(() -> buffer.getArticleViewCount(id, base.intValue()));
+    }
+
+    /**
+     * 详情页显示的浏览量：优先读缓存，缓存缺失时读数据库并放入缓存
+     */
+    private int displayed(Integer id) {
+        Long base = cache.computeIfAbsent(id, database::get);
+        return buffer.getArticleViewCount(id, base.intValue());
+    }
+}